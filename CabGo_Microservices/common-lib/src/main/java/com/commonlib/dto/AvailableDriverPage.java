@@ -0,0 +1,15 @@
+package com.commonlib.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailableDriverPage {
+    private List<AvailableDriverResponse> drivers;
+    private Long nextAfterId; // Pass as afterId to get the next page, null on the last page
+}
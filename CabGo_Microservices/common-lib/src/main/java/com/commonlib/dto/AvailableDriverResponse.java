@@ -0,0 +1,17 @@
+package com.commonlib.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Public view of an available driver, no credentials or licence data
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailableDriverResponse {
+    private Long driverId;
+    private String name;
+    private String vehicleDetails;
+    private Double latitude;
+    private Double longitude;
+}
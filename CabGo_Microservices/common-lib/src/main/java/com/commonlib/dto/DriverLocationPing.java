@@ -0,0 +1,15 @@
+package com.commonlib.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DriverLocationPing {
+    private Long driverId;
+    private double latitude;
+    private double longitude;
+    private long timestamp; // Epoch millis on the device, used to drop out-of-order pings; capped at server time
+}
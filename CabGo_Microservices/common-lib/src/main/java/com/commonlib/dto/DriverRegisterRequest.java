@@ -1,5 +1,6 @@
 package com.commonlib.dto;
 
+import com.commonlib.enums.VehicleClass;
 import lombok.*;
 
 @Getter
@@ -12,5 +13,6 @@ public class DriverRegisterRequest {
     private String phone;
     private String licenseNumber;
     private String vehicleDetails;
+    private VehicleClass vehicleClass;
     private String password;
 }
\ No newline at end of file
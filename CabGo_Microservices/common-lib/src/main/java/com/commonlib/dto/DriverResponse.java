@@ -9,5 +9,8 @@ public class DriverResponse {
     private String phone;
     private boolean available;
     private String vehicleDetails;
+    // Last known position, filled in on claim so callers can estimate the pickup time
+    private Double latitude;
+    private Double longitude;
     // Add other fields as needed
 }
\ No newline at end of file
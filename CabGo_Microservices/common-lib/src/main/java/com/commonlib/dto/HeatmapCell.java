@@ -0,0 +1,16 @@
+package com.commonlib.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HeatmapCell {
+    private long cell;         // Packed GeoGrid cell id
+    private double latitude;   // Cell centre
+    private double longitude;
+    private long current;      // Level right now (open requests / available drivers)
+    private long recent;       // Events inside the snapshot window (new requests / drivers freed)
+}
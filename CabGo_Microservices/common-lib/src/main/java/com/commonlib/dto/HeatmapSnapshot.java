@@ -0,0 +1,17 @@
+package com.commonlib.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HeatmapSnapshot {
+    private long generatedAt;
+    private double cellDegrees;
+    private long windowMs;
+    private List<HeatmapCell> cells;
+}
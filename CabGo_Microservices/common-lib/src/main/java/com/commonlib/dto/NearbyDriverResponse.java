@@ -0,0 +1,15 @@
+package com.commonlib.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NearbyDriverResponse {
+    private Long driverId;
+    private double latitude;
+    private double longitude;
+    private double distanceKm; // Straight-line distance from the queried point
+}
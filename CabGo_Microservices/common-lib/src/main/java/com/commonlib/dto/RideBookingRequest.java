@@ -1,9 +1,19 @@
 package com.commonlib.dto;
 
+import com.commonlib.enums.VehicleClass;
 import lombok.Data;
 
 @Data
 public class RideBookingRequest {
     private String pickupLocation;
     private String dropoffLocation;
+
+    // Optional coordinates, used for nearest-driver matching when present
+    private Double pickupLatitude;
+    private Double pickupLongitude;
+    private Double dropoffLatitude;
+    private Double dropoffLongitude;
+
+    // Priced with the tariff of this class, ride.fare.default-class when absent
+    private VehicleClass vehicleClass;
 }
\ No newline at end of file
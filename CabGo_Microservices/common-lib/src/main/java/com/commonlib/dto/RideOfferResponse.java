@@ -0,0 +1,16 @@
+package com.commonlib.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RideOfferResponse {
+    private Long rideId;
+    private Double pickupLatitude;
+    private Double pickupLongitude;
+    private Integer estimatedPickupSeconds;
+    private long expiresAt; // Epoch millis, the offer moves to the next driver after this
+}
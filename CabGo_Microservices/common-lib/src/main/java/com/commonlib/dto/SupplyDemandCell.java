@@ -0,0 +1,18 @@
+package com.commonlib.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SupplyDemandCell {
+    private long cell;
+    private double latitude;
+    private double longitude;
+    private long openRequests;
+    private long recentRequests;
+    private long availableDrivers;
+    private long recentlyFreedDrivers;
+}
@@ -0,0 +1,18 @@
+package com.commonlib.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SupplyDemandSnapshot {
+    private long generatedAt;
+    private double cellDegrees;
+    private long windowMs;
+    private boolean supplyIncluded; // False when driver-service could not be reached
+    private List<SupplyDemandCell> cells;
+}
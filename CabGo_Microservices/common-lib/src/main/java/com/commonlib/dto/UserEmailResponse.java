@@ -0,0 +1,13 @@
+package com.commonlib.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserEmailResponse {
+    private Long userId;
+    private String email; // All a batch caller gets, no phone or password hash
+}
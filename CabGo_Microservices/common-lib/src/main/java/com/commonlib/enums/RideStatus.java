@@ -6,5 +6,6 @@ public enum RideStatus {
     ONGOING,
     COMPLETED,
     CANCELLED,
+    // Never entered any more, started rides are ONGOING; kept so rows written with it still load
     IN_PROGRESS
 }
@@ -0,0 +1,8 @@
+package com.commonlib.enums;
+
+public enum VehicleClass {
+    AUTO,
+    HATCHBACK,
+    SEDAN,
+    SUV
+}
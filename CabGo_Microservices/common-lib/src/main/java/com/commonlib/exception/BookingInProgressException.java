@@ -0,0 +1,7 @@
+package com.commonlib.exception;
+
+public class BookingInProgressException extends RuntimeException {
+    public BookingInProgressException(String message) {
+        super(message);
+    }
+}
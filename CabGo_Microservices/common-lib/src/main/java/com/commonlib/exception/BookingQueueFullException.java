@@ -0,0 +1,15 @@
+package com.commonlib.exception;
+
+public class BookingQueueFullException extends RuntimeException {
+    // How long the caller should wait before trying again, sent as Retry-After
+    private final long retryAfterSeconds;
+
+    public BookingQueueFullException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,7 @@
+package com.commonlib.exception;
+
+public class DriverClaimConflictException extends RuntimeException {
+    public DriverClaimConflictException(String message) {
+        super(message);
+    }
+}
@@ -28,5 +28,10 @@ public class GlobalExceptionHandler {
                 .body(new ApiResponse(false, ex.getMessage(), null));
     }
 
+    @ExceptionHandler(DriverClaimConflictException.class)
+    public ResponseEntity<ApiResponse> handleDriverClaimConflict(DriverClaimConflictException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new ApiResponse(false, ex.getMessage(), null));
+    }
 
 }
@@ -0,0 +1,7 @@
+package com.commonlib.exception;
+
+public class NoDriversAvailableException extends RuntimeException {
+    public NoDriversAvailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.commonlib.exception;
+
+public class RideOfferConflictException extends RuntimeException {
+    public RideOfferConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.commonlib.exception;
+
+public class RideStatusConflictException extends RuntimeException {
+    public RideStatusConflictException(String message) {
+        super(message);
+    }
+}
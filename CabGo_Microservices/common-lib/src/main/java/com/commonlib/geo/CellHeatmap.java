@@ -0,0 +1,120 @@
+package com.commonlib.geo;
+
+import com.commonlib.dto.HeatmapCell;
+import com.commonlib.dto.HeatmapSnapshot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory per-cell counters for heatmaps, fed by the services as events
+ * happen and read by cheap snapshot endpoints.
+ *
+ * Two kinds of numbers are kept per grid cell:
+ * - a current level (open requests, available drivers), moved up and down;
+ * - events in a sliding window (new requests, drivers freed), held in a ring
+ *   of time buckets that are recycled as the clock moves on.
+ *
+ * All counters are LongAdders, so concurrent writers on a hot cell do not
+ * contend on one CAS, and nothing here touches the database.
+ */
+public class CellHeatmap {
+
+    private final GeoGrid grid;
+    private final long bucketMs;
+    private final AtomicReferenceArray<Bucket> buckets;
+    private final ConcurrentHashMap<Long, LongAdder> levels = new ConcurrentHashMap<>();
+    private final LongSupplier clock;
+
+    public CellHeatmap(double cellDegrees, long bucketMs, int bucketCount) {
+        this(cellDegrees, bucketMs, bucketCount, System::currentTimeMillis);
+    }
+
+    public CellHeatmap(double cellDegrees, long bucketMs, int bucketCount, LongSupplier clock) {
+        this.grid = new GeoGrid(cellDegrees);
+        this.bucketMs = bucketMs;
+        this.buckets = new AtomicReferenceArray<>(bucketCount);
+        this.clock = clock;
+    }
+
+    public long cellOf(double latitude, double longitude) {
+        return grid.cellOf(latitude, longitude);
+    }
+
+    public void increment(long cell) {
+        levels.computeIfAbsent(cell, c -> new LongAdder()).increment();
+    }
+
+    public void decrement(long cell) {
+        levels.computeIfAbsent(cell, c -> new LongAdder()).decrement();
+    }
+
+    public void move(long fromCell, long toCell) {
+        if (fromCell != toCell) {
+            decrement(fromCell);
+            increment(toCell);
+        }
+    }
+
+    public void recordEvent(long cell) {
+        long epoch = clock.getAsLong() / bucketMs;
+        int slot = (int) (epoch % buckets.length());
+        Bucket bucket = buckets.get(slot);
+        while (bucket == null || bucket.epoch < epoch) {
+            // First writer in a new time slice recycles the slot; losers pick up the winner's bucket
+            Bucket fresh = new Bucket(epoch);
+            if (buckets.compareAndSet(slot, bucket, fresh)) {
+                bucket = fresh;
+            } else {
+                bucket = buckets.get(slot);
+            }
+        }
+        if (bucket.epoch == epoch) {
+            bucket.counts.computeIfAbsent(cell, c -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * Every cell with a non-zero level or events inside the last windowMs.
+     * The window is rounded up to whole buckets and capped at the ring length.
+     */
+    public HeatmapSnapshot snapshot(long windowMs) {
+        long now = clock.getAsLong();
+        long currentEpoch = now / bucketMs;
+        long windowBuckets = Math.min(buckets.length(), Math.max(1, (windowMs + bucketMs - 1) / bucketMs));
+
+        Map<Long, long[]> cells = new HashMap<>();
+        levels.forEach((cell, adder) -> {
+            long level = adder.sum();
+            if (level != 0) {
+                cells.computeIfAbsent(cell, c -> new long[2])[0] = level;
+            }
+        });
+        for (int i = 0; i < buckets.length(); i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null && currentEpoch - bucket.epoch < windowBuckets) {
+                bucket.counts.forEach((cell, adder) -> cells.computeIfAbsent(cell, c -> new long[2])[1] += adder.sum());
+            }
+        }
+
+        List<HeatmapCell> result = new ArrayList<>(cells.size());
+        cells.forEach((cell, counts) -> result.add(new HeatmapCell(cell,
+                grid.centerLatitude(cell), grid.centerLongitude(cell), counts[0], counts[1])));
+        return new HeatmapSnapshot(now, grid.getCellDegrees(), windowBuckets * bucketMs, result);
+    }
+
+    private static final class Bucket {
+        private final long epoch;
+        private final ConcurrentHashMap<Long, LongAdder> counts = new ConcurrentHashMap<>();
+
+        private Bucket(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+}
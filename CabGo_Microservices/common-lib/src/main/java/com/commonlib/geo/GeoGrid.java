@@ -0,0 +1,76 @@
+package com.commonlib.geo;
+
+/**
+ * Fixed-size lat/lng grid shared by all services, so a "cell" means the same
+ * area in driver-service and ride-service. A cell is packed into a single long
+ * (row in the high 32 bits, column in the low 32 bits) so it can be used as a
+ * cheap map key.
+ */
+public final class GeoGrid {
+
+    // 0.01 degrees is roughly a 1.1 km square at the equator
+    public static final double DEFAULT_CELL_DEGREES = 0.01;
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = 111.32;
+
+    private final double cellDegrees;
+
+    public GeoGrid(double cellDegrees) {
+        if (cellDegrees <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive");
+        }
+        this.cellDegrees = cellDegrees;
+    }
+
+    public double getCellDegrees() {
+        return cellDegrees;
+    }
+
+    public int rowOf(double latitude) {
+        return (int) Math.floor((latitude + 90.0) / cellDegrees);
+    }
+
+    public int colOf(double longitude) {
+        return (int) Math.floor((longitude + 180.0) / cellDegrees);
+    }
+
+    public long cellOf(double latitude, double longitude) {
+        return pack(rowOf(latitude), colOf(longitude));
+    }
+
+    // Smallest side of a cell around the given latitude, used as a lower bound when searching rings of cells
+    public double minCellSideKm(double latitude) {
+        return cellDegrees * KM_PER_DEGREE * Math.max(Math.cos(Math.toRadians(latitude)), 0.01);
+    }
+
+    public double centerLatitude(long cell) {
+        return (row(cell) + 0.5) * cellDegrees - 90.0;
+    }
+
+    public double centerLongitude(long cell) {
+        return (col(cell) + 0.5) * cellDegrees - 180.0;
+    }
+
+    public static long pack(int row, int col) {
+        return ((long) row << 32) | (col & 0xFFFFFFFFL);
+    }
+
+    public static int row(long cell) {
+        return (int) (cell >> 32);
+    }
+
+    public static int col(long cell) {
+        return (int) cell;
+    }
+
+    // Great-circle distance (haversine)
+    public static double distanceKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(a));
+    }
+}
@@ -0,0 +1,65 @@
+package com.commonlib.geo;
+
+import com.commonlib.dto.HeatmapCell;
+import com.commonlib.dto.HeatmapSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CellHeatmapTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private final CellHeatmap heatmap = new CellHeatmap(0.01, 1000, 10, now::get);
+
+    @Test
+    void levels_shouldFollowIncrementsAndMoves() {
+        long a = heatmap.cellOf(12.9716, 77.5946);
+        long b = heatmap.cellOf(12.9916, 77.5946);
+
+        heatmap.increment(a);
+        heatmap.increment(a);
+        heatmap.move(a, b);
+
+        HeatmapSnapshot snapshot = heatmap.snapshot(5000);
+        assertEquals(1, find(snapshot, a).getCurrent());
+        assertEquals(1, find(snapshot, b).getCurrent());
+
+        heatmap.decrement(a);
+        assertNull(find(heatmap.snapshot(5000), a));
+    }
+
+    @Test
+    void events_shouldDropOutOfTheWindow() {
+        long cell = heatmap.cellOf(12.9716, 77.5946);
+        heatmap.recordEvent(cell);
+        now.addAndGet(1000);
+        heatmap.recordEvent(cell);
+        heatmap.recordEvent(cell);
+
+        assertEquals(3, find(heatmap.snapshot(2000), cell).getRecent());
+        assertEquals(2, find(heatmap.snapshot(1000), cell).getRecent());
+
+        now.addAndGet(3000);
+        assertEquals(2, find(heatmap.snapshot(4000), cell).getRecent());
+        assertNull(find(heatmap.snapshot(2000), cell));
+    }
+
+    @Test
+    void recycledBucket_shouldNotLeakOldCounts() {
+        long cell = heatmap.cellOf(12.9716, 77.5946);
+        heatmap.recordEvent(cell);
+        // Same slot in the ring, one full turn later
+        now.addAndGet(10_000);
+        heatmap.recordEvent(cell);
+
+        HeatmapSnapshot snapshot = heatmap.snapshot(60_000);
+        assertEquals(10_000, snapshot.getWindowMs());
+        assertEquals(1, find(snapshot, cell).getRecent());
+    }
+
+    private static HeatmapCell find(HeatmapSnapshot snapshot, long cell) {
+        return snapshot.getCells().stream().filter(c -> c.getCell() == cell).findFirst().orElse(null);
+    }
+}
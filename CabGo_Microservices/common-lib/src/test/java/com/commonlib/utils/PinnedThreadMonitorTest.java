@@ -0,0 +1,36 @@
+package com.commonlib.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PinnedThreadMonitorTest {
+
+    private final Object monitor = new Object();
+
+    @Test
+    void blockingInsideSynchronized_shouldBeReported() throws Exception {
+        PinnedThreadMonitor pinning = new PinnedThreadMonitor(10);
+        pinning.start();
+        try {
+            Thread.ofVirtual().start(() -> {
+                synchronized (monitor) {
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }).join();
+
+            // JFR hands events to the stream about once a second
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (pinning.pinnedCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+            assertTrue(pinning.pinnedCount() > 0);
+        } finally {
+            pinning.stop();
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.dispatchsimulator;
+
+import com.commonlib.exception.DriverClaimConflictException;
+import com.commonlib.exception.DriverNotFoundException;
+import com.commonlib.geo.CellHeatmap;
+import com.commonlib.geo.GeoGrid;
+import com.driverservice.index.DriverAvailabilitySet;
+import com.driverservice.index.DriverLocationIndex;
+import com.driverservice.repository.DriverRepository;
+import com.driverservice.service.impl.DriverServiceImpl;
+import com.rideservice.dispatch.BatchMatcher;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Discrete-time simulation of one city, driving the production matching code
+ * in-process: the driver-service availability bitmap, location index and
+ * claim logic, and for batch mode the ride-service window matcher.
+ *
+ * The clock is simulated, so a ten minute run takes seconds. Time to match is
+ * the simulated wait until a booking gets a driver plus the measured wall
+ * time of the dispatch call that matched it; throughput is measured on the
+ * dispatch calls alone.
+ */
+public class DispatchSimulation {
+
+    // Streets are longer than the straight line between two points
+    private static final double ROAD_FACTOR = 1.3;
+
+    private final SimulationConfig config;
+    private final Random random;
+    private final SyntheticCity city;
+    private final DriverAvailabilitySet availabilitySet;
+    private final DriverLocationIndex locationIndex;
+    private final DriverServiceImpl driverService;
+    private final BatchMatcher batchMatcher;
+    private final GeoGrid zoneGrid;
+
+    private final boolean[] busy;
+    private final PriorityQueue<long[]> tripEnds = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+    private final ArrayDeque<Booking> pending = new ArrayDeque<>();
+    private final SimulationReport report;
+
+    private long nextBookingId = 1;
+
+    public DispatchSimulation(SimulationConfig config) {
+        this.config = config;
+        this.random = new Random(config.seed());
+        this.city = new SyntheticCity(config, random);
+        this.availabilitySet = new DriverAvailabilitySet(config.drivers() + 1, 0.05);
+        this.locationIndex = new DriverLocationIndex(availabilitySet, new CellHeatmap(0.01, 10000, 90), 0.01, 50);
+        // Only the in-memory claim path is exercised, the other database collaborators are not needed
+        this.driverService = new DriverServiceImpl(confirmingRepository(), null, null, locationIndex, null,
+                availabilitySet, null);
+        this.batchMatcher = new BatchMatcher(config.maxPickupKm(), config.hungarianLimit());
+        this.zoneGrid = new GeoGrid(0.05);
+        this.busy = new boolean[config.drivers()];
+        this.report = new SimulationReport(config);
+
+        for (int i = 0; i < config.drivers(); i++) {
+            long driverId = i + 1;
+            availabilitySet.load(driverId, null, false);
+            locationIndex.updatePosition(driverId, city.latitude[i], city.longitude[i]);
+            locationIndex.setAvailable(driverId, true);
+        }
+    }
+
+    /**
+     * Stands in for the conditional claim UPDATE. With a single process the
+     * bitmap already serializes claims, so the row would always agree; the
+     * simulation measures matching, not the database round trip.
+     */
+    private static DriverRepository confirmingRepository() {
+        return (DriverRepository) Proxy.newProxyInstance(DriverRepository.class.getClassLoader(),
+                new Class<?>[]{DriverRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "claimIfAvailable", "markAvailable" -> 1;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    public SimulationReport run() {
+        ForkJoinPool solverPool = new ForkJoinPool(config.solverThreads() > 0
+                ? config.solverThreads() : Runtime.getRuntime().availableProcessors());
+        try {
+            long endMs = config.durationSeconds() * 1000L;
+            double nextArrivalMs = nextInterArrivalMs();
+            long nextPingMs = config.pingIntervalMs();
+            long nextWindowMs = config.windowMs();
+
+            for (long now = 0; now < endMs; now += config.tickMs()) {
+                finishTrips(now);
+                if (now >= nextPingMs) {
+                    moveIdleDrivers();
+                    nextPingMs += config.pingIntervalMs();
+                }
+                // Bookings arriving during this tick are handled now, so sync dispatch does not wait for the tick
+                while (nextArrivalMs < now + config.tickMs()) {
+                    double[] pickup = city.pickupPoint();
+                    double[] dropoff = city.dropoffPoint(pickup, config.meanTripKm());
+                    pending.add(new Booking(nextBookingId++, (long) nextArrivalMs, pickup, dropoff));
+                    report.requested++;
+                    nextArrivalMs += nextInterArrivalMs();
+                }
+                if (config.mode() == SimulationConfig.DispatchMode.SYNC) {
+                    dispatchSync(now);
+                } else if (now >= nextWindowMs) {
+                    dispatchWindow(now, solverPool);
+                    nextWindowMs += config.windowMs();
+                }
+                abandonExpired(now);
+            }
+            report.busyDriverMs += busyTimeUntil(endMs);
+            report.stillPending = pending.size();
+            return report;
+        } finally {
+            solverPool.shutdown();
+        }
+    }
+
+    private void dispatchSync(long now) {
+        for (Iterator<Booking> it = pending.iterator(); it.hasNext(); ) {
+            Booking booking = it.next();
+            long started = System.nanoTime();
+            Long driverId;
+            try {
+                driverId = driverService.claimDriver(booking.pickup[0], booking.pickup[1]);
+            } catch (DriverNotFoundException | DriverClaimConflictException e) {
+                report.recordDispatchNanos(System.nanoTime() - started, 0);
+                // Nobody free right now, every later booking would fail the same way this tick
+                return;
+            }
+            long elapsed = System.nanoTime() - started;
+            report.recordDispatchNanos(elapsed, 1);
+            startTrip(booking, driverId, now, elapsed);
+            it.remove();
+        }
+    }
+
+    private void dispatchWindow(long now, ForkJoinPool solverPool) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<Long, Booking> byId = new HashMap<>();
+        List<BatchMatcher.RideRequest> requests = new ArrayList<>(pending.size());
+        for (Booking booking : pending) {
+            byId.put(booking.id, booking);
+            requests.add(new BatchMatcher.RideRequest(booking.id, booking.pickup[0], booking.pickup[1]));
+        }
+
+        long started = System.nanoTime();
+        List<BatchMatcher.Match> matches = batchMatcher.matchWindow(requests, zoneGrid, this::candidates, solverPool);
+        List<BatchMatcher.Match> claimed = new ArrayList<>(matches.size());
+        for (BatchMatcher.Match match : matches) {
+            if (driverService.claimDriverById(match.driverId())) {
+                claimed.add(match);
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+        report.recordDispatchNanos(elapsed, claimed.size());
+        report.batchSize.add(requests.size());
+
+        for (BatchMatcher.Match match : claimed) {
+            startTrip(byId.get(match.rideId()), match.driverId(), now, elapsed);
+        }
+        Set<Long> matchedIds = new HashSet<>();
+        claimed.forEach(match -> matchedIds.add(match.rideId()));
+        pending.removeIf(booking -> matchedIds.contains(booking.id));
+    }
+
+    private List<BatchMatcher.DriverCandidate> candidates(double latitude, double longitude, int k) {
+        List<BatchMatcher.DriverCandidate> result = new ArrayList<>();
+        locationIndex.nearest(latitude, longitude, Math.min(k, 100)).forEach(d ->
+                result.add(new BatchMatcher.DriverCandidate(d.getDriverId(), d.getLatitude(), d.getLongitude())));
+        return result;
+    }
+
+    private void startTrip(Booking booking, long driverId, long now, long dispatchNanos) {
+        int driver = (int) driverId - 1;
+        if (busy[driver]) {
+            throw new IllegalStateException("Driver " + driverId + " was assigned while already on a trip");
+        }
+        busy[driver] = true;
+
+        double pickupKm = SyntheticCity.distanceKm(city.latitude[driver], city.longitude[driver],
+                booking.pickup[0], booking.pickup[1]);
+        double tripKm = SyntheticCity.distanceKm(booking.pickup[0], booking.pickup[1],
+                booking.dropoff[0], booking.dropoff[1]);
+        long tripMs = (long) ((pickupKm + tripKm) * ROAD_FACTOR / config.speedKmh() * 3_600_000);
+
+        city.latitude[driver] = booking.dropoff[0];
+        city.longitude[driver] = booking.dropoff[1];
+        tripEnds.add(new long[]{now + tripMs, driver, now});
+
+        report.matched++;
+        report.pickupKmTotal += pickupKm;
+        report.timeToMatchMicros.add(Math.max(0, now - booking.requestedAtMs) * 1000 + dispatchNanos / 1000);
+        report.tripKmTotal += tripKm;
+    }
+
+    private void finishTrips(long now) {
+        while (!tripEnds.isEmpty() && tripEnds.peek()[0] <= now) {
+            long[] trip = tripEnds.poll();
+            int driver = (int) trip[1];
+            busy[driver] = false;
+            report.busyDriverMs += trip[0] - trip[2];
+            long driverId = driver + 1;
+            locationIndex.updatePosition(driverId, city.latitude[driver], city.longitude[driver]);
+            locationIndex.setAvailable(driverId, true);
+        }
+    }
+
+    private void moveIdleDrivers() {
+        double km = config.speedKmh() * config.pingIntervalMs() / 3_600_000.0;
+        for (int driver = 0; driver < busy.length; driver++) {
+            if (!busy[driver]) {
+                city.cruise(driver, km);
+                locationIndex.updatePosition(driver + 1, city.latitude[driver], city.longitude[driver]);
+            }
+        }
+    }
+
+    private void abandonExpired(long now) {
+        while (!pending.isEmpty() && now - pending.peek().requestedAtMs > config.maxWaitMs()) {
+            pending.poll();
+            report.abandoned++;
+        }
+    }
+
+    // Trips still running at the end only count up to the end of the run
+    private long busyTimeUntil(long endMs) {
+        long total = 0;
+        for (long[] trip : tripEnds) {
+            total += Math.min(trip[0], endMs) - trip[2];
+        }
+        return total;
+    }
+
+    private double nextInterArrivalMs() {
+        // Exponential gaps between bookings give a Poisson arrival stream
+        return -Math.log(1 - random.nextDouble()) / config.bookingsPerSecond() * 1000;
+    }
+
+    private record Booking(long id, long requestedAtMs, double[] pickup, double[] dropoff) {
+    }
+}
@@ -0,0 +1,29 @@
+package com.dispatchsimulator;
+
+import java.util.List;
+
+/**
+ * Command line entry point:
+ *
+ *   mvn -q compile exec:java -Dexec.args="--drivers=2000 --rate=20 --mode=BATCH"
+ *
+ * Runs offline with no database, Eureka or other services. Exits with status
+ * 1 when a --max-p99-ms or --min-match-rate threshold is missed, so it can
+ * gate a release build.
+ */
+public class DispatchSimulator {
+
+    public static void main(String[] args) {
+        SimulationConfig config = SimulationConfig.parse(args);
+        long started = System.nanoTime();
+        SimulationReport report = new DispatchSimulation(config).run();
+        System.out.print(report.summary());
+        System.out.printf("  wall time           %.2f s%n", (System.nanoTime() - started) / 1e9);
+
+        List<String> violations = report.violations();
+        if (!violations.isEmpty()) {
+            violations.forEach(v -> System.err.println("FAILED: " + v));
+            System.exit(1);
+        }
+    }
+}
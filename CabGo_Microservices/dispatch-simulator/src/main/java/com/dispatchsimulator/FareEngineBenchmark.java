@@ -0,0 +1,92 @@
+package com.dispatchsimulator;
+
+import com.commonlib.enums.VehicleClass;
+import com.commonlib.geo.GeoGrid;
+import com.rideservice.eta.EtaEstimator;
+import com.rideservice.fare.FareEngine;
+import com.rideservice.fare.Tariff;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one fare with ride-service's FareEngine, against pricing every trip
+ * from its own distance and ETA as the matrix replaces:
+ *
+ *   mvn -q compile exec:exec -Dexec.executable=java \
+ *       -Dexec.args="-cp %classpath org.openjdk.jmh.Main FareEngineBenchmark -prof gc"
+ *
+ * Trips are spread over the default ETA box, so nearly all of them take the
+ * zone-to-zone path. With -prof gc, gc.alloc.rate.norm shows the bytes
+ * allocated per fare.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FareEngineBenchmark {
+
+    private static final int TRIPS = 4096;
+    private static final double DETOUR_FACTOR = 1.35;
+
+    private EtaEstimator etaEstimator;
+    private FareEngine fareEngine;
+    private Tariff sedan;
+    private final double[] trips = new double[TRIPS * 4];
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path dir = Files.createTempDirectory("fare-benchmark");
+        etaEstimator = new EtaEstimator(new SimpleMeterRegistry(), dir.resolve("eta-table.bin").toString(),
+                0.01, 12.80, 77.40, 13.20, 77.80, DETOUR_FACTOR, 18, 32, 3);
+        etaEstimator.load();
+        // No tariff file in the temp directory, so the built-in tariffs are used
+        fareEngine = new FareEngine(etaEstimator, dir.resolve("tariffs.properties").toString(), VehicleClass.HATCHBACK,
+                0.02, 12.80, 77.40, 13.20, 77.80, DETOUR_FACTOR, 5);
+        fareEngine.load();
+        sedan = new Tariff(70, 15, 2.0, 110);
+
+        Random random = new Random(42);
+        for (int i = 0; i < trips.length; i += 2) {
+            trips[i] = 12.80 + random.nextDouble() * 0.40;
+            trips[i + 1] = 77.40 + random.nextDouble() * 0.40;
+        }
+    }
+
+    @Benchmark
+    public double zoneMatrix() {
+        int i = nextTrip();
+        return fareEngine.fare(VehicleClass.SEDAN, trips[i], trips[i + 1], trips[i + 2], trips[i + 3]);
+    }
+
+    @Benchmark
+    public double perTrip() {
+        int i = nextTrip();
+        double roadKm = GeoGrid.distanceKm(trips[i], trips[i + 1], trips[i + 2], trips[i + 3]) * DETOUR_FACTOR;
+        int seconds = etaEstimator.estimateSeconds(trips[i], trips[i + 1], trips[i + 2], trips[i + 3]);
+        return sedan.farePaise(roadKm, seconds) / 100.0;
+    }
+
+    private int nextTrip() {
+        int i = next;
+        next = (i + 1) & (TRIPS - 1);
+        return i * 4;
+    }
+}
@@ -0,0 +1,129 @@
+package com.dispatchsimulator;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load against a running service, for comparing the
+ * platform-thread and virtual-thread (vthreads profile) modes:
+ *
+ *   mvn -q compile exec:java -Dexec.mainClass=com.dispatchsimulator.ServiceLoadTest \
+ *       -Dexec.args="--url=http://localhost:8083/api/rides/user/latest --token=... --concurrency=500 --duration=60"
+ *
+ * Each client sends its next request as soon as the previous one returns.
+ * Clients run on virtual threads so the generator itself is not the limit.
+ */
+public class ServiceLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        String url = options.get("url");
+        if (url == null) {
+            throw new IllegalArgumentException("--url is required");
+        }
+        String token = options.get("token");
+        String method = options.getOrDefault("method", "GET");
+        String body = options.get("body");
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "200"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "60"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "10"));
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofSeconds(30))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        if (body != null) {
+            request.header("Content-Type", "application/json");
+        }
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        HttpRequest prepared = request.build();
+
+        long measureFrom = System.nanoTime() + Duration.ofSeconds(warmupSeconds).toNanos();
+        long stopAt = measureFrom + Duration.ofSeconds(durationSeconds).toNanos();
+        AtomicLong errors = new AtomicLong();
+
+        List<Future<long[]>> clients = new ArrayList<>(concurrency);
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                clients.add(pool.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    long now;
+                    while ((now = System.nanoTime()) < stopAt) {
+                        boolean ok;
+                        try {
+                            ok = client.send(prepared, HttpResponse.BodyHandlers.discarding()).statusCode() < 500;
+                        } catch (Exception e) {
+                            ok = false;
+                        }
+                        long done = System.nanoTime();
+                        if (now < measureFrom) {
+                            continue;
+                        }
+                        if (!ok) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = done - now;
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+
+            List<long[]> perClient = new ArrayList<>(concurrency);
+            int total = 0;
+            for (Future<long[]> result : clients) {
+                long[] latencies = result.get();
+                perClient.add(latencies);
+                total += latencies.length;
+            }
+            long[] all = new long[total];
+            int offset = 0;
+            for (long[] latencies : perClient) {
+                System.arraycopy(latencies, 0, all, offset, latencies.length);
+                offset += latencies.length;
+            }
+            Arrays.sort(all);
+
+            System.out.printf("Service load test: %s %s concurrency=%d duration=%ds%n", method, url, concurrency, durationSeconds);
+            System.out.printf("  requests            %d ok, %d failed%n", total, errors.get());
+            System.out.printf("  throughput          %.1f requests/s%n", total / (double) durationSeconds);
+            if (total > 0) {
+                System.out.printf("  latency             p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                        percentile(all, 0.50), percentile(all, 0.99), all[total - 1] / 1e6);
+            }
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+}
@@ -0,0 +1,95 @@
+package com.dispatchsimulator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Knobs of one simulation run. Every field can be overridden on the command
+ * line as --name=value, e.g. --drivers=5000 --rate=40 --mode=BATCH.
+ */
+public record SimulationConfig(
+        int drivers,
+        double bookingsPerSecond,
+        int durationSeconds,
+        DispatchMode mode,
+        long windowMs,
+        long tickMs,
+        long pingIntervalMs,
+        long maxWaitMs,
+        double cityKm,
+        double centerLatitude,
+        double centerLongitude,
+        double speedKmh,
+        double meanTripKm,
+        double maxPickupKm,
+        int hungarianLimit,
+        int solverThreads,
+        long seed,
+        double maxP99Ms,
+        double minMatchRate) {
+
+    public enum DispatchMode {
+        SYNC, BATCH
+    }
+
+    public static SimulationConfig defaults() {
+        return new SimulationConfig(5000, 3, 600, DispatchMode.SYNC, 2000, 100, 4000, 60000,
+                20, 12.9716, 77.5946, 25, 4, 5, 64, 0, 42, 0, 0);
+    }
+
+    public static SimulationConfig parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        SimulationConfig d = defaults();
+        SimulationConfig config = new SimulationConfig(
+                intValue(values, "drivers", d.drivers()),
+                doubleValue(values, "rate", d.bookingsPerSecond()),
+                intValue(values, "duration", d.durationSeconds()),
+                modeValue(values, d.mode()),
+                longValue(values, "window-ms", d.windowMs()),
+                longValue(values, "tick-ms", d.tickMs()),
+                longValue(values, "ping-interval-ms", d.pingIntervalMs()),
+                longValue(values, "max-wait-ms", d.maxWaitMs()),
+                doubleValue(values, "city-km", d.cityKm()),
+                doubleValue(values, "center-lat", d.centerLatitude()),
+                doubleValue(values, "center-lng", d.centerLongitude()),
+                doubleValue(values, "speed-kmh", d.speedKmh()),
+                doubleValue(values, "mean-trip-km", d.meanTripKm()),
+                doubleValue(values, "max-pickup-km", d.maxPickupKm()),
+                intValue(values, "hungarian-limit", d.hungarianLimit()),
+                intValue(values, "solver-threads", d.solverThreads()),
+                longValue(values, "seed", d.seed()),
+                doubleValue(values, "max-p99-ms", d.maxP99Ms()),
+                doubleValue(values, "min-match-rate", d.minMatchRate()));
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options: " + values.keySet());
+        }
+        return config;
+    }
+
+    private static DispatchMode modeValue(Map<String, String> values, DispatchMode fallback) {
+        String value = values.remove("mode");
+        return value == null ? fallback : DispatchMode.valueOf(value.toUpperCase());
+    }
+
+    private static int intValue(Map<String, String> values, String name, int fallback) {
+        String value = values.remove(name);
+        return value == null ? fallback : Integer.parseInt(value);
+    }
+
+    private static long longValue(Map<String, String> values, String name, long fallback) {
+        String value = values.remove(name);
+        return value == null ? fallback : Long.parseLong(value);
+    }
+
+    private static double doubleValue(Map<String, String> values, String name, double fallback) {
+        String value = values.remove(name);
+        return value == null ? fallback : Double.parseDouble(value);
+    }
+}
@@ -0,0 +1,136 @@
+package com.dispatchsimulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Counters collected during one run and the summary printed at the end.
+ */
+public class SimulationReport {
+
+    private final SimulationConfig config;
+
+    long requested;
+    long matched;
+    long abandoned;
+    long stillPending;
+    double pickupKmTotal;
+    double tripKmTotal;
+    long busyDriverMs;
+    final LongList timeToMatchMicros = new LongList();
+    final LongList batchSize = new LongList();
+
+    private long dispatchNanos;
+    private long dispatchedBookings;
+
+    SimulationReport(SimulationConfig config) {
+        this.config = config;
+    }
+
+    void recordDispatchNanos(long nanos, int bookings) {
+        dispatchNanos += nanos;
+        dispatchedBookings += bookings;
+    }
+
+    public long requested() {
+        return requested;
+    }
+
+    public long matched() {
+        return matched;
+    }
+
+    public long abandoned() {
+        return abandoned;
+    }
+
+    public double matchRate() {
+        return requested == 0 ? 0 : (double) matched / requested;
+    }
+
+    /**
+     * Bookings matched per second of wall time spent inside the dispatch code.
+     */
+    public double bookingsPerSecond() {
+        return dispatchNanos == 0 ? 0 : dispatchedBookings / (dispatchNanos / 1e9);
+    }
+
+    public double timeToMatchPercentileMs(double percentile) {
+        return timeToMatchMicros.percentile(percentile) / 1000.0;
+    }
+
+    public double meanPickupKm() {
+        return matched == 0 ? 0 : pickupKmTotal / matched;
+    }
+
+    public double utilization() {
+        return (double) busyDriverMs / ((long) config.drivers() * config.durationSeconds() * 1000L);
+    }
+
+    /**
+     * Threshold violations for the --max-p99-ms and --min-match-rate options,
+     * empty when the run is within bounds.
+     */
+    public List<String> violations() {
+        List<String> violations = new ArrayList<>();
+        if (config.maxP99Ms() > 0 && timeToMatchPercentileMs(0.99) > config.maxP99Ms()) {
+            violations.add(String.format("p99 time to match %.1f ms is above %.1f ms",
+                    timeToMatchPercentileMs(0.99), config.maxP99Ms()));
+        }
+        if (config.minMatchRate() > 0 && matchRate() < config.minMatchRate()) {
+            violations.add(String.format("match rate %.3f is below %.3f", matchRate(), config.minMatchRate()));
+        }
+        return violations;
+    }
+
+    public String summary() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("Dispatch simulation: mode=%s drivers=%d rate=%.1f/s duration=%ds seed=%d%n",
+                config.mode(), config.drivers(), config.bookingsPerSecond(), config.durationSeconds(), config.seed()));
+        if (config.mode() == SimulationConfig.DispatchMode.BATCH) {
+            out.append(String.format("  window              %d ms, mean batch %.1f bookings%n",
+                    config.windowMs(), batchSize.mean()));
+        }
+        out.append(String.format("  bookings            %d requested, %d matched (%.1f%%), %d abandoned, %d still waiting%n",
+                requested, matched, matchRate() * 100, abandoned, stillPending));
+        out.append(String.format("  throughput          %.0f bookings/s through the dispatch path%n", bookingsPerSecond()));
+        out.append(String.format("  time to match       p50 %.1f ms, p99 %.1f ms%n",
+                timeToMatchPercentileMs(0.5), timeToMatchPercentileMs(0.99)));
+        out.append(String.format("  pickup distance     mean %.2f km (trip %.2f km)%n", meanPickupKm(),
+                matched == 0 ? 0 : tripKmTotal / matched));
+        out.append(String.format("  driver utilization  %.1f%%%n", utilization() * 100));
+        return out.toString();
+    }
+
+    // Growable primitive list, a run can record millions of samples
+    static final class LongList {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        double mean() {
+            long sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += values[i];
+            }
+            return size == 0 ? 0 : (double) sum / size;
+        }
+
+        long percentile(double percentile) {
+            if (size == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile * size) - 1;
+            return sorted[Math.max(0, Math.min(index, size - 1))];
+        }
+    }
+}
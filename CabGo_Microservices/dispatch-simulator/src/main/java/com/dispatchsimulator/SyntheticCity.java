@@ -0,0 +1,104 @@
+package com.dispatchsimulator;
+
+import com.commonlib.geo.GeoGrid;
+
+import java.util.Random;
+
+/**
+ * A square city around a centre point with a few demand hotspots. Idle
+ * drivers cruise in straight lines with occasional turns and bounce off the
+ * city edge; busy drivers sit still until their trip ends at the drop-off.
+ */
+class SyntheticCity {
+
+    private static final double KM_PER_DEGREE_LAT = 111.32;
+    // Share of bookings that start near a hotspot rather than anywhere in the city
+    private static final double HOTSPOT_SHARE = 0.6;
+    private static final int HOTSPOTS = 5;
+
+    private final Random random;
+    private final double minLat;
+    private final double maxLat;
+    private final double minLng;
+    private final double maxLng;
+    private final double kmPerDegreeLng;
+    private final double[][] hotspots = new double[HOTSPOTS][];
+
+    final double[] latitude;
+    final double[] longitude;
+    final double[] heading;
+
+    SyntheticCity(SimulationConfig config, Random random) {
+        this.random = random;
+        double halfLat = config.cityKm() / 2 / KM_PER_DEGREE_LAT;
+        this.kmPerDegreeLng = KM_PER_DEGREE_LAT * Math.cos(Math.toRadians(config.centerLatitude()));
+        double halfLng = config.cityKm() / 2 / kmPerDegreeLng;
+        this.minLat = config.centerLatitude() - halfLat;
+        this.maxLat = config.centerLatitude() + halfLat;
+        this.minLng = config.centerLongitude() - halfLng;
+        this.maxLng = config.centerLongitude() + halfLng;
+        for (int h = 0; h < HOTSPOTS; h++) {
+            hotspots[h] = randomPoint();
+        }
+
+        latitude = new double[config.drivers()];
+        longitude = new double[config.drivers()];
+        heading = new double[config.drivers()];
+        for (int i = 0; i < config.drivers(); i++) {
+            double[] point = randomPoint();
+            latitude[i] = point[0];
+            longitude[i] = point[1];
+            heading[i] = random.nextDouble() * 2 * Math.PI;
+        }
+    }
+
+    /**
+     * Moves one idle driver by the given distance, mostly keeping its heading.
+     */
+    void cruise(int driver, double km) {
+        heading[driver] += random.nextGaussian() * 0.3;
+        double lat = latitude[driver] + Math.cos(heading[driver]) * km / KM_PER_DEGREE_LAT;
+        double lng = longitude[driver] + Math.sin(heading[driver]) * km / kmPerDegreeLng;
+        if (lat < minLat || lat > maxLat || lng < minLng || lng > maxLng) {
+            heading[driver] += Math.PI;
+            lat = clamp(lat, minLat, maxLat);
+            lng = clamp(lng, minLng, maxLng);
+        }
+        latitude[driver] = lat;
+        longitude[driver] = lng;
+    }
+
+    double[] pickupPoint() {
+        if (random.nextDouble() < HOTSPOT_SHARE) {
+            double[] hotspot = hotspots[random.nextInt(HOTSPOTS)];
+            // Roughly one kilometre of spread around the hotspot
+            return clampPoint(hotspot[0] + random.nextGaussian() / KM_PER_DEGREE_LAT,
+                    hotspot[1] + random.nextGaussian() / kmPerDegreeLng);
+        }
+        return randomPoint();
+    }
+
+    double[] dropoffPoint(double[] pickup, double meanTripKm) {
+        double km = -Math.log(1 - random.nextDouble()) * meanTripKm;
+        double angle = random.nextDouble() * 2 * Math.PI;
+        return clampPoint(pickup[0] + Math.cos(angle) * km / KM_PER_DEGREE_LAT,
+                pickup[1] + Math.sin(angle) * km / kmPerDegreeLng);
+    }
+
+    static double distanceKm(double lat1, double lng1, double lat2, double lng2) {
+        return GeoGrid.distanceKm(lat1, lng1, lat2, lng2);
+    }
+
+    private double[] randomPoint() {
+        return new double[]{minLat + random.nextDouble() * (maxLat - minLat),
+                minLng + random.nextDouble() * (maxLng - minLng)};
+    }
+
+    private double[] clampPoint(double lat, double lng) {
+        return new double[]{clamp(lat, minLat, maxLat), clamp(lng, minLng, maxLng)};
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
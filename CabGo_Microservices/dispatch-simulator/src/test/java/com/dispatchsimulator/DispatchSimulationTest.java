@@ -0,0 +1,50 @@
+package com.dispatchsimulator;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DispatchSimulationTest {
+
+    @Test
+    void syncRun_shouldMatchBookingsWithoutDoubleAssignment() {
+        // startTrip throws if the claim path ever hands out a busy driver
+        SimulationReport report = new DispatchSimulation(small("SYNC")).run();
+
+        assertTrue(report.requested() > 0);
+        assertTrue(report.matchRate() > 0.9);
+        assertTrue(report.meanPickupKm() < 5);
+        assertTrue(report.utilization() > 0 && report.utilization() <= 1);
+        assertTrue(report.violations().isEmpty());
+    }
+
+    @Test
+    void batchRun_shouldWaitForTheWindow() {
+        SimulationReport report = new DispatchSimulation(small("BATCH")).run();
+
+        assertTrue(report.matched() > 0);
+        // Nobody is matched before their window closes, nobody waits much longer than one window when supply is ample
+        assertTrue(report.timeToMatchPercentileMs(0.5) > 0);
+        assertTrue(report.timeToMatchPercentileMs(0.99) < 1000 + 500);
+    }
+
+    @Test
+    void thresholds_shouldReportViolations() {
+        SimulationConfig config = SimulationConfig.parse(new String[]{
+                "--drivers=5", "--rate=5", "--duration=60", "--min-match-rate=0.99"});
+
+        SimulationReport report = new DispatchSimulation(config).run();
+
+        assertFalse(report.violations().isEmpty());
+    }
+
+    @Test
+    void parse_shouldRejectUnknownOptions() {
+        assertThrows(IllegalArgumentException.class, () -> SimulationConfig.parse(new String[]{"--drivres=10"}));
+    }
+
+    private static SimulationConfig small(String mode) {
+        return SimulationConfig.parse(new String[]{
+                "--drivers=300", "--rate=0.2", "--duration=300", "--mode=" + mode, "--window-ms=1000", "--seed=7"});
+    }
+}
@@ -0,0 +1,18 @@
+package com.driverservice.config;
+
+import com.commonlib.geo.CellHeatmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class HeatmapConfig {
+
+    // Available drivers per cell, plus drivers freed per cell over the last bucket-ms * buckets
+    @Bean
+    public CellHeatmap supplyHeatmap(@Value("${heatmap.cell-degrees:0.01}") double cellDegrees,
+                                     @Value("${heatmap.bucket-ms:10000}") long bucketMs,
+                                     @Value("${heatmap.buckets:90}") int buckets) {
+        return new CellHeatmap(cellDegrees, bucketMs, buckets);
+    }
+}
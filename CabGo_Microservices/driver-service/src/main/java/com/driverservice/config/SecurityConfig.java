@@ -42,12 +42,11 @@ public class SecurityConfig {
             .exceptionHandling(exception -> exception.authenticationEntryPoint(unauthorizedHandler)) // Handle unauthorized access
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS)) // Stateless session management
             .authorizeHttpRequests(auth -> auth
-                // Permit public API endpoints
+                // Permit public API endpoints; the ones returning driver coordinates need a SERVICE token
                 .requestMatchers(
                     "/api/drivers/register",
                     "/api/drivers/login",
-                    "/api/drivers/available",
-                    "/api/drivers/available/first",
+                    "/api/drivers/available/count",
                     "/api/drivers/data/**",
                     "/api/drivers/profile-by-phone",
                     "/error",
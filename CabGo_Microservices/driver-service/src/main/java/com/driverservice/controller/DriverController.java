@@ -1,16 +1,26 @@
 package com.driverservice.controller;
 
 import com.commonlib.dto.*;
+import com.commonlib.enums.VehicleClass;
+import com.commonlib.exception.DriverClaimConflictException;
 import com.commonlib.exception.DriverNotFoundException;
 import com.driverservice.entity.Driver;
+import com.driverservice.index.DriverLocationIndex;
 import com.driverservice.service.DriverService;
 import com.commonlib.utils.JwtUtil;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 @RestController
@@ -18,6 +28,11 @@ import java.util.List;
 @RequiredArgsConstructor
 public class DriverController {
 
+    // Rows fetched per keyset query while streaming /available, and the cap for /available/page
+    private static final int STREAM_PAGE_SIZE = 500;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
     private final DriverService driverService;
     private final JwtUtil jwtUtil;
 
@@ -44,8 +59,55 @@ public class DriverController {
     }
 
     @GetMapping("/available")
-    public ResponseEntity<List<Driver>> getAvailableDrivers() {
-        return ResponseEntity.ok(driverService.getAvailableDrivers());
+    @PreAuthorize("hasRole('SERVICE')")
+    public ResponseEntity<StreamingResponseBody> getAvailableDrivers() {
+        // Written page by page straight to the response, so memory stays flat however many drivers are online
+        StreamingResponseBody body = this::writeAvailableDrivers;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @GetMapping("/available/page")
+    @PreAuthorize("hasRole('SERVICE')")
+    public ResponseEntity<AvailableDriverPage> getAvailableDriversPage(@RequestParam(defaultValue = "0") Long afterId,
+                                                                       @RequestParam(defaultValue = "100") int size) {
+        if (size <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        int pageSize = Math.min(size, MAX_PAGE_SIZE);
+        List<AvailableDriverResponse> drivers = driverService.getAvailableDrivers(afterId, pageSize);
+        Long nextAfterId = drivers.size() < pageSize ? null : drivers.get(drivers.size() - 1).getDriverId();
+        return ResponseEntity.ok(new AvailableDriverPage(drivers, nextAfterId));
+    }
+
+    private void writeAvailableDrivers(OutputStream out) throws IOException {
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            json.writeStartArray();
+            Long afterId = 0L;
+            List<AvailableDriverResponse> page;
+            do {
+                page = driverService.getAvailableDrivers(afterId, STREAM_PAGE_SIZE);
+                for (AvailableDriverResponse driver : page) {
+                    json.writeStartObject();
+                    json.writeNumberField("driverId", driver.getDriverId());
+                    json.writeStringField("name", driver.getName());
+                    json.writeStringField("vehicleDetails", driver.getVehicleDetails());
+                    writeNullableNumber(json, "latitude", driver.getLatitude());
+                    writeNullableNumber(json, "longitude", driver.getLongitude());
+                    json.writeEndObject();
+                    afterId = driver.getDriverId();
+                }
+                json.flush();
+            } while (page.size() == STREAM_PAGE_SIZE);
+            json.writeEndArray();
+        }
+    }
+
+    private static void writeNullableNumber(JsonGenerator json, String field, Double value) throws IOException {
+        if (value == null) {
+            json.writeNullField(field);
+        } else {
+            json.writeNumberField(field, value);
+        }
     }
 
     @PutMapping("/status")
@@ -93,20 +155,121 @@ public class DriverController {
     }
 
     @GetMapping("/available/first")
+    @PreAuthorize("hasRole('SERVICE')")
     public ResponseEntity<Driver> getFirstAvailableDriver() {
         try {
-            Driver driver = driverService.getAvailableDrivers()
-                    .stream()
-                    .findFirst()
-                    .orElseThrow(() -> new DriverNotFoundException("No drivers available"));
-            return ResponseEntity.ok(driver);
+            return ResponseEntity.ok(driverService.getFirstAvailableDriver());
+        } catch (DriverNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GetMapping("/available/count")
+    public ResponseEntity<Integer> countAvailableDrivers(@RequestParam(required = false) VehicleClass vehicleClass,
+                                                         @RequestParam(required = false) Double lat,
+                                                         @RequestParam(required = false) Double lng) {
+        // Counted from the availability bitmaps, lat/lng narrows it to the zone around that point
+        return ResponseEntity.ok(driverService.countAvailableDrivers(vehicleClass, lat, lng));
+    }
+
+    @GetMapping("/heatmap")
+    public ResponseEntity<HeatmapSnapshot> getSupplyHeatmap(@RequestParam(defaultValue = "60000") long windowMs) {
+        // In-memory counters only, cheap enough to poll every second
+        return ResponseEntity.ok(driverService.getSupplyHeatmap(windowMs));
+    }
+
+    @GetMapping("/available/nearest")
+    @PreAuthorize("hasRole('SERVICE')")
+    public ResponseEntity<List<NearbyDriverResponse>> getNearestAvailableDrivers(@RequestParam double lat,
+                                                                                @RequestParam double lng,
+                                                                                @RequestParam(defaultValue = "5") int k) {
+        if (lat < -90 || lat > 90 || lng < -180 || lng > 180 || k <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(driverService.getNearestAvailableDrivers(lat, lng, Math.min(k, 100)));
+    }
+
+    @PutMapping("/{id}/location")
+    public ResponseEntity<ApiResponse> updateLocation(@PathVariable Long id,
+                                                      @RequestParam double lat,
+                                                      @RequestParam double lng) {
+        try {
+            driverService.updateLocationById(id, lat, lng);
+            return ResponseEntity.ok(new ApiResponse(true, "Driver location updated", null));
+        } catch (DriverNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ApiResponse(false, e.getMessage(), null));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, e.getMessage(), null));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ApiResponse(false, "Location update failed", null));
+        }
+    }
+
+    @PostMapping("/claim")
+    @PreAuthorize("hasRole('SERVICE')")
+    public ResponseEntity<DriverResponse> claimDriver(@RequestParam(required = false) Double lat,
+                                                      @RequestParam(required = false) Double lng) {
+        try {
+            Long driverId = driverService.claimDriver(lat, lng);
+            return ResponseEntity.ok(claimedResponse(driverId));
         } catch (DriverNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (DriverClaimConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @PutMapping("/{id}/claim")
+    @PreAuthorize("hasRole('SERVICE')")
+    public ResponseEntity<DriverResponse> claimDriverById(@PathVariable Long id) {
+        try {
+            if (!driverService.claimDriverById(id)) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            }
+            return ResponseEntity.ok(claimedResponse(id));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    private DriverResponse claimedResponse(Long driverId) {
+        DriverResponse response = new DriverResponse();
+        response.setDriverId(driverId);
+        response.setAvailable(false);
+        DriverLocationIndex.DriverPosition position = driverService.getLivePosition(driverId);
+        if (position != null) {
+            response.setLatitude(position.latitude());
+            response.setLongitude(position.longitude());
+        }
+        return response;
+    }
+
+    @PostMapping("/location/batch")
+    @PreAuthorize("hasRole('DRIVER') or hasRole('SERVICE')")
+    public ResponseEntity<ApiResponse> ingestLocations(@RequestHeader("Authorization") String token,
+                                                       @RequestBody List<DriverLocationPing> pings) {
+        String jwtToken = token.startsWith("Bearer ") ? token.substring(7) : token;
+        if (!"SERVICE".equals(jwtUtil.getClaimFromToken(jwtToken, "role"))) {
+            // A driver may only report their own position, services may relay anyone's
+            Long callerId = driverService.getDriverByPhone(jwtUtil.extractUsername(jwtToken)).getDriverId();
+            if (pings.stream().anyMatch(ping -> ping != null && !callerId.equals(ping.getDriverId()))) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(new ApiResponse(false, "Pings must belong to the calling driver", null));
+            }
+        }
+        int accepted = driverService.ingestLocations(pings);
+        // 202: positions are applied asynchronously; rejected pings were dropped because the buffer was full
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(new ApiResponse(accepted == pings.size(),
+                        "Accepted " + accepted + " of " + pings.size() + " location pings", accepted));
+    }
+
     @GetMapping("/data/{driverId}")
     public ResponseEntity<DriverResponse> getDriverById(@PathVariable Long driverId) {
         try {
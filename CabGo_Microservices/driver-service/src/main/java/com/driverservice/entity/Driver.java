@@ -1,6 +1,7 @@
 package com.driverservice.entity;
 
 import com.commonlib.enums.Role;
+import com.commonlib.enums.VehicleClass;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -9,6 +10,8 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -17,6 +20,7 @@ import lombok.Setter;
 
 
 @Entity
+@Table(indexes = @Index(name = "idx_driver_available_id", columnList = "available, driver_id"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -36,10 +40,18 @@ public class Driver {
     @Column(unique = true)
     private String licenseNumber;
     private String vehicleDetails;
+
+    @Enumerated(EnumType.STRING)
+    private VehicleClass vehicleClass;
     private String passwordHash;
 
+    // Written behind from DriverAvailabilitySet, which is the source of truth while the service runs
     private boolean available;
 
+    // Last reported position, null until the driver shares a location
+    private Double latitude;
+    private Double longitude;
+
     @Enumerated(EnumType.STRING)
     private Role role;
 }
@@ -0,0 +1,204 @@
+package com.driverservice.index;
+
+import com.commonlib.enums.VehicleClass;
+import com.commonlib.geo.GeoGrid;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Authoritative in-memory availability of every driver, kept as bitmaps keyed
+ * by driverId.
+ *
+ * Besides the available set there is one bitmap per vehicle class and per
+ * coarse zone, so questions like "free SUVs in this zone" are a word-wise AND
+ * instead of a query. Going offline marks the driver dirty and
+ * {@link DriverAvailabilityWriter} writes those drivers back to MySQL in
+ * batches; going online is written through by the caller. Claims are different: the bitmap CAS only filters out drivers
+ * already taken on this instance, the conditional UPDATE in the claim flow
+ * decides the winner, so claims neither mark the driver dirty nor depend on
+ * a flush. On startup {@link DriverIndexLoader} rebuilds all bitmaps from the
+ * driver table.
+ */
+@Component
+public class DriverAvailabilitySet {
+
+    private final int initialCapacity;
+    private final GeoGrid zoneGrid;
+
+    private final DriverBitSet known;
+    private final DriverBitSet available;
+    private final DriverBitSet dirty;
+    private final Map<VehicleClass, DriverBitSet> byVehicleClass = new EnumMap<>(VehicleClass.class);
+    private final ConcurrentHashMap<Long, DriverBitSet> byZone = new ConcurrentHashMap<>();
+
+    public DriverAvailabilitySet(@Value("${driver.availability.initial-capacity:65536}") int initialCapacity,
+                                 @Value("${driver.availability.zone-degrees:0.05}") double zoneDegrees) {
+        this.initialCapacity = initialCapacity;
+        this.zoneGrid = new GeoGrid(zoneDegrees);
+        this.known = new DriverBitSet(initialCapacity);
+        this.available = new DriverBitSet(initialCapacity);
+        this.dirty = new DriverBitSet(initialCapacity);
+        for (VehicleClass vehicleClass : VehicleClass.values()) {
+            byVehicleClass.put(vehicleClass, new DriverBitSet(initialCapacity));
+        }
+    }
+
+    /**
+     * Adds a driver as it is stored in the database. Used by the startup
+     * rebuild and after registration, so nothing is marked dirty. This is
+     * the only way an id becomes known; every other bitmap only takes bits
+     * for known ids, so none of them grows past the highest id loaded.
+     */
+    public void load(long driverId, VehicleClass vehicleClass, boolean isAvailable) {
+        known.set(driverId);
+        if (vehicleClass != null) {
+            byVehicleClass.get(vehicleClass).set(driverId);
+        }
+        if (isAvailable) {
+            available.set(driverId);
+        } else {
+            available.clear(driverId);
+        }
+    }
+
+    public boolean isKnown(long driverId) {
+        return known.get(driverId);
+    }
+
+    public boolean isAvailable(long driverId) {
+        return available.get(driverId);
+    }
+
+    /**
+     * O(1) toggle. Returns true if the driver's availability actually changed,
+     * in which case it is queued for the next write-behind flush.
+     */
+    public boolean setAvailable(long driverId, boolean isAvailable) {
+        if (!known.get(driverId)) {
+            return false;
+        }
+        boolean changed = isAvailable ? available.set(driverId) : available.clear(driverId);
+        if (changed) {
+            dirty.set(driverId);
+        }
+        return changed;
+    }
+
+    /**
+     * Atomically moves an available driver to unavailable. Exactly one of
+     * several racing callers on this instance gets true. Not marked dirty,
+     * the caller persists the claim itself.
+     */
+    public boolean tryClaim(long driverId) {
+        return available.clear(driverId);
+    }
+
+    /**
+     * Gives back a bit taken by {@link #tryClaim} whose conditional UPDATE
+     * failed outright. Not marked dirty either, the row was never changed.
+     */
+    public boolean releaseClaim(long driverId) {
+        return known.get(driverId) && available.set(driverId);
+    }
+
+    public int availableCount() {
+        return available.cardinality();
+    }
+
+    public void moveZone(long driverId, Double oldLatitude, Double oldLongitude, double latitude, double longitude) {
+        if (!known.get(driverId)) {
+            return;
+        }
+        long zone = zoneGrid.cellOf(latitude, longitude);
+        if (oldLatitude != null && oldLongitude != null) {
+            long oldZone = zoneGrid.cellOf(oldLatitude, oldLongitude);
+            if (oldZone == zone) {
+                return;
+            }
+            DriverBitSet old = byZone.get(oldZone);
+            if (old != null) {
+                old.clear(driverId);
+            }
+        }
+        byZone.computeIfAbsent(zone, z -> new DriverBitSet(initialCapacity)).set(driverId);
+    }
+
+    /**
+     * Number of available drivers matching the optional vehicle class and
+     * the zone around the optional point.
+     */
+    public int countAvailable(VehicleClass vehicleClass, Double latitude, Double longitude) {
+        return DriverBitSet.cardinality(matchAvailable(vehicleClass, latitude, longitude));
+    }
+
+    /**
+     * Up to limit available driver ids matching the optional filters, lowest id first.
+     */
+    public List<Long> findAvailable(VehicleClass vehicleClass, Double latitude, Double longitude, int limit) {
+        List<Long> result = new ArrayList<>(Math.min(limit, 1024));
+        DriverBitSet.forEach(matchAvailable(vehicleClass, latitude, longitude), limit, result::add);
+        return result;
+    }
+
+    /**
+     * Up to limit available driver ids above afterId, lowest id first; the
+     * keyset page behind the available-driver listing.
+     */
+    public List<Long> findAvailableAfter(long afterId, int limit) {
+        long[] bits = available.snapshot();
+        long from = Math.max(afterId + 1, 0);
+        int word = (int) Math.min(from >>> 6, bits.length);
+        Arrays.fill(bits, 0, word, 0L);
+        if (word < bits.length) {
+            bits[word] &= -1L << (from & 63);
+        }
+        List<Long> result = new ArrayList<>(Math.min(limit, 1024));
+        DriverBitSet.forEach(bits, limit, result::add);
+        return result;
+    }
+
+    private long[] matchAvailable(VehicleClass vehicleClass, Double latitude, Double longitude) {
+        List<DriverBitSet> filters = new ArrayList<>(2);
+        if (vehicleClass != null) {
+            filters.add(byVehicleClass.get(vehicleClass));
+        }
+        if (latitude != null && longitude != null) {
+            DriverBitSet zone = byZone.get(zoneGrid.cellOf(latitude, longitude));
+            if (zone == null) {
+                return new long[0];
+            }
+            filters.add(zone);
+        }
+        return DriverBitSet.and(available, filters.toArray(new DriverBitSet[0]));
+    }
+
+    /**
+     * Takes the ids that changed since the last call and clears their dirty
+     * bits. The caller reads the current value of each one, so a toggle that
+     * lands after this call is simply picked up by the next flush.
+     */
+    List<Long> drainDirty(int limit) {
+        List<Long> ids = new ArrayList<>();
+        DriverBitSet.forEach(dirty.snapshot(), limit, id -> {
+            if (dirty.clear(id)) {
+                ids.add(id);
+            }
+        });
+        return ids;
+    }
+
+    void markDirty(long driverId) {
+        dirty.set(driverId);
+    }
+
+    int dirtyCount() {
+        return dirty.cardinality();
+    }
+}
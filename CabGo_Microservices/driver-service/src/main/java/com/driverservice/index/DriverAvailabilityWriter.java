@@ -0,0 +1,82 @@
+package com.driverservice.index;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Write-behind for {@link DriverAvailabilitySet}: persists drivers that went
+ * offline since the last run, one JDBC batch per run.
+ *
+ * Only false is ever written. Releases are written through before the bit
+ * is set, and claims are decided by the conditional UPDATE; writing true from
+ * here could overwrite a claim that committed after the bitmap was read, or
+ * one made on another instance this one never saw.
+ */
+@Component
+public class DriverAvailabilityWriter {
+
+    private static final String MARK_OFFLINE_SQL = "update driver set available = false where driver_id = ?";
+
+    private final DriverAvailabilitySet availabilitySet;
+    private final JdbcTemplate jdbcTemplate;
+    private final int flushBatchSize;
+
+    private final Counter persisted;
+    private final Counter failed;
+
+    public DriverAvailabilityWriter(DriverAvailabilitySet availabilitySet,
+                                    JdbcTemplate jdbcTemplate,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${driver.availability.flush-batch-size:1000}") int flushBatchSize) {
+        this.availabilitySet = availabilitySet;
+        this.jdbcTemplate = jdbcTemplate;
+        this.flushBatchSize = flushBatchSize;
+        this.persisted = meterRegistry.counter("driver.availability.persisted");
+        this.failed = meterRegistry.counter("driver.availability.flush.failures");
+        Gauge.builder("driver.availability.available", availabilitySet, DriverAvailabilitySet::availableCount)
+                .register(meterRegistry);
+        Gauge.builder("driver.availability.pending.writes", availabilitySet, DriverAvailabilitySet::dirtyCount)
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${driver.availability.flush-interval-ms:1000}")
+    public void flush() {
+        List<Long> ids;
+        while (!(ids = availabilitySet.drainDirty(flushBatchSize)).isEmpty()) {
+            List<Object[]> batch = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                // Back online since the toggle: that release already reached the row
+                if (!availabilitySet.isAvailable(id)) {
+                    batch.add(new Object[]{id});
+                }
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            try {
+                jdbcTemplate.batchUpdate(MARK_OFFLINE_SQL, batch);
+                persisted.increment(batch.size());
+            } catch (RuntimeException e) {
+                // Mark them again, the next run retries with whatever the value is by then
+                ids.forEach(availabilitySet::markDirty);
+                failed.increment();
+                System.err.println("Driver availability flush failed: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
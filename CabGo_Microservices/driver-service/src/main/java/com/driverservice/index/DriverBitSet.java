@@ -0,0 +1,189 @@
+package com.driverservice.index;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
+
+/**
+ * Thread-safe bitmap of driver ids, one bit per id, no boxed keys.
+ *
+ * Bits are flipped with a CAS on the containing word, so set/clear are O(1)
+ * and report whether they changed anything. Cardinality is kept as a counter
+ * next to the words. Driver ids come from an identity column and stay dense,
+ * which is what makes a plain bitmap cheaper than a hash set here. The array
+ * only grows, under the write lock; all bit operations share the read lock.
+ */
+public class DriverBitSet {
+
+    private final ReentrantReadWriteLock resizeLock = new ReentrantReadWriteLock();
+    private final AtomicInteger cardinality = new AtomicInteger();
+    private volatile AtomicLongArray words;
+
+    public DriverBitSet(int initialCapacity) {
+        this.words = new AtomicLongArray(wordCount(Math.max(initialCapacity, 64)));
+    }
+
+    /**
+     * Sets the bit for the driver. Returns true if it was clear before.
+     */
+    public boolean set(long driverId) {
+        int index = checkedIndex(driverId);
+        ensureCapacity(index);
+        resizeLock.readLock().lock();
+        try {
+            AtomicLongArray w = words;
+            int word = index >>> 6;
+            long mask = 1L << index;
+            long current;
+            do {
+                current = w.get(word);
+                if ((current & mask) != 0) {
+                    return false;
+                }
+            } while (!w.compareAndSet(word, current, current | mask));
+            cardinality.incrementAndGet();
+            return true;
+        } finally {
+            resizeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Clears the bit for the driver. Returns true if it was set before, so
+     * exactly one of several racing callers wins.
+     */
+    public boolean clear(long driverId) {
+        int index = checkedIndex(driverId);
+        resizeLock.readLock().lock();
+        try {
+            AtomicLongArray w = words;
+            int word = index >>> 6;
+            if (word >= w.length()) {
+                return false;
+            }
+            long mask = 1L << index;
+            long current;
+            do {
+                current = w.get(word);
+                if ((current & mask) == 0) {
+                    return false;
+                }
+            } while (!w.compareAndSet(word, current, current & ~mask));
+            cardinality.decrementAndGet();
+            return true;
+        } finally {
+            resizeLock.readLock().unlock();
+        }
+    }
+
+    public boolean get(long driverId) {
+        if (driverId < 0 || driverId > Integer.MAX_VALUE) {
+            return false;
+        }
+        int index = (int) driverId;
+        AtomicLongArray w = words;
+        int word = index >>> 6;
+        return word < w.length() && (w.get(word) & (1L << index)) != 0;
+    }
+
+    public int cardinality() {
+        return cardinality.get();
+    }
+
+    /**
+     * Copy of the words at this moment, for intersections and iteration that
+     * should not hold up writers.
+     */
+    public long[] snapshot() {
+        resizeLock.readLock().lock();
+        try {
+            AtomicLongArray w = words;
+            long[] copy = new long[w.length()];
+            for (int i = 0; i < copy.length; i++) {
+                copy[i] = w.get(i);
+            }
+            return copy;
+        } finally {
+            resizeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Word-wise AND of the given sets. The result is as long as the shortest input.
+     */
+    public static long[] and(DriverBitSet first, DriverBitSet... others) {
+        long[] result = first.snapshot();
+        int length = result.length;
+        for (DriverBitSet other : others) {
+            AtomicLongArray w = other.words;
+            length = Math.min(length, w.length());
+            for (int i = 0; i < length; i++) {
+                result[i] &= w.get(i);
+            }
+        }
+        if (length < result.length) {
+            long[] trimmed = new long[length];
+            System.arraycopy(result, 0, trimmed, 0, length);
+            return trimmed;
+        }
+        return result;
+    }
+
+    public static int cardinality(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Calls the consumer for every set bit in ascending id order until it has
+     * been called limit times.
+     */
+    public static void forEach(long[] bits, int limit, LongConsumer consumer) {
+        int seen = 0;
+        for (int i = 0; i < bits.length && seen < limit; i++) {
+            long word = bits[i];
+            while (word != 0 && seen < limit) {
+                int bit = Long.numberOfTrailingZeros(word);
+                consumer.accept(((long) i << 6) + bit);
+                word &= word - 1;
+                seen++;
+            }
+        }
+    }
+
+    private void ensureCapacity(int index) {
+        int needed = (index >>> 6) + 1;
+        if (needed <= words.length()) {
+            return;
+        }
+        resizeLock.writeLock().lock();
+        try {
+            AtomicLongArray old = words;
+            if (needed <= old.length()) {
+                return;
+            }
+            AtomicLongArray grown = new AtomicLongArray(Math.max(needed, old.length() * 2));
+            for (int i = 0; i < old.length(); i++) {
+                grown.set(i, old.get(i));
+            }
+            words = grown;
+        } finally {
+            resizeLock.writeLock().unlock();
+        }
+    }
+
+    private static int checkedIndex(long driverId) {
+        if (driverId < 0 || driverId > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Driver id out of bitmap range: " + driverId);
+        }
+        return (int) driverId;
+    }
+
+    private static int wordCount(int bits) {
+        return (bits + 63) >>> 6;
+    }
+}
@@ -0,0 +1,51 @@
+package com.driverservice.index;
+
+import com.commonlib.enums.VehicleClass;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rebuilds the availability bitmaps and the location index from the driver
+ * table once on startup. After this point both are kept current by the
+ * service methods, so queries never have to go back to the database.
+ *
+ * Runs while the context is being built, before the web server starts, so no
+ * request ever sees an empty index and turns a real driver into a 404. It
+ * waits for the entity manager factory, which creates or updates the table.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class DriverIndexLoader {
+
+    // Only the columns the in-memory structures need, read row by row without building entities
+    private static final String LOAD_SQL =
+            "select driver_id, vehicle_class, available, latitude, longitude from driver";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DriverAvailabilitySet driverAvailabilitySet;
+    private final DriverLocationIndex driverLocationIndex;
+
+    @PostConstruct
+    public void loadDrivers() {
+        jdbcTemplate.query(LOAD_SQL, rs -> {
+            long driverId = rs.getLong("driver_id");
+            String vehicleClass = rs.getString("vehicle_class");
+            driverAvailabilitySet.load(driverId,
+                    vehicleClass == null ? null : VehicleClass.valueOf(vehicleClass),
+                    rs.getBoolean("available"));
+            double latitude = rs.getDouble("latitude");
+            if (!rs.wasNull()) {
+                double longitude = rs.getDouble("longitude");
+                if (!rs.wasNull()) {
+                    driverLocationIndex.updatePosition(driverId, latitude, longitude);
+                }
+            }
+        });
+        System.out.println("Driver availability rebuilt with " + driverAvailabilitySet.availableCount()
+                + " available drivers");
+    }
+}
@@ -0,0 +1,225 @@
+package com.driverservice.index;
+
+import com.commonlib.dto.NearbyDriverResponse;
+import com.commonlib.geo.CellHeatmap;
+import com.commonlib.geo.GeoGrid;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory grid index of driver positions. Available drivers are bucketed by
+ * grid cell so a nearest-driver query only looks at the cells around the
+ * pickup point instead of loading every available driver from MySQL.
+ *
+ * Availability itself lives in {@link DriverAvailabilitySet}; the index only
+ * mirrors it into the per-cell buckets and the supply heatmap. All mutations for one driver go
+ * through positions.compute(...) so moves and availability toggles for the
+ * same driver never interleave.
+ */
+@Component
+public class DriverLocationIndex {
+
+    private final DriverAvailabilitySet availabilitySet;
+    private final CellHeatmap supplyHeatmap;
+    private final GeoGrid grid;
+    private final int maxRings;
+
+    private final ConcurrentHashMap<Long, DriverPosition> positions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<Long>> availableByCell = new ConcurrentHashMap<>();
+
+    public DriverLocationIndex(DriverAvailabilitySet availabilitySet,
+                               CellHeatmap supplyHeatmap,
+                               @Value("${driver.index.cell-degrees:0.01}") double cellDegrees,
+                               @Value("${driver.index.max-rings:50}") int maxRings) {
+        this.availabilitySet = availabilitySet;
+        this.supplyHeatmap = supplyHeatmap;
+        this.grid = new GeoGrid(cellDegrees);
+        this.maxRings = maxRings;
+    }
+
+    public void updatePosition(long driverId, double latitude, double longitude) {
+        if (!availabilitySet.isKnown(driverId)) {
+            // Positions are only kept for drivers in the driver table
+            return;
+        }
+        long cell = grid.cellOf(latitude, longitude);
+        positions.compute(driverId, (id, old) -> {
+            if (availabilitySet.isAvailable(id)) {
+                if (old == null || old.cell() != cell) {
+                    if (old != null) {
+                        removeFromCell(old.cell(), id);
+                    }
+                    addToCell(cell, id);
+                }
+                long heatCell = supplyHeatmap.cellOf(latitude, longitude);
+                if (old == null) {
+                    supplyHeatmap.increment(heatCell);
+                } else {
+                    supplyHeatmap.move(supplyHeatmap.cellOf(old.latitude(), old.longitude()), heatCell);
+                }
+            }
+            availabilitySet.moveZone(id, old == null ? null : old.latitude(), old == null ? null : old.longitude(),
+                    latitude, longitude);
+            return new DriverPosition(latitude, longitude, cell);
+        });
+    }
+
+    public void setAvailable(long driverId, boolean isAvailable) {
+        positions.compute(driverId, (id, pos) -> {
+            boolean changed = availabilitySet.setAvailable(id, isAvailable);
+            if (pos == null) {
+                return null;
+            }
+            long heatCell = supplyHeatmap.cellOf(pos.latitude(), pos.longitude());
+            if (isAvailable) {
+                addToCell(pos.cell(), id);
+                if (changed) {
+                    supplyHeatmap.increment(heatCell);
+                    supplyHeatmap.recordEvent(heatCell);
+                }
+            } else {
+                removeFromCell(pos.cell(), id);
+                if (changed) {
+                    supplyHeatmap.decrement(heatCell);
+                }
+            }
+            return pos;
+        });
+    }
+
+    public void remove(long driverId) {
+        setAvailable(driverId, false);
+        positions.remove(driverId);
+    }
+
+    /**
+     * Atomically moves an available driver to unavailable. Returns true for exactly
+     * one caller per availability period, which makes it safe to use as the claim step.
+     */
+    public boolean tryClaim(long driverId) {
+        boolean[] claimed = new boolean[1];
+        positions.compute(driverId, (id, pos) -> {
+            claimed[0] = availabilitySet.tryClaim(id);
+            if (claimed[0] && pos != null) {
+                removeFromCell(pos.cell(), id);
+                supplyHeatmap.decrement(supplyHeatmap.cellOf(pos.latitude(), pos.longitude()));
+            }
+            return pos;
+        });
+        return claimed[0];
+    }
+
+    // Undoes tryClaim for a claim the database rejected
+    public void releaseClaim(long driverId) {
+        positions.compute(driverId, (id, pos) -> {
+            if (availabilitySet.releaseClaim(id) && pos != null) {
+                addToCell(pos.cell(), id);
+                supplyHeatmap.increment(supplyHeatmap.cellOf(pos.latitude(), pos.longitude()));
+            }
+            return pos;
+        });
+    }
+
+    // Available drivers regardless of position, for bookings that carry no coordinates
+    public List<Long> anyAvailable(int limit) {
+        return availabilitySet.findAvailable(null, null, null, limit);
+    }
+
+    public boolean isKnown(long driverId) {
+        return availabilitySet.isKnown(driverId);
+    }
+
+    public boolean isAvailable(long driverId) {
+        return availabilitySet.isAvailable(driverId);
+    }
+
+    public DriverPosition getPosition(long driverId) {
+        return positions.get(driverId);
+    }
+
+    public int availableCount() {
+        return availabilitySet.availableCount();
+    }
+
+    /**
+     * Returns up to k available drivers closest to the given point, nearest first.
+     * Rings of cells are scanned outwards and the scan stops as soon as no unvisited
+     * cell can contain a driver closer than the current k-th best.
+     */
+    public List<NearbyDriverResponse> nearest(double latitude, double longitude, int k) {
+        if (k <= 0) {
+            return Collections.emptyList();
+        }
+        int centerRow = grid.rowOf(latitude);
+        int centerCol = grid.colOf(longitude);
+        double ringKm = grid.minCellSideKm(latitude);
+
+        // Max-heap on distance so the worst of the current best k sits on top
+        PriorityQueue<NearbyDriverResponse> best =
+                new PriorityQueue<>(k + 1, Comparator.comparingDouble(NearbyDriverResponse::getDistanceKm).reversed());
+
+        for (int ring = 0; ring <= maxRings; ring++) {
+            if (best.size() >= k && best.peek().getDistanceKm() <= (ring - 1) * ringKm) {
+                break;
+            }
+            for (int row = centerRow - ring; row <= centerRow + ring; row++) {
+                boolean edgeRow = row == centerRow - ring || row == centerRow + ring;
+                int step = edgeRow ? 1 : 2 * ring;
+                for (int col = centerCol - ring; col <= centerCol + ring; col += Math.max(step, 1)) {
+                    collect(GeoGrid.pack(row, col), latitude, longitude, k, best);
+                }
+            }
+        }
+
+        List<NearbyDriverResponse> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(NearbyDriverResponse::getDistanceKm));
+        return result;
+    }
+
+    private void collect(long cell, double latitude, double longitude, int k,
+                         PriorityQueue<NearbyDriverResponse> best) {
+        Set<Long> drivers = availableByCell.get(cell);
+        if (drivers == null) {
+            return;
+        }
+        for (Long driverId : drivers) {
+            DriverPosition pos = positions.get(driverId);
+            if (pos == null) {
+                continue;
+            }
+            double distance = GeoGrid.distanceKm(latitude, longitude, pos.latitude(), pos.longitude());
+            if (best.size() < k) {
+                best.add(new NearbyDriverResponse(driverId, pos.latitude(), pos.longitude(), distance));
+            } else if (distance < best.peek().getDistanceKm()) {
+                best.poll();
+                best.add(new NearbyDriverResponse(driverId, pos.latitude(), pos.longitude(), distance));
+            }
+        }
+    }
+
+    private void addToCell(long cell, long driverId) {
+        availableByCell.compute(cell, (c, drivers) -> {
+            Set<Long> set = drivers != null ? drivers : ConcurrentHashMap.newKeySet();
+            set.add(driverId);
+            return set;
+        });
+    }
+
+    private void removeFromCell(long cell, long driverId) {
+        availableByCell.computeIfPresent(cell, (c, drivers) -> {
+            drivers.remove(driverId);
+            return drivers.isEmpty() ? null : drivers;
+        });
+    }
+
+    public record DriverPosition(double latitude, double longitude, long cell) {
+    }
+}
@@ -0,0 +1,271 @@
+package com.driverservice.location;
+
+import com.commonlib.dto.DriverLocationPing;
+import com.driverservice.index.DriverLocationIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingest path for driver location pings.
+ *
+ * Request threads only offer pings into a bounded ring buffer and never wait.
+ * Pings for unknown drivers or with impossible coordinates are dropped before
+ * they reach the buffer, and device timestamps ahead of the server clock are
+ * pulled back to it, so one bad ping cannot pin a driver in place.
+ * A single applier thread drains the buffer, keeps the newest ping per driver
+ * and moves the index once per driver. Positions that changed are remembered
+ * and written to MySQL in one JDBC batch on a fixed interval, so the database
+ * sees one UPDATE per driver per flush instead of one save per ping.
+ */
+@Component
+public class DriverLocationPipeline {
+
+    private static final String UPDATE_LOCATION_SQL =
+            "update driver set latitude = ?, longitude = ? where driver_id = ?";
+    private static final int DRAIN_CHUNK = 4096;
+
+    private final DriverLocationIndex driverLocationIndex;
+    private final JdbcTemplate jdbcTemplate;
+    private final int flushBatchSize;
+
+    private final ArrayBlockingQueue<DriverLocationPing> ring;
+    // Newest applied ping timestamp per driver, only touched by the applier thread
+    private final Map<Long, Long> lastApplied = new HashMap<>();
+    // Latest position per driver waiting to be written, together with when it was received
+    private final ConcurrentHashMap<Long, PendingWrite> dirty = new ConcurrentHashMap<>();
+
+    private final Counter received;
+    private final Counter dropped;
+    private final Counter rejected;
+    private final Counter applied;
+    private final Counter coalesced;
+    private final Counter persisted;
+    private final Timer flushDuration;
+    private final Timer flushLag;
+
+    private volatile boolean running;
+    private Thread applier;
+
+    public DriverLocationPipeline(DriverLocationIndex driverLocationIndex,
+                                  JdbcTemplate jdbcTemplate,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${driver.location.buffer-size:65536}") int bufferSize,
+                                  @Value("${driver.location.flush-batch-size:1000}") int flushBatchSize) {
+        this.driverLocationIndex = driverLocationIndex;
+        this.jdbcTemplate = jdbcTemplate;
+        this.flushBatchSize = flushBatchSize;
+        this.ring = new ArrayBlockingQueue<>(bufferSize);
+
+        this.received = meterRegistry.counter("driver.location.pings.received");
+        this.dropped = meterRegistry.counter("driver.location.pings.dropped");
+        this.rejected = meterRegistry.counter("driver.location.pings.rejected");
+        this.applied = meterRegistry.counter("driver.location.pings.applied");
+        this.coalesced = meterRegistry.counter("driver.location.pings.coalesced");
+        this.persisted = meterRegistry.counter("driver.location.positions.persisted");
+        this.flushDuration = meterRegistry.timer("driver.location.flush.duration");
+        this.flushLag = Timer.builder("driver.location.flush.lag")
+                .description("Time from receiving a position to writing it to MySQL")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("driver.location.buffer.size", ring, ArrayBlockingQueue::size).register(meterRegistry);
+        Gauge.builder("driver.location.pending.writes", dirty, Map::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        applier = new Thread(this::applyLoop, "driver-location-applier");
+        applier.setDaemon(true);
+        applier.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (applier != null) {
+            // The applier drains the buffer itself on its way out
+            applier.interrupt();
+            try {
+                applier.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (applier.isAlive()) {
+                // Its state is not safe to touch from here, so only what it applied so far gets written
+                System.err.println("Driver location applier did not stop in time, buffered pings are dropped");
+            }
+        }
+        flush();
+    }
+
+    public static boolean isValidPosition(double latitude, double longitude) {
+        // NaN fails every comparison, so it is rejected too
+        return latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180;
+    }
+
+    /**
+     * Offers pings to the ring buffer without blocking. Returns how many were
+     * accepted; the rest were rejected as invalid or dropped because the
+     * buffer was full.
+     */
+    public int submit(List<DriverLocationPing> pings) {
+        int accepted = 0;
+        long now = System.currentTimeMillis();
+        for (DriverLocationPing ping : pings) {
+            if (ping == null || ping.getDriverId() == null) {
+                continue;
+            }
+            received.increment();
+            if (!driverLocationIndex.isKnown(ping.getDriverId())
+                    || !isValidPosition(ping.getLatitude(), ping.getLongitude())) {
+                rejected.increment();
+                continue;
+            }
+            if (ping.getTimestamp() > now) {
+                ping.setTimestamp(now);
+            }
+            if (ring.offer(ping)) {
+                accepted++;
+            } else {
+                dropped.increment();
+            }
+        }
+        return accepted;
+    }
+
+    private void applyLoop() {
+        while (running) {
+            try {
+                DriverLocationPing first = ring.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    apply(first);
+                    applyPending();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                System.err.println("Driver location applier error: " + e.getMessage());
+            }
+        }
+        // Stopping: apply what is left here, lastApplied is only ever touched by this thread
+        try {
+            applyPending();
+        } catch (RuntimeException e) {
+            System.err.println("Driver location applier error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drains whatever is in the buffer, keeps only the newest ping per driver
+     * and applies it. Returns the number of drivers that moved.
+     */
+    int applyPending() {
+        List<DriverLocationPing> chunk = new ArrayList<>(DRAIN_CHUNK);
+        int moved = 0;
+        while (ring.drainTo(chunk, DRAIN_CHUNK) > 0) {
+            Map<Long, DriverLocationPing> latest = new HashMap<>();
+            for (DriverLocationPing ping : chunk) {
+                DriverLocationPing previous = latest.putIfAbsent(ping.getDriverId(), ping);
+                if (previous != null) {
+                    coalesced.increment();
+                    if (ping.getTimestamp() >= previous.getTimestamp()) {
+                        latest.put(ping.getDriverId(), ping);
+                    }
+                }
+            }
+            for (DriverLocationPing ping : latest.values()) {
+                if (apply(ping)) {
+                    moved++;
+                }
+            }
+            chunk.clear();
+        }
+        return moved;
+    }
+
+    private boolean apply(DriverLocationPing ping) {
+        Long last = lastApplied.get(ping.getDriverId());
+        if (last != null && last > ping.getTimestamp()) {
+            // Out-of-order ping, a newer position was already applied
+            coalesced.increment();
+            return false;
+        }
+        lastApplied.put(ping.getDriverId(), ping.getTimestamp());
+        driverLocationIndex.updatePosition(ping.getDriverId(), ping.getLatitude(), ping.getLongitude());
+        // Keep the first receive time so flush lag measures how long the row has been stale
+        dirty.merge(ping.getDriverId(),
+                new PendingWrite(ping.getLatitude(), ping.getLongitude(), System.nanoTime()),
+                (older, newer) -> new PendingWrite(newer.latitude(), newer.longitude(), older.receivedAtNanos()));
+        applied.increment();
+        return true;
+    }
+
+    /**
+     * Writes the latest position of every driver that moved since the last flush
+     * as JDBC batches. Runs on the scheduler thread, never on a request thread.
+     */
+    @Scheduled(fixedDelayString = "${driver.location.flush-interval-ms:2000}")
+    public void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        flushDuration.record(() -> {
+            Map<Long, PendingWrite> batch = new LinkedHashMap<>();
+            long oldest = Long.MAX_VALUE;
+            for (Long driverId : dirty.keySet()) {
+                PendingWrite write = dirty.remove(driverId);
+                if (write == null) {
+                    continue;
+                }
+                oldest = Math.min(oldest, write.receivedAtNanos());
+                batch.put(driverId, write);
+                if (batch.size() >= flushBatchSize) {
+                    writeBatch(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+            }
+            if (oldest != Long.MAX_VALUE) {
+                flushLag.record(System.nanoTime() - oldest, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+
+    private void writeBatch(Map<Long, PendingWrite> batch) {
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        batch.forEach((driverId, write) -> rows.add(new Object[]{write.latitude(), write.longitude(), driverId}));
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_LOCATION_SQL, rows);
+            persisted.increment(rows.size());
+        } catch (RuntimeException e) {
+            // Put the positions back for the next flush, a newer one that arrived meanwhile wins; either way the
+            // row has been stale since the failed write was received, so that receive time is kept for flush lag
+            batch.forEach((driverId, failed) -> dirty.merge(driverId, failed,
+                    (newer, older) -> new PendingWrite(newer.latitude(), newer.longitude(), older.receivedAtNanos())));
+            System.err.println("Driver location flush failed: " + e.getMessage());
+        }
+    }
+
+    private record PendingWrite(double latitude, double longitude, long receivedAtNanos) {
+    }
+}
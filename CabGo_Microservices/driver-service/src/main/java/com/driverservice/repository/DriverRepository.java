@@ -4,11 +4,33 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.commonlib.dto.AvailableDriverResponse;
 import com.driverservice.entity.Driver;
 
 public interface DriverRepository extends JpaRepository<Driver, Long> {
     List<Driver> findByAvailableTrue();
     Optional<Driver> findByPhone(String phone);
-    
+
+    // Public columns of the given drivers; which ones are available comes from the bitmap, not this table
+    @Query("select new com.commonlib.dto.AvailableDriverResponse(d.driverId, d.name, d.vehicleDetails, d.latitude, d.longitude) " +
+           "from Driver d where d.driverId in :driverIds order by d.driverId")
+    List<AvailableDriverResponse> findPublicViewsByIds(@Param("driverIds") List<Long> driverIds);
+
+    // Conditional update used by the claim flow: returns 1 only if the driver was still available
+    @Modifying
+    @Transactional
+    @Query("update Driver d set d.available = false where d.driverId = :driverId and d.available = true")
+    int claimIfAvailable(@Param("driverId") Long driverId);
+
+    // Releases are written through, so the row is available before any claim can see the driver
+    @Modifying
+    @Transactional
+    @Query("update Driver d set d.available = true where d.driverId = :driverId")
+    int markAvailable(@Param("driverId") Long driverId);
+
 }
\ No newline at end of file
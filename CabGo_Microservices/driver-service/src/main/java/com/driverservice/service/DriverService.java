@@ -1,19 +1,34 @@
 package com.driverservice.service;
 
+import com.commonlib.dto.AvailableDriverResponse;
+import com.commonlib.dto.DriverLocationPing;
 import com.commonlib.dto.DriverLoginRequest;
 import com.commonlib.dto.DriverRegisterRequest;
+import com.commonlib.dto.HeatmapSnapshot;
+import com.commonlib.dto.NearbyDriverResponse;
+import com.commonlib.enums.VehicleClass;
 import com.driverservice.entity.Driver;
+import com.driverservice.index.DriverLocationIndex;
 
 import java.util.List;
 
 public interface DriverService {
     String register(DriverRegisterRequest request);
     String login(DriverLoginRequest request);
-    List<Driver> getAvailableDrivers();
+    List<AvailableDriverResponse> getAvailableDrivers(Long afterId, int size);
+    Driver getFirstAvailableDriver();
     void updateStatusByPhone(String phone, boolean available);
     Driver getProfileByPhone(String phone); 
     void updateStatusById(Long id, boolean available);
     Driver getDriverById(Long driverId);
     Driver getDriverByPhone(String phone);
     void logout();
+    List<NearbyDriverResponse> getNearestAvailableDrivers(double latitude, double longitude, int limit);
+    void updateLocationById(Long id, double latitude, double longitude);
+    int ingestLocations(List<DriverLocationPing> pings);
+    Long claimDriver(Double latitude, Double longitude);
+    boolean claimDriverById(Long id);
+    DriverLocationIndex.DriverPosition getLivePosition(Long id);
+    HeatmapSnapshot getSupplyHeatmap(long windowMs);
+    int countAvailableDrivers(VehicleClass vehicleClass, Double latitude, Double longitude);
 }
\ No newline at end of file
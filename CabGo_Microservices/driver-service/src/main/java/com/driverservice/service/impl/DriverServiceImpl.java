@@ -1,9 +1,20 @@
 package com.driverservice.service.impl;
 
+import com.commonlib.dto.AvailableDriverResponse;
+import com.commonlib.dto.DriverLocationPing;
 import com.commonlib.dto.DriverLoginRequest;
 import com.commonlib.dto.DriverRegisterRequest;
+import com.commonlib.dto.HeatmapSnapshot;
+import com.commonlib.dto.NearbyDriverResponse;
 import com.driverservice.entity.Driver;
 import com.commonlib.enums.Role;
+import com.commonlib.enums.VehicleClass;
+import com.commonlib.exception.DriverClaimConflictException;
+import com.commonlib.exception.DriverNotFoundException;
+import com.commonlib.geo.CellHeatmap;
+import com.driverservice.index.DriverAvailabilitySet;
+import com.driverservice.index.DriverLocationIndex;
+import com.driverservice.location.DriverLocationPipeline;
 import com.driverservice.repository.DriverRepository;
 import com.driverservice.service.DriverService;
 import com.commonlib.utils.JwtUtil;
@@ -11,15 +22,23 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class DriverServiceImpl implements DriverService {
 
+    // How many candidates a single claim walks through before giving up with a conflict
+    private static final int CLAIM_CANDIDATES = 10;
+
     private final DriverRepository driverRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
+    private final DriverLocationIndex driverLocationIndex;
+    private final DriverLocationPipeline driverLocationPipeline;
+    private final DriverAvailabilitySet driverAvailabilitySet;
+    private final CellHeatmap supplyHeatmap;
 
     @Override
     public String register(DriverRegisterRequest request) {
@@ -30,12 +49,14 @@ public class DriverServiceImpl implements DriverService {
                 .phone(request.getPhone())
                 .licenseNumber(request.getLicenseNumber())
                 .vehicleDetails(request.getVehicleDetails())
+                .vehicleClass(request.getVehicleClass())
                 .passwordHash(passwordEncoder.encode(request.getPassword()))
                 .role(Role.DRIVER)
                 .available(true)
                 .build();
 
-        driverRepository.save(driver);
+        Driver saved = driverRepository.save(driver);
+        driverAvailabilitySet.load(saved.getDriverId(), saved.getVehicleClass(), saved.isAvailable());
         return "Driver registered successfully!";
     }
     @Override
@@ -54,9 +75,32 @@ public class DriverServiceImpl implements DriverService {
     }
 
     @Override
-    public List<Driver> getAvailableDrivers() {
-        // Fetch and return all available drivers
-        return driverRepository.findByAvailableTrue();
+    public List<AvailableDriverResponse> getAvailableDrivers(Long afterId, int size) {
+        // Keyset page over the bitmap: everything after the last driver id the caller has seen.
+        // The available column and the stored position both lag by a flush, so neither is used
+        List<Long> ids = driverAvailabilitySet.findAvailableAfter(afterId == null ? 0L : afterId, size);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<AvailableDriverResponse> drivers = driverRepository.findPublicViewsByIds(ids);
+        for (AvailableDriverResponse driver : drivers) {
+            DriverLocationIndex.DriverPosition position = driverLocationIndex.getPosition(driver.getDriverId());
+            if (position != null) {
+                driver.setLatitude(position.latitude());
+                driver.setLongitude(position.longitude());
+            }
+        }
+        return drivers;
+    }
+
+    @Override
+    public Driver getFirstAvailableDriver() {
+        List<Long> ids = driverAvailabilitySet.findAvailable(null, null, null, 1);
+        if (ids.isEmpty()) {
+            throw new DriverNotFoundException("No drivers available");
+        }
+        return withLiveAvailability(driverRepository.findById(ids.get(0))
+                .orElseThrow(() -> new DriverNotFoundException("No drivers available")));
     }
     public void logout() {
         // Stateless logout logic (client-side token removal)
@@ -68,34 +112,134 @@ public class DriverServiceImpl implements DriverService {
         Driver driver = driverRepository.findByPhone(phone)
                 .orElseThrow(() -> new RuntimeException("Driver not found with phone: " + phone));
 
-        // Update the availability status
-        driver.setAvailable(available);
-        driverRepository.save(driver);
+        setAvailable(driver.getDriverId(), available);
     }
 
     @Override
     public void updateStatusById(Long id , boolean available) {
-        // Find the driver by ID and update their availability status
-        Driver driver = driverRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Driver not found with ID: " + id));
-        driver.setAvailable(available);
-        driverRepository.save(driver);
+        if (!driverAvailabilitySet.isKnown(id)) {
+            throw new RuntimeException("Driver not found with ID: " + id);
+        }
+        setAvailable(id, available);
+    }
+
+    private void setAvailable(long driverId, boolean available) {
+        if (available) {
+            // Claims are decided by the row, so it has to say available before the bitmap does
+            driverRepository.markAvailable(driverId);
+        }
+        // Going offline is an in-memory toggle, the driver row is updated by the write-behind flush
+        driverLocationIndex.setAvailable(driverId, available);
+    }
+
+    @Override
+    public List<NearbyDriverResponse> getNearestAvailableDrivers(double latitude, double longitude, int limit) {
+        // Answered from the in-memory grid index, no database access
+        return driverLocationIndex.nearest(latitude, longitude, limit);
+    }
+
+    @Override
+    public void updateLocationById(Long id, double latitude, double longitude) {
+        if (!driverAvailabilitySet.isKnown(id)) {
+            throw new DriverNotFoundException("Driver not found with ID: " + id);
+        }
+        if (!DriverLocationPipeline.isValidPosition(latitude, longitude)) {
+            throw new IllegalArgumentException("Invalid coordinates: " + latitude + ", " + longitude);
+        }
+        // Goes through the ingest pipeline like batched pings, persisted by the periodic flush
+        DriverLocationPing ping = new DriverLocationPing(id, latitude, longitude, System.currentTimeMillis());
+        if (driverLocationPipeline.submit(List.of(ping)) == 0) {
+            throw new RuntimeException("Location buffer is full");
+        }
+    }
+
+    @Override
+    public int ingestLocations(List<DriverLocationPing> pings) {
+        return driverLocationPipeline.submit(pings);
+    }
+
+    @Override
+    public Long claimDriver(Double latitude, Double longitude) {
+        List<Long> candidates = new ArrayList<>();
+        if (latitude != null && longitude != null) {
+            driverLocationIndex.nearest(latitude, longitude, CLAIM_CANDIDATES)
+                    .forEach(d -> candidates.add(d.getDriverId()));
+        }
+        if (candidates.isEmpty()) {
+            candidates.addAll(driverLocationIndex.anyAvailable(CLAIM_CANDIDATES));
+        }
+        if (candidates.isEmpty()) {
+            throw new DriverNotFoundException("No drivers available");
+        }
+
+        for (Long driverId : candidates) {
+            if (claim(driverId)) {
+                return driverId;
+            }
+        }
+        throw new DriverClaimConflictException("All candidate drivers were claimed by other bookings");
+    }
+
+    @Override
+    public boolean claimDriverById(Long id) {
+        return claim(id);
+    }
+
+    /**
+     * The lock-free bitmap transition is a cheap pre-filter against bookings on
+     * this instance; the conditional UPDATE decides the winner, so a claim
+     * survives a crash and two instances never hand out the same driver. When
+     * the row says the driver is already taken the bit stays cleared, so this
+     * instance stops offering them; only a claim that fails outright gives the
+     * bit back.
+     */
+    private boolean claim(long driverId) {
+        if (!driverLocationIndex.tryClaim(driverId)) {
+            return false;
+        }
+        try {
+            return driverRepository.claimIfAvailable(driverId) == 1;
+        } catch (RuntimeException e) {
+            driverLocationIndex.releaseClaim(driverId);
+            throw e;
+        }
+    }
+
+    @Override
+    public DriverLocationIndex.DriverPosition getLivePosition(Long id) {
+        return driverLocationIndex.getPosition(id);
+    }
+
+    @Override
+    public HeatmapSnapshot getSupplyHeatmap(long windowMs) {
+        return supplyHeatmap.snapshot(windowMs);
+    }
+
+    @Override
+    public int countAvailableDrivers(VehicleClass vehicleClass, Double latitude, Double longitude) {
+        return driverAvailabilitySet.countAvailable(vehicleClass, latitude, longitude);
     }
 
     @Override
     public Driver getProfileByPhone(String phone) {
         // Find and return the driver's profile by phone
-        return driverRepository.findByPhone(phone)
-                .orElseThrow(() -> new RuntimeException("Driver not found with phone: " + phone));
+        return withLiveAvailability(driverRepository.findByPhone(phone)
+                .orElseThrow(() -> new RuntimeException("Driver not found with phone: " + phone)));
     }
     @Override
 public Driver getDriverById(Long driverId) {
-    return driverRepository.findById(driverId)
-            .orElseThrow(() -> new RuntimeException("Driver not found with ID: " + driverId));
+    return withLiveAvailability(driverRepository.findById(driverId)
+            .orElseThrow(() -> new RuntimeException("Driver not found with ID: " + driverId)));
 }
     @Override
     public Driver getDriverByPhone(String phone) {
-        return driverRepository.findByPhone(phone)
-                .orElseThrow(() -> new RuntimeException("Driver not found with phone: " + phone));
+        return withLiveAvailability(driverRepository.findByPhone(phone)
+                .orElseThrow(() -> new RuntimeException("Driver not found with phone: " + phone)));
+    }
+
+    // The column can lag the bitmap by one flush interval, report what the bitmap says
+    private Driver withLiveAvailability(Driver driver) {
+        driver.setAvailable(driverAvailabilitySet.isAvailable(driver.getDriverId()));
+        return driver;
     }
 }
\ No newline at end of file
@@ -1,30 +1,44 @@
 package com.driverservice.controller;
 
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.commonlib.dto.ApiResponse;
+import com.commonlib.dto.AvailableDriverPage;
+import com.commonlib.dto.AvailableDriverResponse;
+import com.commonlib.dto.DriverLocationPing;
 import com.commonlib.dto.DriverLoginRequest;
 import com.commonlib.dto.DriverRegisterRequest;
 import com.commonlib.dto.DriverResponse;
+import com.commonlib.dto.NearbyDriverResponse;
+import com.commonlib.exception.DriverNotFoundException;
 import com.commonlib.utils.JwtUtil;
 import com.driverservice.entity.Driver;
 import com.driverservice.service.DriverService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 class DriverControllerTest {
 
@@ -88,14 +102,41 @@ class DriverControllerTest {
     }
 
     @Test
-    void getAvailableDrivers_shouldReturnList() {
-        List<Driver> drivers = Collections.singletonList(new Driver());
-        when(driverService.getAvailableDrivers()).thenReturn(drivers);
-
-        ResponseEntity<List<Driver>> response = driverController.getAvailableDrivers();
+    void getAvailableDrivers_shouldStreamAllPages() throws Exception {
+        List<AvailableDriverResponse> firstPage = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            firstPage.add(new AvailableDriverResponse(id, "Driver " + id, "Swift", 12.97, 77.59));
+        }
+        when(driverService.getAvailableDrivers(0L, 500)).thenReturn(firstPage);
+        when(driverService.getAvailableDrivers(500L, 500))
+                .thenReturn(List.of(new AvailableDriverResponse(501L, "Last", "Dzire", null, null)));
+
+        ResponseEntity<StreamingResponseBody> response = driverController.getAvailableDrivers();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertEquals(drivers, response.getBody());
+        JsonNode json = new ObjectMapper().readTree(out.toByteArray());
+        assertEquals(501, json.size());
+        assertEquals(501L, json.get(500).get("driverId").asLong());
+        assertTrue(json.get(500).get("latitude").isNull());
+        assertFalse(json.get(0).has("passwordHash"));
+    }
+
+    @Test
+    void getAvailableDriversPage_shouldReturnCursorForNextPage() {
+        List<AvailableDriverResponse> drivers = List.of(
+                new AvailableDriverResponse(3L, "A", "Swift", null, null),
+                new AvailableDriverResponse(7L, "B", "Dzire", null, null));
+        when(driverService.getAvailableDrivers(0L, 2)).thenReturn(drivers);
+        when(driverService.getAvailableDrivers(7L, 2)).thenReturn(Collections.emptyList());
+
+        ResponseEntity<AvailableDriverPage> first = driverController.getAvailableDriversPage(0L, 2);
+        ResponseEntity<AvailableDriverPage> last = driverController.getAvailableDriversPage(7L, 2);
+
+        assertEquals(7L, first.getBody().getNextAfterId());
+        assertEquals(drivers, first.getBody().getDrivers());
+        assertNull(last.getBody().getNextAfterId());
     }
 
     @Test
@@ -170,7 +211,7 @@ class DriverControllerTest {
     @Test
     void getFirstAvailableDriver_shouldReturnDriver() {
         Driver driver = new Driver();
-        when(driverService.getAvailableDrivers()).thenReturn(Collections.singletonList(driver));
+        when(driverService.getFirstAvailableDriver()).thenReturn(driver);
 
         ResponseEntity<Driver> response = driverController.getFirstAvailableDriver();
 
@@ -180,13 +221,87 @@ class DriverControllerTest {
 
     @Test
     void getFirstAvailableDriver_shouldReturnNotFound() {
-        when(driverService.getAvailableDrivers()).thenReturn(Collections.emptyList());
+        when(driverService.getFirstAvailableDriver()).thenThrow(new DriverNotFoundException("No drivers available"));
 
         ResponseEntity<Driver> response = driverController.getFirstAvailableDriver();
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
     }
 
+    @Test
+    void getNearestAvailableDrivers_shouldReturnList() {
+        List<NearbyDriverResponse> drivers = List.of(new NearbyDriverResponse(1L, 12.97, 77.59, 0.4));
+        when(driverService.getNearestAvailableDrivers(12.97, 77.59, 3)).thenReturn(drivers);
+
+        ResponseEntity<List<NearbyDriverResponse>> response = driverController.getNearestAvailableDrivers(12.97, 77.59, 3);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(drivers, response.getBody());
+    }
+
+    @Test
+    void getNearestAvailableDrivers_shouldRejectInvalidCoordinates() {
+        ResponseEntity<List<NearbyDriverResponse>> response = driverController.getNearestAvailableDrivers(120.0, 77.59, 3);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void coordinatesAndClaims_shouldRequireAServiceToken() {
+        // Every endpoint that hands out driver positions or reserves a driver
+        List<String> serviceOnly = List.of("getAvailableDrivers", "getAvailableDriversPage", "getFirstAvailableDriver",
+                "getNearestAvailableDrivers", "claimDriver", "claimDriverById");
+        for (Method method : DriverController.class.getDeclaredMethods()) {
+            if (serviceOnly.contains(method.getName())) {
+                PreAuthorize preAuthorize = method.getAnnotation(PreAuthorize.class);
+                assertNotNull(preAuthorize, method.getName());
+                assertEquals("hasRole('SERVICE')", preAuthorize.value(), method.getName());
+            }
+        }
+    }
+
+    @Test
+    void updateLocation_shouldMapUnknownDriverAndBadCoordinates() {
+        doThrow(new DriverNotFoundException("Driver not found with ID: 9"))
+                .when(driverService).updateLocationById(9L, 12.97, 77.59);
+        doThrow(new IllegalArgumentException("Invalid coordinates"))
+                .when(driverService).updateLocationById(1L, 91.0, 77.59);
+
+        assertEquals(HttpStatus.NOT_FOUND, driverController.updateLocation(9L, 12.97, 77.59).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, driverController.updateLocation(1L, 91.0, 77.59).getStatusCode());
+    }
+
+    @Test
+    void ingestLocations_shouldReturnAccepted() {
+        List<DriverLocationPing> pings = List.of(new DriverLocationPing(1L, 12.97, 77.59, 1000));
+        when(driverService.ingestLocations(pings)).thenReturn(1);
+        when(jwtUtil.getClaimFromToken("service-token", "role")).thenReturn("SERVICE");
+
+        ResponseEntity<ApiResponse> response = driverController.ingestLocations("Bearer service-token", pings);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertTrue(response.getBody().isSuccess());
+        assertEquals(1, response.getBody().getData());
+    }
+
+    @Test
+    void ingestLocations_shouldRejectPingsForOtherDrivers() {
+        Driver caller = new Driver();
+        caller.setDriverId(1L);
+        when(jwtUtil.getClaimFromToken("driver-token", "role")).thenReturn("DRIVER");
+        when(jwtUtil.extractUsername("driver-token")).thenReturn("9000000001");
+        when(driverService.getDriverByPhone("9000000001")).thenReturn(caller);
+
+        List<DriverLocationPing> own = List.of(new DriverLocationPing(1L, 12.97, 77.59, 1000));
+        when(driverService.ingestLocations(own)).thenReturn(1);
+        assertEquals(HttpStatus.ACCEPTED, driverController.ingestLocations("Bearer driver-token", own).getStatusCode());
+
+        List<DriverLocationPing> other = List.of(new DriverLocationPing(1L, 12.97, 77.59, 1000),
+                new DriverLocationPing(2L, 12.97, 77.59, 1000));
+        assertEquals(HttpStatus.FORBIDDEN, driverController.ingestLocations("Bearer driver-token", other).getStatusCode());
+        verify(driverService, never()).ingestLocations(other);
+    }
+
     @Test
     void getDriverById_shouldReturnDriver() {
         Long driverId = 1L;
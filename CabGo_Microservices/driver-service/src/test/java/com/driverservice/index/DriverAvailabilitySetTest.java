@@ -0,0 +1,147 @@
+package com.driverservice.index;
+
+import com.commonlib.enums.VehicleClass;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DriverAvailabilitySetTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private DriverAvailabilitySet availabilitySet;
+    private DriverAvailabilityWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        // Small initial capacity so the tests also cover growing the bitmaps
+        availabilitySet = new DriverAvailabilitySet(64, 0.05);
+        writer = new DriverAvailabilityWriter(availabilitySet, jdbcTemplate, new SimpleMeterRegistry(), 2);
+    }
+
+    @Test
+    void setAvailable_shouldTrackCardinalityAcrossGrowth() {
+        availabilitySet.load(3L, VehicleClass.SEDAN, true);
+        availabilitySet.load(5000L, VehicleClass.SUV, false);
+
+        assertTrue(availabilitySet.setAvailable(5000L, true));
+        assertFalse(availabilitySet.setAvailable(5000L, true));
+        assertTrue(availabilitySet.tryClaim(3L));
+        assertFalse(availabilitySet.tryClaim(3L));
+
+        assertEquals(1, availabilitySet.availableCount());
+        assertTrue(availabilitySet.isKnown(5000L));
+        assertFalse(availabilitySet.isKnown(4000L));
+    }
+
+    @Test
+    void unknownIds_shouldNotSetBitsOrGrowTheBitmaps() {
+        availabilitySet.load(1L, VehicleClass.SEDAN, true);
+
+        // An id near Integer.MAX_VALUE would need a 256 MB bitmap per zone
+        assertFalse(availabilitySet.setAvailable(2_000_000_000L, true));
+        assertFalse(availabilitySet.releaseClaim(2_000_000_000L));
+        availabilitySet.moveZone(2_000_000_000L, null, null, 12.971, 77.594);
+
+        assertFalse(availabilitySet.isAvailable(2_000_000_000L));
+        assertEquals(1, availabilitySet.availableCount());
+        assertEquals(0, availabilitySet.countAvailable(null, 12.971, 77.594));
+        assertEquals(0, availabilitySet.dirtyCount());
+    }
+
+    @Test
+    void countAvailable_shouldIntersectVehicleClassAndZone() {
+        availabilitySet.load(1L, VehicleClass.SUV, true);
+        availabilitySet.load(2L, VehicleClass.SUV, true);
+        availabilitySet.load(3L, VehicleClass.SEDAN, true);
+        availabilitySet.load(4L, VehicleClass.SUV, false);
+        availabilitySet.moveZone(1L, null, null, 12.971, 77.594);
+        availabilitySet.moveZone(3L, null, null, 12.972, 77.595);
+        availabilitySet.moveZone(4L, null, null, 12.973, 77.596);
+        availabilitySet.moveZone(2L, null, null, 12.971, 77.594);
+        // Driver 2 leaves the zone
+        availabilitySet.moveZone(2L, 12.971, 77.594, 13.5, 78.5);
+
+        assertEquals(3, availabilitySet.countAvailable(null, null, null));
+        assertEquals(2, availabilitySet.countAvailable(VehicleClass.SUV, null, null));
+        assertEquals(2, availabilitySet.countAvailable(null, 12.971, 77.594));
+        assertEquals(1, availabilitySet.countAvailable(VehicleClass.SUV, 12.971, 77.594));
+        assertEquals(List.of(1L), availabilitySet.findAvailable(VehicleClass.SUV, 12.971, 77.594, 10));
+        assertEquals(0, availabilitySet.countAvailable(null, -33.0, 151.0));
+    }
+
+    @Test
+    void findAvailableAfter_shouldPageThroughAvailableIdsAcrossWords() {
+        for (long id : new long[]{3L, 63L, 64L, 65L, 130L}) {
+            availabilitySet.load(id, VehicleClass.SEDAN, true);
+        }
+        availabilitySet.load(100L, VehicleClass.SEDAN, false);
+        availabilitySet.tryClaim(65L);
+
+        assertEquals(List.of(3L, 63L), availabilitySet.findAvailableAfter(0L, 2));
+        assertEquals(List.of(64L, 130L), availabilitySet.findAvailableAfter(63L, 2));
+        assertEquals(List.of(130L), availabilitySet.findAvailableAfter(64L, 10));
+        assertEquals(List.of(), availabilitySet.findAvailableAfter(130L, 10));
+        assertEquals(List.of(), availabilitySet.findAvailableAfter(5000L, 10));
+    }
+
+    @Test
+    void flush_shouldOnlyWriteDriversThatWentOfflineInBatches() {
+        availabilitySet.load(1L, VehicleClass.SEDAN, true);
+        availabilitySet.load(2L, VehicleClass.SEDAN, true);
+        availabilitySet.load(3L, VehicleClass.SEDAN, false);
+        availabilitySet.load(4L, VehicleClass.SEDAN, true);
+        availabilitySet.load(5L, VehicleClass.SEDAN, true);
+
+        availabilitySet.setAvailable(1L, false);
+        // Claims are persisted by the claim flow itself, not by the flush
+        availabilitySet.tryClaim(4L);
+        // Releases are written through, so the flush never writes true over a claim
+        availabilitySet.setAvailable(3L, true);
+        availabilitySet.setAvailable(2L, false);
+        availabilitySet.setAvailable(2L, true);
+        availabilitySet.setAvailable(5L, false);
+
+        writer.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(eq("update driver set available = false where driver_id = ?"),
+                batches.capture());
+        List<Object[]> rows = batches.getAllValues().stream().flatMap(List::stream).toList();
+        assertEquals(2, rows.size());
+        assertArrayEquals(new Object[]{1L}, rows.get(0));
+        assertArrayEquals(new Object[]{5L}, rows.get(1));
+
+        // Nothing changed since, so the next run writes nothing
+        writer.flush();
+        verifyNoMoreInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void flush_shouldRetryAfterFailure() {
+        availabilitySet.load(1L, VehicleClass.SEDAN, true);
+        availabilitySet.setAvailable(1L, false);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new RuntimeException("db down"))
+                .thenReturn(new int[]{1});
+
+        writer.flush();
+        writer.flush();
+
+        verify(jdbcTemplate, times(2)).batchUpdate(eq("update driver set available = false where driver_id = ?"), anyList());
+    }
+}
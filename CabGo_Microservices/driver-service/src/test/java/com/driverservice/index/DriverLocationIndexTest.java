@@ -0,0 +1,98 @@
+package com.driverservice.index;
+
+import com.commonlib.dto.HeatmapCell;
+import com.commonlib.dto.HeatmapSnapshot;
+import com.commonlib.dto.NearbyDriverResponse;
+import com.commonlib.geo.CellHeatmap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DriverLocationIndexTest {
+
+    private CellHeatmap heatmap;
+    private DriverAvailabilitySet availabilitySet;
+    private DriverLocationIndex index;
+
+    @BeforeEach
+    void setUp() {
+        heatmap = new CellHeatmap(0.01, 10000, 90);
+        availabilitySet = new DriverAvailabilitySet(1024, 0.05);
+        index = new DriverLocationIndex(availabilitySet, heatmap, 0.01, 50);
+    }
+
+    @Test
+    void nearest_shouldReturnClosestAvailableDriversInOrder() {
+        addDriver(1L, 12.9716, 77.5946);   // at the pickup point
+        addDriver(2L, 12.9800, 77.6000);   // ~1 km away
+        addDriver(3L, 13.0500, 77.7000);   // ~14 km away
+
+        List<NearbyDriverResponse> result = index.nearest(12.9716, 77.5946, 2);
+
+        assertEquals(2, result.size());
+        assertEquals(1L, result.get(0).getDriverId());
+        assertEquals(2L, result.get(1).getDriverId());
+        assertTrue(result.get(0).getDistanceKm() <= result.get(1).getDistanceKm());
+    }
+
+    @Test
+    void nearest_shouldSkipUnavailableDrivers() {
+        addDriver(1L, 12.9716, 77.5946);
+        addDriver(2L, 12.9800, 77.6000);
+        index.setAvailable(1L, false);
+
+        List<NearbyDriverResponse> result = index.nearest(12.9716, 77.5946, 5);
+
+        assertEquals(1, result.size());
+        assertEquals(2L, result.get(0).getDriverId());
+    }
+
+    @Test
+    void updatePosition_shouldMoveDriverBetweenCells() {
+        addDriver(1L, 12.9716, 77.5946);
+        index.updatePosition(1L, 28.6139, 77.2090);
+
+        assertTrue(index.nearest(12.9716, 77.5946, 1).isEmpty());
+        assertEquals(1L, index.nearest(28.6139, 77.2090, 1).get(0).getDriverId());
+    }
+
+    @Test
+    void nearest_shouldReturnEmptyWhenNobodyIsInRange() {
+        addDriver(1L, 51.5074, -0.1278);
+
+        assertTrue(index.nearest(12.9716, 77.5946, 3).isEmpty());
+    }
+
+    @Test
+    void supplyHeatmap_shouldFollowAvailabilityAndMoves() {
+        addDriver(1L, 12.9716, 77.5946);
+        addDriver(2L, 12.9717, 77.5947);
+        index.updatePosition(2L, 28.6139, 77.2090);
+        index.tryClaim(1L);
+        index.setAvailable(1L, true);
+        index.setAvailable(1L, true);
+
+        HeatmapSnapshot snapshot = heatmap.snapshot(60000);
+
+        HeatmapCell bangalore = cellAt(snapshot, 12.9716, 77.5946);
+        HeatmapCell delhi = cellAt(snapshot, 28.6139, 77.2090);
+        assertEquals(1, bangalore.getCurrent());
+        // Both drivers were freed here, then driver 1 again after the claim; the repeated toggle does not count
+        assertEquals(3, bangalore.getRecent());
+        assertEquals(1, delhi.getCurrent());
+    }
+
+    private HeatmapCell cellAt(HeatmapSnapshot snapshot, double lat, double lng) {
+        long cell = heatmap.cellOf(lat, lng);
+        return snapshot.getCells().stream().filter(c -> c.getCell() == cell).findFirst().orElseThrow();
+    }
+
+    private void addDriver(long driverId, double lat, double lng) {
+        availabilitySet.load(driverId, null, false);
+        index.updatePosition(driverId, lat, lng);
+        index.setAvailable(driverId, true);
+    }
+}
@@ -0,0 +1,146 @@
+package com.driverservice.location;
+
+import com.commonlib.dto.DriverLocationPing;
+import com.commonlib.geo.CellHeatmap;
+import com.driverservice.index.DriverAvailabilitySet;
+import com.driverservice.index.DriverLocationIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class DriverLocationPipelineTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private DriverLocationIndex index;
+    private SimpleMeterRegistry meterRegistry;
+    private DriverLocationPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        DriverAvailabilitySet availabilitySet = new DriverAvailabilitySet(1024, 0.05);
+        for (long id = 1; id <= 5; id++) {
+            availabilitySet.load(id, null, true);
+        }
+        index = new DriverLocationIndex(availabilitySet, new CellHeatmap(0.01, 10000, 90), 0.01, 50);
+        meterRegistry = new SimpleMeterRegistry();
+        // Applier thread is not started, the test drains the buffer itself
+        pipeline = new DriverLocationPipeline(index, jdbcTemplate, meterRegistry, 4, 100);
+    }
+
+    @Test
+    void applyPending_shouldKeepOnlyLatestPingPerDriver() {
+        pipeline.submit(List.of(
+                new DriverLocationPing(1L, 12.0, 77.0, 1000),
+                new DriverLocationPing(1L, 12.5, 77.5, 3000),
+                new DriverLocationPing(1L, 12.2, 77.2, 2000),
+                new DriverLocationPing(2L, 13.0, 78.0, 1000)));
+
+        int moved = pipeline.applyPending();
+
+        assertEquals(2, moved);
+        assertEquals(12.5, index.getPosition(1L).latitude());
+        assertEquals(13.0, index.getPosition(2L).latitude());
+        assertEquals(2.0, meterRegistry.counter("driver.location.pings.coalesced").count());
+    }
+
+    @Test
+    void submit_shouldDropPingsWhenBufferIsFull() {
+        int accepted = pipeline.submit(List.of(
+                new DriverLocationPing(1L, 12.0, 77.0, 1),
+                new DriverLocationPing(2L, 12.0, 77.0, 1),
+                new DriverLocationPing(3L, 12.0, 77.0, 1),
+                new DriverLocationPing(4L, 12.0, 77.0, 1),
+                new DriverLocationPing(5L, 12.0, 77.0, 1)));
+
+        assertEquals(4, accepted);
+        assertEquals(1.0, meterRegistry.counter("driver.location.pings.dropped").count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_shouldWriteOneBatchedRowPerMovedDriver() {
+        pipeline.submit(List.of(
+                new DriverLocationPing(1L, 12.0, 77.0, 1000),
+                new DriverLocationPing(1L, 12.1, 77.1, 2000),
+                new DriverLocationPing(2L, 13.0, 78.0, 1000)));
+        pipeline.applyPending();
+
+        pipeline.flush();
+        pipeline.flush(); // nothing new, must not hit the database again
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), rows.capture());
+        assertEquals(2, rows.getValue().size());
+    }
+
+    @Test
+    void failedFlush_shouldRetryWithTheOriginalReceiveTime() throws InterruptedException {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new RuntimeException("db down"))
+                .thenReturn(new int[]{1});
+        pipeline.submit(List.of(new DriverLocationPing(1L, 12.0, 77.0, 1000)));
+        pipeline.applyPending();
+
+        pipeline.flush();
+        Thread.sleep(50);
+        pipeline.flush();
+
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
+        // The second flush still measures from when the position was received, not from the failed attempt
+        assertTrue(meterRegistry.get("driver.location.flush.lag").timer().max(TimeUnit.MILLISECONDS) >= 50);
+    }
+
+    @Test
+    void stop_shouldApplyAndWriteWhatIsStillBuffered() {
+        pipeline.start();
+        pipeline.submit(List.of(new DriverLocationPing(3L, 12.9, 77.6, 1000)));
+
+        pipeline.stop();
+
+        assertEquals(12.9, index.getPosition(3L).latitude());
+        verify(jdbcTemplate).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void applyPending_shouldIgnoreOutOfOrderPings() {
+        pipeline.submit(List.of(new DriverLocationPing(1L, 12.5, 77.5, 5000)));
+        pipeline.applyPending();
+        pipeline.submit(List.of(new DriverLocationPing(1L, 12.0, 77.0, 1000)));
+        pipeline.applyPending();
+
+        assertEquals(12.5, index.getPosition(1L).latitude());
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void submit_shouldRejectUnknownDriversBadCoordinatesAndCapFutureTimestamps() {
+        int accepted = pipeline.submit(List.of(
+                new DriverLocationPing(99L, 12.0, 77.0, 1000),
+                new DriverLocationPing(1L, Double.NaN, 77.0, 1000),
+                new DriverLocationPing(1L, 12.0, 181.0, 1000),
+                new DriverLocationPing(1L, 12.5, 77.5, Long.MAX_VALUE)));
+        pipeline.applyPending();
+
+        assertEquals(1, accepted);
+        assertEquals(3.0, meterRegistry.counter("driver.location.pings.rejected").count());
+        assertNull(index.getPosition(99L));
+        // The far-future ping was pulled back to now, so the next real ping still applies
+        pipeline.submit(List.of(new DriverLocationPing(1L, 12.6, 77.6, System.currentTimeMillis() + 1)));
+        pipeline.applyPending();
+        assertEquals(12.6, index.getPosition(1L).latitude());
+    }
+}
@@ -0,0 +1,131 @@
+package com.driverservice.service.impl;
+
+import com.commonlib.exception.DriverClaimConflictException;
+import com.commonlib.exception.DriverNotFoundException;
+import com.commonlib.geo.CellHeatmap;
+import com.driverservice.index.DriverAvailabilitySet;
+import com.driverservice.index.DriverLocationIndex;
+import com.driverservice.repository.DriverRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class DriverClaimConcurrencyTest {
+
+    private static final int DRIVERS = 500;
+    private static final int BOOKINGS = 5000;
+    private static final int THREADS = 64;
+
+    @Mock
+    private DriverRepository driverRepository;
+
+    private DriverAvailabilitySet availabilitySet;
+    private DriverLocationIndex index;
+    private DriverServiceImpl driverService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        availabilitySet = new DriverAvailabilitySet(64, 0.05);
+        index = new DriverLocationIndex(availabilitySet, new CellHeatmap(0.01, 10000, 90), 0.01, 50);
+        for (long id = 1; id <= DRIVERS; id++) {
+            availabilitySet.load(id, null, false);
+            // Pack everyone into a few cells so concurrent bookings fight over the same candidates
+            index.updatePosition(id, 12.97 + (id % 3) * 0.001, 77.59 + (id % 5) * 0.001);
+            index.setAvailable(id, true);
+        }
+        when(driverRepository.claimIfAvailable(anyLong())).thenReturn(1);
+        driverService = new DriverServiceImpl(driverRepository, null, null, index, null, availabilitySet, null);
+    }
+
+    @Test
+    void concurrentClaims_shouldNeverAssignTheSameDriverTwice() throws Exception {
+        Set<Long> claimed = ConcurrentHashMap.newKeySet();
+        AtomicInteger doubleAssignments = new AtomicInteger();
+        AtomicInteger successes = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(BOOKINGS);
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        for (int i = 0; i < BOOKINGS; i++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    Long driverId = driverService.claimDriver(12.97, 77.59);
+                    successes.incrementAndGet();
+                    if (!claimed.add(driverId)) {
+                        doubleAssignments.incrementAndGet();
+                    }
+                } catch (DriverNotFoundException | DriverClaimConflictException e) {
+                    rejected.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        assertEquals(0, doubleAssignments.get());
+        assertEquals(successes.get(), claimed.size());
+        assertEquals(BOOKINGS, successes.get() + rejected.get());
+        // Every driver is either claimed exactly once or still available, none lost or duplicated
+        assertEquals(DRIVERS, claimed.size() + index.availableCount());
+        // Every claim was confirmed by the conditional UPDATE
+        claimed.forEach(id -> {
+            assertFalse(availabilitySet.isAvailable(id));
+            verify(driverRepository).claimIfAvailable(id);
+        });
+    }
+
+    @Test
+    void claim_shouldFallBackToDriversWithoutLocation() {
+        DriverAvailabilitySet emptySet = new DriverAvailabilitySet(64, 0.05);
+        DriverLocationIndex emptyIndex = new DriverLocationIndex(emptySet, new CellHeatmap(0.01, 10000, 90), 0.01, 50);
+        emptySet.load(42L, null, true);
+        DriverServiceImpl service = new DriverServiceImpl(driverRepository, null, null, emptyIndex, null, emptySet, null);
+
+        assertEquals(42L, service.claimDriver(12.97, 77.59));
+        assertThrows(DriverNotFoundException.class, () -> service.claimDriver(12.97, 77.59));
+    }
+
+    @Test
+    void claimLostInTheDatabase_shouldKeepTheDriverOffTheMarketAndTryTheNextOne() {
+        // Driver 1 was claimed by another instance, only the row knows
+        when(driverRepository.claimIfAvailable(1L)).thenReturn(0);
+
+        assertTrue(driverService.claimDriverById(2L));
+        assertFalse(driverService.claimDriverById(1L));
+        assertFalse(availabilitySet.isAvailable(1L));
+        assertEquals(DRIVERS - 2, index.availableCount());
+        assertTrue(index.anyAvailable(DRIVERS).stream().noneMatch(id -> id == 1L));
+    }
+
+    @Test
+    void claimFailingInTheDatabase_shouldReleaseTheDriver() {
+        when(driverRepository.claimIfAvailable(anyLong())).thenThrow(new RuntimeException("db down"));
+
+        assertThrows(RuntimeException.class, () -> driverService.claimDriver(12.97, 77.59));
+        assertThrows(RuntimeException.class, () -> driverService.claimDriverById(7L));
+        assertEquals(DRIVERS, index.availableCount());
+        assertTrue(availabilitySet.isAvailable(7L));
+    }
+}
@@ -9,8 +9,6 @@ import org.springframework.web.bind.annotation.PathVariable;
 import com.commonlib.dto.RideDTO;
 import org.springframework.web.bind.annotation.RequestHeader;
 
-import java.util.List;
-
 // Adjust the name and URL as per your setup
 @FeignClient(name = "ride-service")
 public interface RideServiceClient {
@@ -18,7 +16,8 @@ public interface RideServiceClient {
     RideDTO getRideById(@PathVariable("rideId") Long rideId);
 
 
-    @GetMapping("/api/rides/user/rides")
-    ResponseEntity<List<RideResponse>> getUserRides(@RequestHeader("Authorization") String token);
+    // Latest ride of the caller, empty body (204) when there is none
+    @GetMapping("/api/rides/user/latest")
+    ResponseEntity<RideResponse> getLatestUserRide(@RequestHeader("Authorization") String token);
 
 }
\ No newline at end of file
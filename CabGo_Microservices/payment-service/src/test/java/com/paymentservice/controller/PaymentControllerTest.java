@@ -12,7 +12,6 @@ import org.mockito.*;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 
-import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -48,7 +47,7 @@ class PaymentControllerTest {
         Payment payment = Payment.builder().rideId(100L).status("SUCCESS").build();
 
         when(httpRequest.getHeader("Authorization")).thenReturn(token);
-        when(rideServiceClient.getUserRides(token)).thenReturn(ResponseEntity.ok(List.of(ride)));
+        when(rideServiceClient.getLatestUserRide(token)).thenReturn(ResponseEntity.ok(ride));
         when(paymentService.processPayment(any())).thenReturn(payment);
 
         ResponseEntity<Payment> response = paymentController.processPayment(request, httpRequest);
@@ -67,7 +66,7 @@ class PaymentControllerTest {
         Payment payment = Payment.builder().rideId(100L).status("SUCCESS").build();
 
         when(httpRequest.getHeader("Authorization")).thenReturn(token);
-        when(rideServiceClient.getUserRides(token)).thenReturn(ResponseEntity.ok(List.of(ride)));
+        when(rideServiceClient.getLatestUserRide(token)).thenReturn(ResponseEntity.ok(ride));
         when(paymentService.getReceipt(100L)).thenReturn(payment);
 
         ResponseEntity<Payment> response = paymentController.getReceipt(httpRequest);
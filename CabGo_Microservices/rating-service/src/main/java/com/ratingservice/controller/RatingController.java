@@ -13,7 +13,6 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.Comparator;
 import java.util.List;
 
 @RestController
@@ -39,18 +38,8 @@ public class RatingController {
         // Step 2: Extract token from header
         String token = authHeader;
 
-        // Step 3: Fetch all rides for the user using token
-        ResponseEntity<List<RideResponse>> response = rideServiceClient.getUserRides(token);
-        List<RideResponse> rides = response.getBody();
-
-        if (rides == null || rides.isEmpty()) {
-            return ResponseEntity.badRequest().build();
-        }
-
-        // Step 4: Find the latest ride by highest ride ID
-        RideResponse latestRide = rides.stream()
-                .max(Comparator.comparingLong(RideResponse::getRideId))
-                .orElse(null);
+        // Step 3: Fetch the user's latest ride (one indexed row in ride-service)
+        RideResponse latestRide = rideServiceClient.getLatestUserRide(token).getBody();
 
         if (latestRide == null) {
             return ResponseEntity.badRequest().build();
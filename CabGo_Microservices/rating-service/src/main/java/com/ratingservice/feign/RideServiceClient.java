@@ -8,13 +8,12 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestHeader;
 
-import java.util.List;
-
 @FeignClient(name = "ride-service")
 public interface RideServiceClient {
     @GetMapping("/api/rides/{rideId}")
     RideDTO getRideById(@PathVariable("rideId") Long rideId);
 
-    @GetMapping("/api/rides/user/rides")
-    ResponseEntity<List<RideResponse>> getUserRides(@RequestHeader("Authorization") String token);
+    // Latest ride of the caller, empty body (204) when there is none
+    @GetMapping("/api/rides/user/latest")
+    ResponseEntity<RideResponse> getLatestUserRide(@RequestHeader("Authorization") String token);
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+package com.rideservice.active;
+
+import com.commonlib.enums.RideStatus;
+import com.rideservice.entity.ActiveRide;
+import com.rideservice.repository.ActiveRideRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * driverId -> active rideId, answered from memory. Every change is written
+ * through to the active_ride table with one keyed statement, and the map is
+ * reloaded from that table on startup.
+ */
+@Component
+@RequiredArgsConstructor
+public class ActiveRideIndex {
+
+    public static final List<RideStatus> ACTIVE_STATUSES =
+            List.of(RideStatus.REQUESTED, RideStatus.ASSIGNED, RideStatus.ONGOING, RideStatus.IN_PROGRESS);
+
+    private final ActiveRideRepository activeRideRepository;
+
+    private final ConcurrentHashMap<Long, Long> rideByDriver = new ConcurrentHashMap<>();
+    // Reverse side, for transitions that only know the ride
+    private final ConcurrentHashMap<Long, Long> driverByRide = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<ActiveRide> rows = activeRideRepository.findAll();
+        if (rows.isEmpty()) {
+            // First start with the table: seed it once from rides that already have a driver
+            for (Object[] row : activeRideRepository.findAssignedRides(ACTIVE_STATUSES)) {
+                assign((Long) row[0], (Long) row[1]);
+            }
+            return;
+        }
+        for (ActiveRide row : rows) {
+            put(row.getDriverId(), row.getRideId());
+        }
+    }
+
+    public void assign(Long driverId, Long rideId) {
+        activeRideRepository.upsert(driverId, rideId);
+        put(driverId, rideId);
+    }
+
+    public Long rideFor(Long driverId) {
+        return rideByDriver.get(driverId);
+    }
+
+    /**
+     * Forgets the ride once it is completed or cancelled. Safe to call for
+     * rides that never had a driver.
+     */
+    public void release(Long rideId) {
+        Long driverId = driverByRide.remove(rideId);
+        if (driverId == null) {
+            return;
+        }
+        rideByDriver.remove(driverId, rideId);
+        activeRideRepository.deleteByRideId(rideId);
+    }
+
+    private void put(Long driverId, Long rideId) {
+        Long previous = rideByDriver.put(driverId, rideId);
+        if (previous != null && !previous.equals(rideId)) {
+            driverByRide.remove(previous, driverId);
+        }
+        driverByRide.put(rideId, driverId);
+    }
+}
@@ -0,0 +1,168 @@
+package com.rideservice.booking;
+
+import com.commonlib.exception.BookingQueueFullException;
+import com.commonlib.geo.GeoGrid;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Optional asynchronous booking mode (ride.booking.async.enabled=true).
+ *
+ * A booking takes a slot in the queue of its pickup zone before anything
+ * else is done; when the zone is full it is turned away with a Retry-After
+ * instead of waiting. The ride is then saved without a driver and the
+ * matching is queued. Each zone has at most one drain task on the worker
+ * pool, which runs one match and goes back to the end of the pool's queue,
+ * so a busy zone cannot starve the others and two bookings in one zone
+ * never compete for the same nearby driver.
+ */
+@Component
+public class BookingQueue {
+
+    // Bookings without pickup coordinates share one zone
+    private static final long NO_ZONE = Long.MIN_VALUE;
+    private static final long MAX_RETRY_AFTER_SECONDS = 60;
+
+    private final boolean enabled;
+    private final int capacityPerZone;
+    private final GeoGrid zoneGrid;
+    private final BookingTimings bookingTimings;
+    private final ExecutorService workers;
+
+    private final ConcurrentHashMap<Long, Zone> zones = new ConcurrentHashMap<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    // Moving average of one match, used to tell rejected callers when to come back
+    private final AtomicLong averageMatchNanos = new AtomicLong();
+    private final Counter rejected;
+
+    public BookingQueue(BookingTimings bookingTimings,
+                        MeterRegistry meterRegistry,
+                        @Value("${ride.booking.async.enabled:false}") boolean enabled,
+                        @Value("${ride.booking.async.queue-capacity:200}") int capacityPerZone,
+                        @Value("${ride.booking.async.zone-degrees:0.05}") double zoneDegrees,
+                        @Value("${ride.booking.async.workers:16}") int workers) {
+        this.enabled = enabled;
+        this.capacityPerZone = capacityPerZone;
+        this.zoneGrid = new GeoGrid(zoneDegrees);
+        this.bookingTimings = bookingTimings;
+        // Matching makes blocking calls to driver-service; the pool size caps how many run at once
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workers), Thread.ofPlatform()
+                .name("booking-matcher-", 0).daemon(true).factory());
+
+        Gauge.builder("ride.booking.queue.depth", depth, AtomicInteger::get)
+                .description("Bookings waiting for a driver match in async mode")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("ride.booking.queue.rejected")
+                .description("Bookings turned away because their zone queue was full")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int depth() {
+        return depth.get();
+    }
+
+    /**
+     * Takes a slot in the zone of the pickup point. The slot has to be either
+     * submitted or released.
+     */
+    public Slot reserve(Double latitude, Double longitude) {
+        long key = latitude == null || longitude == null ? NO_ZONE : zoneGrid.cellOf(latitude, longitude);
+        Zone zone = zones.computeIfAbsent(key, k -> new Zone());
+        int taken = zone.slots.incrementAndGet();
+        if (taken > capacityPerZone) {
+            zone.slots.decrementAndGet();
+            rejected.increment();
+            throw new BookingQueueFullException("Booking queue is full, try again later", retryAfterSeconds(taken));
+        }
+        return new Slot(zone);
+    }
+
+    private long retryAfterSeconds(int queued) {
+        long nanos = queued * averageMatchNanos.get();
+        return Math.clamp(TimeUnit.NANOSECONDS.toSeconds(nanos) + 1, 1, MAX_RETRY_AFTER_SECONDS);
+    }
+
+    private void drain(Zone zone) {
+        try {
+            QueuedMatch next = zone.queue.poll();
+            if (next != null) {
+                zone.slots.decrementAndGet();
+                depth.decrementAndGet();
+                long started = System.nanoTime();
+                bookingTimings.record("queue", started - next.enqueuedAtNanos());
+                try {
+                    next.match().run();
+                } catch (RuntimeException e) {
+                    System.err.println("Queued booking match failed: " + e.getMessage());
+                }
+                long took = System.nanoTime() - started;
+                averageMatchNanos.accumulateAndGet(took, (average, sample) -> average == 0 ? sample : (average * 7 + sample) / 8);
+            }
+        } finally {
+            zone.draining.set(false);
+            // Back to the end of the pool's queue, behind the other zones
+            if (!zone.queue.isEmpty() && zone.draining.compareAndSet(false, true)) {
+                workers.execute(() -> drain(zone));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    public final class Slot {
+        private final Zone zone;
+        private final AtomicBoolean used = new AtomicBoolean();
+
+        private Slot(Zone zone) {
+            this.zone = zone;
+        }
+
+        public void submit(Runnable match) {
+            if (!used.compareAndSet(false, true)) {
+                throw new IllegalStateException("Booking slot already used");
+            }
+            depth.incrementAndGet();
+            zone.queue.add(new QueuedMatch(match, System.nanoTime()));
+            if (zone.draining.compareAndSet(false, true)) {
+                workers.execute(() -> drain(zone));
+            }
+        }
+
+        public void release() {
+            if (used.compareAndSet(false, true)) {
+                zone.slots.decrementAndGet();
+            }
+        }
+    }
+
+    private static final class Zone {
+        // Slots held by bookings being saved plus the ones queued
+        final AtomicInteger slots = new AtomicInteger();
+        final Queue<QueuedMatch> queue = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean draining = new AtomicBoolean();
+    }
+
+    private record QueuedMatch(Runnable match, long enqueuedAtNanos) {
+    }
+}
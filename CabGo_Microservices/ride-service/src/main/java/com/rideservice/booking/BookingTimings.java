@@ -0,0 +1,32 @@
+package com.rideservice.booking;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-phase timing of each booking, published as ride.booking.phase{phase=...}.
+ * "lookups" is the wall time of the user lookup followed by the driver claim.
+ */
+@Component
+public class BookingTimings {
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public BookingTimings(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void record(String phase, long nanos) {
+        timers.computeIfAbsent(phase, p -> Timer.builder("ride.booking.phase")
+                        .description("Time spent in one phase of a booking")
+                        .tag("phase", p)
+                        .publishPercentiles(0.5, 0.99)
+                        .register(meterRegistry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,217 @@
+package com.rideservice.booking;
+
+import com.commonlib.exception.BookingInProgressException;
+import com.commonlib.exception.IdempotencyKeyReusedException;
+import com.rideservice.entity.BookingIdempotencyKey;
+import com.rideservice.entity.Ride;
+import com.rideservice.repository.BookingIdempotencyKeyRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key handling for POST /api/rides/book.
+ *
+ * Keys live in a bounded LRU with a TTL; a key maps to the future rideId of
+ * its first booking, so a retry that arrives while that booking is still
+ * running waits for it instead of claiming a second driver. On a memory
+ * miss the key is reserved in booking_idempotency_key before booking, and
+ * the primary key lets only one instance (or one attempt after a restart)
+ * win it; the ride id is attached once the booking is done. A failed
+ * booking releases its key and can be retried. Each key also remembers a
+ * fingerprint of its request, and reusing it for a different request is
+ * rejected rather than answered with the first ride.
+ */
+@Component
+public class IdempotentBookings {
+
+    private final BookingIdempotencyKeyRepository keyRepository;
+    private final long ttlMs;
+    private final long waitMs;
+    private final long pendingTimeoutMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> entries;
+
+    public IdempotentBookings(BookingIdempotencyKeyRepository keyRepository,
+                              @Value("${ride.idempotency.ttl-ms:86400000}") long ttlMs,
+                              @Value("${ride.idempotency.max-entries:100000}") int maxEntries,
+                              @Value("${ride.idempotency.wait-ms:5000}") long waitMs,
+                              @Value("${ride.idempotency.pending-timeout-ms:300000}") long pendingTimeoutMs) {
+        this.keyRepository = keyRepository;
+        this.ttlMs = ttlMs;
+        this.waitMs = waitMs;
+        this.pendingTimeoutMs = pendingTimeoutMs;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Runs the booking once per (user, key) within the TTL and returns its
+     * ride; repeats load that ride by id and make no remote calls. The
+     * request is fingerprinted by its toString, which the Lombok DTOs
+     * derive from every field.
+     */
+    public Ride book(String userEmail, String key, Object request, Supplier<Ride> booking, Function<Long, Ride> loadRide) {
+        String keyHash = hash(userEmail, key);
+        String fingerprint = hash(String.valueOf(request));
+        long now = System.currentTimeMillis();
+        CompletableFuture<Long> mine = new CompletableFuture<>();
+        Entry earlier = null;
+        lock.lock();
+        try {
+            Entry entry = entries.get(keyHash);
+            if (entry != null && entry.expiresAt() > now) {
+                earlier = entry;
+            } else {
+                entries.put(keyHash, new Entry(mine, fingerprint, now + ttlMs));
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (earlier != null) {
+            checkSameRequest(earlier.fingerprint(), fingerprint);
+            return loadRide.apply(await(earlier.rideId()));
+        }
+
+        // Not in memory: reserve the key, unless another instance or an attempt before a restart holds it
+        Long storedRideId;
+        try {
+            storedRideId = reserveOrFind(keyHash, fingerprint);
+        } catch (RuntimeException e) {
+            forget(keyHash, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        if (storedRideId != null) {
+            mine.complete(storedRideId);
+            return loadRide.apply(storedRideId);
+        }
+
+        Ride ride;
+        try {
+            ride = booking.get();
+        } catch (RuntimeException e) {
+            forget(keyHash, mine);
+            mine.completeExceptionally(e);
+            release(keyHash);
+            throw e;
+        }
+        mine.complete(ride.getRideId());
+        keyRepository.attachRide(keyHash, ride.getRideId());
+        return ride;
+    }
+
+    @Scheduled(fixedDelayString = "${ride.idempotency.cleanup-interval-ms:3600000}")
+    public void purgeExpired() {
+        keyRepository.deleteCreatedBefore(LocalDateTime.now().minus(ttlMs, ChronoUnit.MILLIS));
+    }
+
+    /**
+     * Returns null once this attempt holds the key, otherwise the ride
+     * booked under it.
+     */
+    private Long reserveOrFind(String keyHash, String fingerprint) {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            keyRepository.reserve(keyHash, fingerprint, now);
+            return null;
+        } catch (DataIntegrityViolationException e) {
+            // Already stored, see whether it can still be used
+        }
+        if (keyRepository.takeOver(keyHash, fingerprint, now, now.minus(ttlMs, ChronoUnit.MILLIS),
+                now.minus(pendingTimeoutMs, ChronoUnit.MILLIS)) == 1) {
+            return null;
+        }
+        BookingIdempotencyKey stored = keyRepository.findById(keyHash)
+                .orElseThrow(() -> new BookingInProgressException("A booking with this Idempotency-Key is still in progress"));
+        checkSameRequest(stored.getRequestFingerprint(), fingerprint);
+        if (stored.getRideId() == null) {
+            throw new BookingInProgressException("A booking with this Idempotency-Key is still in progress");
+        }
+        return stored.getRideId();
+    }
+
+    private static void checkSameRequest(String storedFingerprint, String fingerprint) {
+        if (!storedFingerprint.equals(fingerprint)) {
+            throw new IdempotencyKeyReusedException("This Idempotency-Key was already used for a different booking");
+        }
+    }
+
+    private void release(String keyHash) {
+        try {
+            keyRepository.release(keyHash);
+        } catch (RuntimeException e) {
+            // The reservation is taken over after ride.idempotency.pending-timeout-ms
+            System.err.println("Could not release Idempotency-Key reservation: " + e.getMessage());
+        }
+    }
+
+    private Long await(CompletableFuture<Long> rideId) {
+        try {
+            return rideId.get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new BookingInProgressException("A booking with this Idempotency-Key is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BookingInProgressException("Interrupted while waiting for the original booking");
+        } catch (ExecutionException e) {
+            // The original attempt failed; report the same failure
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private void forget(String keyHash, CompletableFuture<Long> attempt) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(keyHash);
+            if (entry != null && entry.rideId() == attempt) {
+                entries.remove(keyHash);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String hash(String... parts) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            for (int i = 0; i < parts.length; i++) {
+                if (i > 0) {
+                    sha256.update((byte) 0);
+                }
+                sha256.update(parts[i].getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(sha256.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Entry(CompletableFuture<Long> rideId, String fingerprint, long expiresAt) {
+    }
+}
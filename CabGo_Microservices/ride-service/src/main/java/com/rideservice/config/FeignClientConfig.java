@@ -1,6 +1,9 @@
 package com.rideservice.config;
 
+import com.commonlib.utils.JwtUtil;
+import com.rideservice.feign.AsService;
 import feign.RequestInterceptor;
+import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
@@ -9,10 +12,25 @@ import org.springframework.web.context.request.ServletRequestAttributes;
 import jakarta.servlet.http.HttpServletRequest;
 
 @Component
+@RequiredArgsConstructor
 public class FeignClientConfig {
+
+    // Service tokens are reused until shortly before they would expire
+    private static final long SERVICE_TOKEN_TTL_MS = 60 * 60 * 1000;
+
+    private final JwtUtil jwtUtil;
+
+    private volatile String serviceToken;
+    private volatile long serviceTokenExpiresAt;
+
     @Bean
     public RequestInterceptor requestInterceptor() {
         return template -> {
+            if (template.methodMetadata() != null
+                    && template.methodMetadata().method().isAnnotationPresent(AsService.class)) {
+                template.header("Authorization", "Bearer " + serviceToken());
+                return;
+            }
             ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
             if (attributes != null) {
                 HttpServletRequest request = attributes.getRequest();
@@ -20,7 +38,19 @@ public class FeignClientConfig {
                 if (authHeader != null) {
                     template.header("Authorization", authHeader);
                 }
+            } else {
+                // Background work (e.g. batch dispatch) has no caller token, authenticate as the service itself
+                template.header("Authorization", "Bearer " + serviceToken());
             }
         };
     }
+
+    private String serviceToken() {
+        long now = System.currentTimeMillis();
+        if (serviceToken == null || now >= serviceTokenExpiresAt) {
+            serviceToken = jwtUtil.generateToken("ride-service", "SERVICE");
+            serviceTokenExpiresAt = now + SERVICE_TOKEN_TTL_MS;
+        }
+        return serviceToken;
+    }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.rideservice.config;
 
 import com.commonlib.utils.JwtAuthenticationEntryPoint;
 import com.rideservice.util.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -39,6 +40,8 @@ public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         .csrf(csrf -> csrf.disable())
         .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
         .authorizeHttpRequests(auth -> auth
+            // Re-dispatch of an already authorized streaming response (SSE, StreamingResponseBody)
+            .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
             .requestMatchers(
                 "/api/drivers/available/first",
                 "/api/drivers/available",
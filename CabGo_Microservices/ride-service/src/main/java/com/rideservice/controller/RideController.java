@@ -1,34 +1,75 @@
 package com.rideservice.controller;
 
 import com.commonlib.dto.*;
+import com.commonlib.enums.RideStatus;
+import com.commonlib.enums.VehicleClass;
+import com.commonlib.exception.BookingInProgressException;
+import com.commonlib.exception.BookingQueueFullException;
+import com.commonlib.exception.IdempotencyKeyReusedException;
+import com.commonlib.exception.NoDriversAvailableException;
+import com.commonlib.exception.RideOfferConflictException;
+import com.commonlib.exception.RideStatusConflictException;
+import com.commonlib.exception.UserNotFoundException;
 import com.commonlib.utils.JwtUtil;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rideservice.entity.Ride;
+import com.rideservice.entity.RideEvent;
+import com.rideservice.events.DriverQueueView;
 import com.rideservice.feign.DriverServiceClient;
 import com.rideservice.feign.UserServiceClient;
+import com.rideservice.push.RideUpdateHub;
 import com.rideservice.service.RideService;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
 
 @RestController
 @RequestMapping("/api/rides")
 @RequiredArgsConstructor
 public class RideController {
 
+    // Cursor for the next /user/rides page
+    static final String NEXT_BEFORE_ID_HEADER = "X-Next-Before-Id";
+    // Rows fetched per keyset query while streaming a user's history
+    private static final int STREAM_PAGE_SIZE = 100;
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+    // Surge of the pickup zone already included in a fare quote
+    static final String SURGE_MULTIPLIER_HEADER = "X-Surge-Multiplier";
+
     private final RideService rideService;
     private final UserServiceClient userServiceClient;
     private final JwtUtil jwtUtil;
     private final DriverServiceClient driverServiceClient;
+    private final ObjectMapper objectMapper;
+    private final RideUpdateHub rideUpdateHub;
 
     @PostMapping("/book")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<Ride> bookRide(@RequestBody RideBookingRequest request, HttpServletRequest httpRequest) {
+    public ResponseEntity<Ride> bookRide(@RequestBody RideBookingRequest request,
+                                         @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                         HttpServletRequest httpRequest) {
+        if (idempotencyKey != null && idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            return ResponseEntity.badRequest().build();
+        }
+
         // Extract JWT from Authorization header
         String bearerToken = httpRequest.getHeader("Authorization");
         String token = null;
@@ -47,17 +88,148 @@ public class RideController {
             return ResponseEntity.badRequest().build();
         }
 
-        // Fetch user by email to get userId
-        UserResponse user = userServiceClient.getUserByEmail(email);
-        if (user == null || user.getUserId() == null) {
+        // The user lookup runs inside bookRide, before the driver claim
+        Ride ride;
+        try {
+            // A retry with the same Idempotency-Key gets the ride of the first attempt
+            ride = rideService.bookRide(request, email, idempotencyKey);
+        } catch (UserNotFoundException e) {
             return ResponseEntity.badRequest().build();
+        } catch (BookingInProgressException e) {
+            // The first attempt with this key has not finished yet
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IdempotencyKeyReusedException e) {
+            // Same key, different pickup, dropoff or class
+            return ResponseEntity.unprocessableEntity().build();
+        } catch (BookingQueueFullException e) {
+            // Async mode sheds load instead of queueing without bound
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .build();
+        } catch (NoDriversAvailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        if (ride.getDriverId() == null) {
+            // Waiting for a match, a driver to accept or the next batch window; the driver shows up on
+            // /api/rides/data/{rideId} and on /api/rides/{rideId}/stream
+            return ResponseEntity.accepted().body(ride);
         }
-
-        Ride ride = rideService.bookRide(request, user.getUserId());
         return ResponseEntity.ok(ride);
     }
 
 
+    @GetMapping("/heatmap")
+    public ResponseEntity<SupplyDemandSnapshot> getHeatmap(@RequestParam(defaultValue = "60000") long windowMs) {
+        // Open requests and available drivers per grid cell, served from memory in both services
+        return ResponseEntity.ok(rideService.getSupplyDemandHeatmap(windowMs));
+    }
+
+    @GetMapping("/fare")
+    public ResponseEntity<Map<VehicleClass, Double>> getFareQuote(@RequestParam(required = false) Double pickupLatitude,
+                                                                  @RequestParam(required = false) Double pickupLongitude,
+                                                                  @RequestParam(required = false) Double dropoffLatitude,
+                                                                  @RequestParam(required = false) Double dropoffLongitude) {
+        // The same fare the booking will be charged, one entry per vehicle class
+        return ResponseEntity.ok()
+                .header(SURGE_MULTIPLIER_HEADER, String.valueOf(rideService.getSurgeMultiplier(pickupLatitude, pickupLongitude)))
+                .body(rideService.getFareQuote(pickupLatitude, pickupLongitude, dropoffLatitude, dropoffLongitude));
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<Map<RideStatus, Long>> getStatusCounts() {
+        // Maintained from the ride event log, the ride table is not queried
+        return ResponseEntity.ok(rideService.getStatusCounts());
+    }
+
+    @GetMapping("/{rideId}/events")
+    @PreAuthorize("hasRole('USER') or hasRole('DRIVER') or hasRole('SERVICE')")
+    public ResponseEntity<List<RideEvent>> getRideTimeline(@PathVariable Long rideId, HttpServletRequest httpRequest) {
+        Ride ride;
+        try {
+            ride = rideService.getRideById(rideId);
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!canReadRide(ride, httpRequest)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(rideService.getRideTimeline(rideId));
+    }
+
+    private boolean canReadRide(Ride ride, HttpServletRequest httpRequest) {
+        return rideReader(httpRequest).test(ride);
+    }
+
+    // Which rides the caller may read: its own as rider or driver, or any when another
+    // service calls with its own token. The caller is looked up once, not per ride
+    private Predicate<Ride> rideReader(HttpServletRequest httpRequest) {
+        String bearerToken = httpRequest.getHeader("Authorization");
+        if (bearerToken == null || !bearerToken.startsWith("Bearer ")) {
+            return ride -> false;
+        }
+        String role;
+        try {
+            role = jwtUtil.getClaimFromToken(bearerToken.substring(7), "role");
+        } catch (Exception e) {
+            return ride -> false;
+        }
+        if ("SERVICE".equals(role)) {
+            return ride -> true;
+        }
+        if ("DRIVER".equals(role)) {
+            Long driverId = authenticatedDriverId(httpRequest);
+            return ride -> driverId != null && driverId.equals(ride.getDriverId());
+        }
+        Long userId = authenticatedUserId(httpRequest);
+        return ride -> userId != null && userId.equals(ride.getUserId());
+    }
+
+    @GetMapping(value = "/driver/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('DRIVER')")
+    public ResponseEntity<SseEmitter> streamDriverUpdates(HttpServletRequest httpRequest) {
+        Long driverId = authenticatedDriverId(httpRequest);
+        if (driverId == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        SseEmitter emitter = rideUpdateHub.subscribeDriver(driverId);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        // An offer made before (re)connecting would otherwise only be seen on the next one
+        RideOfferResponse offer = rideService.getCurrentOffer(driverId);
+        if (offer != null) {
+            rideUpdateHub.pushOffer(driverId, offer);
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    @GetMapping(value = "/{rideId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<SseEmitter> streamRideUpdates(@PathVariable Long rideId, HttpServletRequest httpRequest) {
+        Long userId = authenticatedUserId(httpRequest);
+        if (userId == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!userId.equals(rideService.getRideById(rideId).getUserId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        SseEmitter emitter = rideUpdateHub.subscribeRide(rideId);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    @GetMapping("/driver/queue")
+    @PreAuthorize("hasRole('DRIVER')")
+    public ResponseEntity<List<DriverQueueView.Entry>> getDriverQueue(HttpServletRequest httpRequest) {
+        Long driverId = authenticatedDriverId(httpRequest);
+        if (driverId == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(rideService.getDriverQueue(driverId));
+    }
+
     @PutMapping("/status")
     @PreAuthorize("hasRole('DRIVER')")
     public ResponseEntity<ApiResponse> updateStatus(@RequestParam String status, HttpServletRequest httpRequest) {
@@ -86,41 +258,152 @@ public class RideController {
         }
 
         // Update ride status using driverId
-        rideService.updateStatusByDriver(driver.getDriverId(), status);
+        try {
+            rideService.updateStatusByDriver(driver.getDriverId(), status);
+        } catch (RideStatusConflictException e) {
+            // Illegal transition, or another update got there first
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiResponse(false, e.getMessage(), null));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse(false, "Unknown ride status: " + status, null));
+        }
         return ResponseEntity.ok(new ApiResponse(true, "Ride status updated successfully", null));
     }
 
 
-    @GetMapping("/user/rides")
-    @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<List<Ride>> getUserRides(HttpServletRequest httpRequest) {
-        // Extract JWT from Authorization header
-        String bearerToken = httpRequest.getHeader("Authorization");
-        String token = null;
-        if (bearerToken != null && bearerToken.startsWith("Bearer ")) {
-            token = bearerToken.substring(7);
+    @GetMapping("/offer")
+    @PreAuthorize("hasRole('DRIVER')")
+    public ResponseEntity<RideOfferResponse> getCurrentOffer(HttpServletRequest httpRequest) {
+        Long driverId = authenticatedDriverId(httpRequest);
+        if (driverId == null) {
+            return ResponseEntity.badRequest().build();
         }
-        if (token == null) {
+        RideOfferResponse offer = rideService.getCurrentOffer(driverId);
+        return offer == null ? ResponseEntity.noContent().build() : ResponseEntity.ok(offer);
+    }
+
+    @PutMapping("/accept")
+    @PreAuthorize("hasRole('DRIVER')")
+    public ResponseEntity<ApiResponse> acceptOffer(@RequestParam Long rideId, HttpServletRequest httpRequest) {
+        Long driverId = authenticatedDriverId(httpRequest);
+        if (driverId == null) {
             return ResponseEntity.badRequest().build();
         }
+        try {
+            Ride ride = rideService.acceptOffer(rideId, driverId);
+            return ResponseEntity.ok(new ApiResponse(true, "Ride accepted", ride));
+        } catch (RideOfferConflictException e) {
+            // Expired, declined or taken back before the accept arrived
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiResponse(false, e.getMessage(), null));
+        }
+    }
 
-        // Extract email from token
-        String email;
+    @PutMapping("/decline")
+    @PreAuthorize("hasRole('DRIVER')")
+    public ResponseEntity<ApiResponse> declineOffer(@RequestParam Long rideId, HttpServletRequest httpRequest) {
+        Long driverId = authenticatedDriverId(httpRequest);
+        if (driverId == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            rideService.declineOffer(rideId, driverId);
+            return ResponseEntity.ok(new ApiResponse(true, "Ride declined", null));
+        } catch (RideOfferConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiResponse(false, e.getMessage(), null));
+        }
+    }
+
+    // Driver id behind the bearer token, or null when the token or driver cannot be resolved
+    private Long authenticatedDriverId(HttpServletRequest httpRequest) {
+        String bearerToken = httpRequest.getHeader("Authorization");
+        if (bearerToken == null || !bearerToken.startsWith("Bearer ")) {
+            return null;
+        }
         try {
-            email = jwtUtil.getUsernameFromToken(token);
+            String phoneNumber = jwtUtil.getPhoneNumberFromToken(bearerToken.substring(7));
+            DriverResponse driver = driverServiceClient.getDriverByPhone(phoneNumber);
+            return driver == null ? null : driver.getDriverId();
         } catch (Exception e) {
+            return null;
+        }
+    }
+
+
+    @GetMapping("/user/rides")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<List<Ride>> getUserRides(@RequestParam(required = false) Long beforeId,
+                                                   @RequestParam(required = false) Integer size,
+                                                   HttpServletRequest httpRequest) {
+        Long userId = authenticatedUserId(httpRequest);
+        if (userId == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        // Newest rides first; pass the returned cursor as beforeId for the next page
+        List<Ride> userRides = rideService.getUserRides(userId, beforeId, size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (!userRides.isEmpty()) {
+            response.header(NEXT_BEFORE_ID_HEADER, String.valueOf(userRides.get(userRides.size() - 1).getRideId()));
+        }
+        return response.body(userRides);
+    }
+
+    @GetMapping("/user/latest")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<Ride> getLatestUserRide(@RequestParam(required = false) RideStatus status,
+                                                  HttpServletRequest httpRequest) {
+        Long userId = authenticatedUserId(httpRequest);
+        if (userId == null) {
             return ResponseEntity.badRequest().build();
         }
+        Ride ride = rideService.getLatestUserRide(userId, status);
+        // 204 rather than 404, so Feign callers just see an empty body
+        return ride == null ? ResponseEntity.noContent().build() : ResponseEntity.ok(ride);
+    }
 
-        // Fetch user by email to get userId
-        UserResponse user = userServiceClient.getUserByEmail(email);
-        if (user == null || user.getUserId() == null) {
+    @GetMapping("/user/rides/stream")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<StreamingResponseBody> streamUserRides(HttpServletRequest httpRequest) {
+        Long userId = authenticatedUserId(httpRequest);
+        if (userId == null) {
             return ResponseEntity.badRequest().build();
         }
+        // Whole history, fetched page by page and written as it goes so heap use does not grow with it
+        StreamingResponseBody body = out -> writeUserRides(userId, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private void writeUserRides(Long userId, OutputStream out) throws IOException {
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            json.writeStartArray();
+            Long beforeId = null;
+            List<Ride> page;
+            do {
+                page = rideService.getUserRides(userId, beforeId, STREAM_PAGE_SIZE);
+                for (Ride ride : page) {
+                    json.writeObject(ride);
+                }
+                json.flush();
+                if (!page.isEmpty()) {
+                    beforeId = page.get(page.size() - 1).getRideId();
+                }
+            } while (page.size() == STREAM_PAGE_SIZE);
+            json.writeEndArray();
+        }
+    }
 
-        // Fetch the rides for the user
-        List<Ride> userRides = rideService.getUserRides(user.getUserId());
-        return ResponseEntity.ok(userRides);
+    // User id behind the bearer token, or null when the token or user cannot be resolved
+    private Long authenticatedUserId(HttpServletRequest httpRequest) {
+        String bearerToken = httpRequest.getHeader("Authorization");
+        if (bearerToken == null || !bearerToken.startsWith("Bearer ")) {
+            return null;
+        }
+        try {
+            String email = jwtUtil.getUsernameFromToken(bearerToken.substring(7));
+            UserResponse user = userServiceClient.getUserByEmail(email);
+            return user == null ? null : user.getUserId();
+        } catch (Exception e) {
+            return null;
+        }
     }
 
 
@@ -133,14 +416,41 @@ public class RideController {
         // Call user-service to get user email
         UserResponse user = userServiceClient.getUserById(ride.getUserId());
 
+        return ResponseEntity.ok(toRideDTO(ride, user.getEmail()));
+    }
+
+    // Many rides at once: one IN query for the rides and one user-service call for all their users.
+    // Rides the caller may not read are left out, like unknown ids
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('USER') or hasRole('DRIVER') or hasRole('SERVICE')")
+    public ResponseEntity<List<RideDTO>> getRidesByIds(@RequestBody List<Long> rideIds, HttpServletRequest httpRequest) {
+        List<Ride> rides;
+        try {
+            rides = rideService.getRidesByIds(rideIds);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        rides = rides.stream().filter(rideReader(httpRequest)).toList();
+        if (rides.isEmpty()) {
+            return ResponseEntity.ok(List.of());
+        }
+        List<Long> userIds = rides.stream().map(Ride::getUserId).distinct().toList();
+        Map<Long, String> emails = new HashMap<>();
+        for (UserEmailResponse user : userServiceClient.getUsersByIds(userIds)) {
+            emails.put(user.getUserId(), user.getEmail());
+        }
+        return ResponseEntity.ok(rides.stream().map(ride -> toRideDTO(ride, emails.get(ride.getUserId()))).toList());
+    }
+
+    private static RideDTO toRideDTO(Ride ride, String userEmail) {
         RideDTO dto = new RideDTO();
         dto.setRideId(ride.getRideId());
         dto.setUserId(ride.getUserId());
         dto.setDriverId(ride.getDriverId());
-        dto.setUserEmail(user.getEmail()); // <-- Set userEmail from user-service
+        dto.setUserEmail(userEmail); // <-- Set userEmail from user-service
         dto.setStatus(ride.getStatus().toString());
         // set other fields as needed
-        return ResponseEntity.ok(dto);
+        return dto;
     }
 
 
@@ -0,0 +1,199 @@
+package com.rideservice.dispatch;
+
+import java.util.Arrays;
+
+/**
+ * Solves the rider-to-driver assignment problem for one batch.
+ *
+ * cost[i][j] is the cost of giving driver j to request i; use
+ * {@link #UNREACHABLE} for pairs that must never be matched. The result holds,
+ * for every request, the chosen driver column or -1 when it stays unmatched.
+ * Small batches are solved optimally with the Hungarian method, large ones
+ * with a greedy pass followed by local swap improvement.
+ */
+public final class AssignmentSolver {
+
+    public static final double UNREACHABLE = Double.POSITIVE_INFINITY;
+
+    // Finite stand-in for UNREACHABLE inside the Hungarian method
+    private static final double BIG = 1e9;
+    private static final int MAX_IMPROVEMENT_PASSES = 5;
+
+    private AssignmentSolver() {
+    }
+
+    public static int[] solve(double[][] cost, int hungarianLimit) {
+        if (cost.length == 0) {
+            return new int[0];
+        }
+        int drivers = cost[0].length;
+        if (Math.max(cost.length, drivers) <= hungarianLimit) {
+            return hungarian(cost);
+        }
+        return greedyWithImprovement(cost);
+    }
+
+    /**
+     * Optimal assignment (Kuhn-Munkres with potentials), O(n^2 * m).
+     */
+    public static int[] hungarian(double[][] cost) {
+        int rows = cost.length;
+        int cols = rows == 0 ? 0 : cost[0].length;
+        int[] result = new int[rows];
+        Arrays.fill(result, -1);
+        if (rows == 0 || cols == 0) {
+            return result;
+        }
+
+        // The algorithm needs rows <= cols, so work on the transpose when there are more requests than drivers
+        boolean transposed = rows > cols;
+        int n = transposed ? cols : rows;
+        int m = transposed ? rows : cols;
+        double[][] a = new double[n + 1][m + 1];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < m; j++) {
+                double c = transposed ? cost[j][i] : cost[i][j];
+                a[i + 1][j + 1] = Double.isInfinite(c) ? BIG : c;
+            }
+        }
+
+        double[] u = new double[n + 1];
+        double[] v = new double[m + 1];
+        int[] p = new int[m + 1];
+        int[] way = new int[m + 1];
+        for (int i = 1; i <= n; i++) {
+            p[0] = i;
+            int j0 = 0;
+            double[] minv = new double[m + 1];
+            boolean[] used = new boolean[m + 1];
+            Arrays.fill(minv, Double.POSITIVE_INFINITY);
+            do {
+                used[j0] = true;
+                int i0 = p[j0];
+                int j1 = 0;
+                double delta = Double.POSITIVE_INFINITY;
+                for (int j = 1; j <= m; j++) {
+                    if (!used[j]) {
+                        double cur = a[i0][j] - u[i0] - v[j];
+                        if (cur < minv[j]) {
+                            minv[j] = cur;
+                            way[j] = j0;
+                        }
+                        if (minv[j] < delta) {
+                            delta = minv[j];
+                            j1 = j;
+                        }
+                    }
+                }
+                for (int j = 0; j <= m; j++) {
+                    if (used[j]) {
+                        u[p[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (p[j0] != 0);
+            do {
+                int j1 = way[j0];
+                p[j0] = p[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+
+        for (int j = 1; j <= m; j++) {
+            if (p[j] == 0) {
+                continue;
+            }
+            int row = transposed ? j - 1 : p[j] - 1;
+            int col = transposed ? p[j] - 1 : j - 1;
+            if (!Double.isInfinite(cost[row][col])) {
+                result[row] = col;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Greedy on globally sorted edges, then pairwise swaps and moves to free
+     * drivers while they lower the total cost. Near-optimal and O(E log E).
+     */
+    public static int[] greedyWithImprovement(double[][] cost) {
+        int rows = cost.length;
+        int cols = rows == 0 ? 0 : cost[0].length;
+        int[] result = new int[rows];
+        Arrays.fill(result, -1);
+        if (rows == 0 || cols == 0) {
+            return result;
+        }
+
+        int edgeCount = 0;
+        long[] edges = new long[rows * cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (!Double.isInfinite(cost[i][j])) {
+                    edges[edgeCount++] = ((long) i << 32) | j;
+                }
+            }
+        }
+        Long[] order = new Long[edgeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            order[e] = edges[e];
+        }
+        Arrays.sort(order, (x, y) -> Double.compare(
+                cost[(int) (x >> 32)][(int) (long) x], cost[(int) (y >> 32)][(int) (long) y]));
+
+        int[] driverOwner = new int[cols];
+        Arrays.fill(driverOwner, -1);
+        for (Long edge : order) {
+            int i = (int) (edge >> 32);
+            int j = (int) (long) edge;
+            if (result[i] == -1 && driverOwner[j] == -1) {
+                result[i] = j;
+                driverOwner[j] = i;
+            }
+        }
+
+        for (int pass = 0; pass < MAX_IMPROVEMENT_PASSES; pass++) {
+            boolean improved = false;
+            for (int a = 0; a < rows; a++) {
+                int ja = result[a];
+                if (ja == -1) {
+                    continue;
+                }
+                // Move to a free driver that is cheaper
+                for (int j = 0; j < cols; j++) {
+                    if (driverOwner[j] == -1 && cost[a][j] < cost[a][ja]) {
+                        driverOwner[ja] = -1;
+                        driverOwner[j] = a;
+                        result[a] = j;
+                        ja = j;
+                        improved = true;
+                    }
+                }
+                // Swap drivers with another request when both together get cheaper
+                for (int b = a + 1; b < rows; b++) {
+                    int jb = result[b];
+                    if (jb == -1) {
+                        continue;
+                    }
+                    double before = cost[a][ja] + cost[b][jb];
+                    double after = cost[a][jb] + cost[b][ja];
+                    if (after < before) {
+                        result[a] = jb;
+                        result[b] = ja;
+                        driverOwner[jb] = a;
+                        driverOwner[ja] = b;
+                        ja = jb;
+                        improved = true;
+                    }
+                }
+            }
+            if (!improved) {
+                break;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,211 @@
+package com.rideservice.dispatch;
+
+import com.commonlib.dto.DriverResponse;
+import com.commonlib.dto.NearbyDriverResponse;
+import com.commonlib.enums.RideStatus;
+import com.commonlib.geo.GeoGrid;
+import com.rideservice.active.ActiveRideIndex;
+import com.rideservice.entity.Ride;
+import com.rideservice.eta.EtaEstimator;
+import com.rideservice.events.RideEventLog;
+import com.rideservice.events.RideEventType;
+import com.rideservice.feign.DriverServiceClient;
+import com.rideservice.heatmap.DemandHeatmap;
+import com.rideservice.offer.RideOfferManager;
+import com.rideservice.repository.RideRepository;
+import feign.FeignException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional batch-dispatch mode (ride.dispatch.mode=BATCH).
+ *
+ * Bookings are collected for one window, grouped into zones and each zone is
+ * solved as an assignment problem against the drivers around it. Zones are
+ * independent, so they are solved in parallel on a fork-join pool. Winners
+ * are claimed one by one in driver-service; requests that lose a claim or
+ * find no driver stay queued for the next window until max-wait-ms.
+ */
+@Component
+public class BatchDispatcher {
+
+    private final RideRepository rideRepository;
+    private final DriverServiceClient driverServiceClient;
+    private final DemandHeatmap demandHeatmap;
+    private final RideOfferManager rideOfferManager;
+    private final ActiveRideIndex activeRideIndex;
+    private final RideEventLog rideEventLog;
+    private final boolean enabled;
+    private final long maxWaitNanos;
+    private final GeoGrid zoneGrid;
+    private final BatchMatcher matcher;
+    private final ForkJoinPool solverPool;
+
+    private final ConcurrentLinkedQueue<PendingRide> queue = new ConcurrentLinkedQueue<>();
+
+    private final Timer timeToMatch;
+    private final DistributionSummary batchSize;
+
+    public BatchDispatcher(RideRepository rideRepository,
+                           DriverServiceClient driverServiceClient,
+                           DemandHeatmap demandHeatmap,
+                           EtaEstimator etaEstimator,
+                           RideOfferManager rideOfferManager,
+                           ActiveRideIndex activeRideIndex,
+                           RideEventLog rideEventLog,
+                           MeterRegistry meterRegistry,
+                           @Value("${ride.dispatch.mode:SYNC}") String mode,
+                           @Value("${ride.dispatch.window-ms:2000}") long windowMs,
+                           @Value("${ride.dispatch.max-wait-ms:60000}") long maxWaitMs,
+                           @Value("${ride.dispatch.zone-degrees:0.05}") double zoneDegrees,
+                           @Value("${ride.dispatch.max-pickup-km:5}") double maxPickupKm,
+                           @Value("${ride.dispatch.hungarian-limit:64}") int hungarianLimit,
+                           @Value("${ride.dispatch.solver-parallelism:0}") int solverParallelism) {
+        this.rideRepository = rideRepository;
+        this.driverServiceClient = driverServiceClient;
+        this.demandHeatmap = demandHeatmap;
+        this.rideOfferManager = rideOfferManager;
+        this.activeRideIndex = activeRideIndex;
+        this.rideEventLog = rideEventLog;
+        this.enabled = "BATCH".equalsIgnoreCase(mode);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.zoneGrid = new GeoGrid(zoneDegrees);
+        this.matcher = new BatchMatcher(maxPickupKm, hungarianLimit, etaEstimator::estimateSeconds);
+        this.solverPool = new ForkJoinPool(solverParallelism > 0
+                ? solverParallelism : Runtime.getRuntime().availableProcessors());
+
+        this.timeToMatch = Timer.builder("ride.dispatch.time.to.match")
+                .description("Time from booking to driver assignment in batch mode")
+                .tag("window.ms", String.valueOf(windowMs))
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("ride.dispatch.batch.size")
+                .tag("window.ms", String.valueOf(windowMs))
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void enqueue(Ride ride) {
+        queue.add(new PendingRide(ride, System.nanoTime()));
+    }
+
+    public int queuedCount() {
+        return queue.size();
+    }
+
+    @Scheduled(fixedDelayString = "${ride.dispatch.window-ms:2000}")
+    public void dispatchWindow() {
+        if (!enabled || queue.isEmpty()) {
+            return;
+        }
+        List<PendingRide> batch = new ArrayList<>();
+        PendingRide next;
+        while ((next = queue.poll()) != null) {
+            batch.add(next);
+        }
+        batchSize.record(batch.size());
+
+        List<BatchMatcher.RideRequest> requests = new ArrayList<>(batch.size());
+        Map<Long, PendingRide> byRideId = new HashMap<>();
+        for (PendingRide pending : batch) {
+            Ride ride = pending.ride();
+            requests.add(new BatchMatcher.RideRequest(ride.getRideId(),
+                    ride.getPickupLatitude(), ride.getPickupLongitude()));
+            byRideId.put(ride.getRideId(), pending);
+        }
+
+        List<BatchMatcher.Match> matches;
+        try {
+            matches = matcher.matchWindow(requests, zoneGrid, this::fetchCandidates, solverPool);
+        } catch (RuntimeException e) {
+            System.err.println("Batch dispatch solve failed: " + e.getMessage());
+            matches = List.of();
+        }
+        for (BatchMatcher.Match match : matches) {
+            PendingRide pending = byRideId.get(match.rideId());
+            if (assign(pending, match)) {
+                byRideId.remove(match.rideId());
+            }
+        }
+
+        // Everything left over goes into the next window unless it has waited too long
+        long now = System.nanoTime();
+        for (PendingRide pending : byRideId.values()) {
+            if (now - pending.enqueuedAtNanos() > maxWaitNanos) {
+                Long rideId = pending.ride().getRideId();
+                if (rideRepository.transition(rideId, List.of(RideStatus.REQUESTED), RideStatus.CANCELLED) > 0) {
+                    demandHeatmap.onLeftRequested(rideId);
+                    rideEventLog.statusChanged(rideId, RideStatus.CANCELLED);
+                }
+            } else {
+                queue.add(pending);
+            }
+        }
+    }
+
+    private List<BatchMatcher.DriverCandidate> fetchCandidates(double lat, double lng, int k) {
+        List<BatchMatcher.DriverCandidate> candidates = new ArrayList<>();
+        try {
+            for (NearbyDriverResponse driver : driverServiceClient.getNearestAvailableDrivers(lat, lng, Math.min(k, 100))) {
+                candidates.add(new BatchMatcher.DriverCandidate(driver.getDriverId(),
+                        driver.getLatitude(), driver.getLongitude()));
+            }
+        } catch (FeignException e) {
+            System.err.println("Could not fetch driver candidates: " + e.getMessage());
+        }
+        return candidates;
+    }
+
+    private boolean assign(PendingRide pending, BatchMatcher.Match match) {
+        long driverId = match.driverId();
+        try {
+            DriverResponse claimed = driverServiceClient.claimDriverById(driverId);
+            if (claimed == null) {
+                return false;
+            }
+        } catch (FeignException e) {
+            // Taken by another booking or zone since the candidate list was fetched
+            return false;
+        }
+        Ride ride = pending.ride();
+        // Matching ran on ETA seconds, so the winning cost is the pickup estimate
+        int pickupSeconds = (int) Math.round(match.pickupCost());
+        if (rideOfferManager.isEnabled()) {
+            rideOfferManager.open(ride, driverId, pickupSeconds);
+        } else if (rideRepository.assignDriver(ride.getRideId(), driverId, pickupSeconds,
+                RideStatus.REQUESTED, RideStatus.REQUESTED) == 0) {
+            // Cancelled while it was queued, give the driver back
+            driverServiceClient.setDriverAvailable(driverId, true);
+            return true;
+        } else {
+            activeRideIndex.assign(driverId, ride.getRideId());
+            rideEventLog.append(RideEventType.ASSIGNED, ride.getRideId(), null, driverId, RideStatus.REQUESTED);
+        }
+        timeToMatch.record(System.nanoTime() - pending.enqueuedAtNanos(), TimeUnit.NANOSECONDS);
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        solverPool.shutdown();
+    }
+
+    private record PendingRide(Ride ride, long enqueuedAtNanos) {
+    }
+}
@@ -0,0 +1,130 @@
+package com.rideservice.dispatch;
+
+import com.commonlib.geo.GeoGrid;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Matches one zone's worth of ride requests against nearby drivers by
+ * minimising the total pickup distance. Pure computation, no remote calls,
+ * so it can be run on the solver pool and from the dispatch simulator.
+ */
+public class BatchMatcher {
+
+    private final double maxPickupKm;
+    private final int hungarianLimit;
+    private final PickupCost pickupCost;
+
+    public BatchMatcher(double maxPickupKm, int hungarianLimit) {
+        this(maxPickupKm, hungarianLimit, null);
+    }
+
+    /**
+     * With a pickup cost (e.g. ETA seconds) the solver minimises that instead
+     * of straight-line km; maxPickupKm still decides which pairs are allowed.
+     */
+    public BatchMatcher(double maxPickupKm, int hungarianLimit, PickupCost pickupCost) {
+        this.maxPickupKm = maxPickupKm;
+        this.hungarianLimit = hungarianLimit;
+        this.pickupCost = pickupCost;
+    }
+
+    /**
+     * Solves one dispatch window: groups the requests into zones, asks the
+     * source for drivers around each zone's centroid and solves the zones in
+     * parallel on the given pool. A driver may come back for two zones; the
+     * caller's claim decides which one gets it.
+     */
+    public List<Match> matchWindow(List<RideRequest> requests, GeoGrid zoneGrid,
+                                   CandidateSource source, ForkJoinPool pool) {
+        Map<Long, List<RideRequest>> zones = new LinkedHashMap<>();
+        for (RideRequest request : requests) {
+            zones.computeIfAbsent(zoneGrid.cellOf(request.latitude(), request.longitude()),
+                    z -> new ArrayList<>()).add(request);
+        }
+
+        // Candidate lookups may be remote calls, fetch them before handing the CPU-bound solve to the pool
+        List<Callable<List<Match>>> tasks = new ArrayList<>(zones.size());
+        for (List<RideRequest> zoneRequests : zones.values()) {
+            double latSum = 0;
+            double lngSum = 0;
+            for (RideRequest request : zoneRequests) {
+                latSum += request.latitude();
+                lngSum += request.longitude();
+            }
+            List<DriverCandidate> drivers = source.near(latSum / zoneRequests.size(),
+                    lngSum / zoneRequests.size(), zoneRequests.size() * 2 + 5);
+            tasks.add(() -> match(zoneRequests, drivers));
+        }
+
+        List<Match> matches = new ArrayList<>();
+        try {
+            for (Future<List<Match>> result : pool.invokeAll(tasks)) {
+                matches.addAll(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch solve failed", e.getCause());
+        }
+        return matches;
+    }
+
+    public List<Match> match(List<RideRequest> requests, List<DriverCandidate> drivers) {
+        List<Match> matches = new ArrayList<>();
+        if (requests.isEmpty() || drivers.isEmpty()) {
+            return matches;
+        }
+
+        double[][] cost = new double[requests.size()][drivers.size()];
+        for (int i = 0; i < requests.size(); i++) {
+            RideRequest request = requests.get(i);
+            for (int j = 0; j < drivers.size(); j++) {
+                DriverCandidate driver = drivers.get(j);
+                double km = GeoGrid.distanceKm(request.latitude(), request.longitude(),
+                        driver.latitude(), driver.longitude());
+                if (km > maxPickupKm) {
+                    cost[i][j] = AssignmentSolver.UNREACHABLE;
+                } else {
+                    cost[i][j] = pickupCost == null ? km : pickupCost.of(driver.latitude(), driver.longitude(),
+                            request.latitude(), request.longitude());
+                }
+            }
+        }
+
+        int[] assignment = AssignmentSolver.solve(cost, hungarianLimit);
+        for (int i = 0; i < assignment.length; i++) {
+            if (assignment[i] >= 0) {
+                matches.add(new Match(requests.get(i).rideId(), drivers.get(assignment[i]).driverId(),
+                        cost[i][assignment[i]]));
+            }
+        }
+        return matches;
+    }
+
+    @FunctionalInterface
+    public interface CandidateSource {
+        List<DriverCandidate> near(double latitude, double longitude, int k);
+    }
+
+    @FunctionalInterface
+    public interface PickupCost {
+        double of(double driverLatitude, double driverLongitude, double pickupLatitude, double pickupLongitude);
+    }
+
+    public record RideRequest(long rideId, double latitude, double longitude) {
+    }
+
+    public record DriverCandidate(long driverId, double latitude, double longitude) {
+    }
+
+    public record Match(long rideId, long driverId, double pickupCost) {
+    }
+}
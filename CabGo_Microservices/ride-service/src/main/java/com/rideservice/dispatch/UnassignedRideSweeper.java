@@ -0,0 +1,109 @@
+package com.rideservice.dispatch;
+
+import com.commonlib.enums.RideStatus;
+import com.rideservice.entity.Ride;
+import com.rideservice.events.RideEventLog;
+import com.rideservice.feign.DriverServiceClient;
+import com.rideservice.heatmap.DemandHeatmap;
+import com.rideservice.repository.RideRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Looks after REQUESTED rides that are still waiting for a driver. Offers,
+ * the batch window and the async booking queue all hold those rides in
+ * memory only.
+ *
+ * On startup every such ride left over from before the restart has its
+ * offered driver released in driver-service. It then goes back into the
+ * batch window when batch mode is on and it is younger than max-age-ms,
+ * and is cancelled otherwise, so the rider sees a CANCELLED event instead
+ * of waiting forever. While running, any ride that has had no driver for
+ * max-age-ms is cancelled, whatever dropped it.
+ *
+ * Assumes one ride-service instance does the dispatching, as the in-memory
+ * queues already do.
+ */
+@Component
+public class UnassignedRideSweeper {
+
+    private final RideRepository rideRepository;
+    private final DriverServiceClient driverServiceClient;
+    private final DemandHeatmap demandHeatmap;
+    private final RideEventLog rideEventLog;
+    private final BatchDispatcher batchDispatcher;
+    private final Duration maxAge;
+    // Rides from before this were queued by a previous run; later ones may be in this run's queues
+    private final LocalDateTime startedAt = LocalDateTime.now();
+
+    private final Counter requeued;
+    private final Counter cancelled;
+
+    public UnassignedRideSweeper(RideRepository rideRepository,
+                                 DriverServiceClient driverServiceClient,
+                                 DemandHeatmap demandHeatmap,
+                                 RideEventLog rideEventLog,
+                                 BatchDispatcher batchDispatcher,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${ride.unassigned.max-age-ms:600000}") long maxAgeMs) {
+        this.rideRepository = rideRepository;
+        this.driverServiceClient = driverServiceClient;
+        this.demandHeatmap = demandHeatmap;
+        this.rideEventLog = rideEventLog;
+        this.batchDispatcher = batchDispatcher;
+        this.maxAge = Duration.ofMillis(maxAgeMs);
+        this.requeued = meterRegistry.counter("ride.unassigned.swept", "outcome", "requeued");
+        this.cancelled = meterRegistry.counter("ride.unassigned.swept", "outcome", "cancelled");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        LocalDateTime tooOld = LocalDateTime.now().minus(maxAge);
+        for (Ride ride : rideRepository.findUnassignedBefore(RideStatus.REQUESTED, startedAt)) {
+            try {
+                if (ride.getOfferedDriverId() != null) {
+                    driverServiceClient.setDriverAvailable(ride.getOfferedDriverId(), true);
+                }
+                if (batchDispatcher.isEnabled() && ride.getPickupLatitude() != null && ride.getPickupLongitude() != null
+                        && ride.getRequestedAt() != null && ride.getRequestedAt().isAfter(tooOld)) {
+                    batchDispatcher.enqueue(ride);
+                    requeued.increment();
+                } else {
+                    cancel(ride.getRideId());
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Could not recover ride " + ride.getRideId() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Live offers free their own driver when they lapse or are answered, so this only cancels
+    @Scheduled(fixedDelayString = "${ride.unassigned.sweep-interval-ms:60000}",
+            initialDelayString = "${ride.unassigned.sweep-interval-ms:60000}")
+    public void cancelStale() {
+        for (Ride ride : rideRepository.findUnassignedBefore(RideStatus.REQUESTED, LocalDateTime.now().minus(maxAge))) {
+            try {
+                cancel(ride.getRideId());
+            } catch (RuntimeException e) {
+                System.err.println("Could not cancel stale ride " + ride.getRideId() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void cancel(Long rideId) {
+        if (rideRepository.transition(rideId, List.of(RideStatus.REQUESTED), RideStatus.CANCELLED) > 0) {
+            cancelled.increment();
+            demandHeatmap.onLeftRequested(rideId);
+            rideEventLog.statusChanged(rideId, RideStatus.CANCELLED);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.rideservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * The one ride a driver is currently on, keyed by driver so the lookup is a
+ * primary key hit. Rows are removed when the ride completes or is cancelled.
+ */
+@Entity
+@Table(name = "active_ride", indexes = @Index(name = "uk_active_ride_ride_id", columnList = "ride_id", unique = true))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActiveRide {
+
+    @Id
+    private Long driverId;
+
+    @Column(name = "ride_id", nullable = false)
+    private Long rideId;
+}
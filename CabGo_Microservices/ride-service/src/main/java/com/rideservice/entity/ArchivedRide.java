@@ -0,0 +1,65 @@
+package com.rideservice.entity;
+
+import com.commonlib.enums.RideStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cold copy of a finished ride. Same columns as {@link Ride} and the same
+ * rideId, so history reads can merge both tables by id.
+ */
+@Entity
+@Table(name = "ride_archive", indexes = @Index(name = "idx_ride_archive_user_id_ride_id", columnList = "user_id, ride_id desc"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedRide {
+
+    @Id
+    private Long rideId;
+
+    private Long userId;
+    private Long driverId;
+
+    private String pickupLocation;
+    private String dropoffLocation;
+
+    private Double pickupLatitude;
+    private Double pickupLongitude;
+    private Double dropoffLatitude;
+    private Double dropoffLongitude;
+
+    private double fare;
+
+    private Integer estimatedPickupSeconds;
+    private Integer estimatedTripSeconds;
+
+    @Enumerated(EnumType.STRING)
+    private RideStatus status;
+
+    private LocalDateTime requestedAt;
+
+    private LocalDateTime archivedAt;
+
+    public Ride toRide() {
+        return Ride.builder()
+                .rideId(rideId)
+                .userId(userId)
+                .driverId(driverId)
+                .pickupLocation(pickupLocation)
+                .dropoffLocation(dropoffLocation)
+                .pickupLatitude(pickupLatitude)
+                .pickupLongitude(pickupLongitude)
+                .dropoffLatitude(dropoffLatitude)
+                .dropoffLongitude(dropoffLongitude)
+                .fare(fare)
+                .estimatedPickupSeconds(estimatedPickupSeconds)
+                .estimatedTripSeconds(estimatedTripSeconds)
+                .status(status)
+                .requestedAt(requestedAt)
+                .build();
+    }
+}
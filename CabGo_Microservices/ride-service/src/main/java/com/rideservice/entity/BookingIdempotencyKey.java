@@ -0,0 +1,34 @@
+package com.rideservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ride booked under an Idempotency-Key, so a retry after a restart or on
+ * another instance still gets the original ride. keyHash is the SHA-256 of
+ * user email and key, requestFingerprint the SHA-256 of the booking request.
+ * The row is reserved before the booking runs; rideId stays null until it
+ * has finished.
+ */
+@Entity
+@Table(name = "booking_idempotency_key", indexes = @Index(name = "idx_booking_idempotency_created_at", columnList = "created_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingIdempotencyKey {
+
+    @Id
+    @Column(length = 64)
+    private String keyHash;
+
+    private Long rideId;
+
+    @Column(length = 64, nullable = false)
+    private String requestFingerprint;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
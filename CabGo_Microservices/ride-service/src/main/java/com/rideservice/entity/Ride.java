@@ -5,7 +5,10 @@ import com.commonlib.enums.RideStatus;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.time.LocalDateTime;
+
 @Entity
+@Table(indexes = @Index(name = "idx_ride_user_id_ride_id", columnList = "user_id, ride_id desc"))
 @Getter
 @Setter
 @NoArgsConstructor  
@@ -19,14 +22,34 @@ public class Ride {
 
     private Long userId;    // From user-service
     private Long driverId;  // From driver-service
+    // Last driver the ride was offered to, so a restart can free a driver whose offer only lived in memory
+    private Long offeredDriverId;
 
     private String pickupLocation;
     private String dropoffLocation;
 
+    private Double pickupLatitude;
+    private Double pickupLongitude;
+    private Double dropoffLatitude;
+    private Double dropoffLongitude;
 
     private double fare;
 
+    // Estimated at booking/assignment from the ETA table, null without coordinates
+    private Integer estimatedPickupSeconds;
+    private Integer estimatedTripSeconds;
+
     @Enumerated(EnumType.STRING)
     private RideStatus status;
+
+    @Column(updatable = false)
+    private LocalDateTime requestedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (requestedAt == null) {
+            requestedAt = LocalDateTime.now();
+        }
+    }
 }
 
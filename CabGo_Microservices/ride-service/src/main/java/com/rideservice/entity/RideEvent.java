@@ -0,0 +1,48 @@
+package com.rideservice.entity;
+
+import com.commonlib.enums.RideStatus;
+import com.rideservice.events.RideEventType;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One ride transition. Rows are only ever inserted; the ride table keeps the
+ * current state and this log keeps how it got there.
+ */
+@Entity
+@Table(name = "ride_event", indexes = @Index(name = "idx_ride_event_ride_id", columnList = "ride_id, event_id"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RideEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "event_id")
+    private Long eventId;
+
+    @Column(name = "ride_id", nullable = false, updatable = false)
+    private Long rideId;
+
+    @Column(updatable = false)
+    private Long userId;    // set on REQUESTED
+
+    @Column(updatable = false)
+    private Long driverId;  // set when the event attaches a driver
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false)
+    private RideEventType type;
+
+    // Ride status after the event
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false)
+    private RideStatus status;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime occurredAt;
+}
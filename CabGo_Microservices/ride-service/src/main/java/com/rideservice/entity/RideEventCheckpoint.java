@@ -0,0 +1,36 @@
+package com.rideservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * State of the ride event read models as of one point in the log. A single
+ * row, overwritten by every checkpoint; startup restores it and replays only
+ * the events after lastEventId.
+ */
+@Entity
+@Table(name = "ride_event_checkpoint")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RideEventCheckpoint {
+
+    public static final long ID = 1L;
+
+    @Id
+    private Long checkpointId;
+
+    @Column(nullable = false)
+    private Long lastEventId;
+
+    // Projection name -> its state, as one JSON object
+    @Lob
+    @Column(nullable = false, columnDefinition = "LONGTEXT")
+    private String state;
+
+    @Column(nullable = false)
+    private LocalDateTime takenAt;
+}
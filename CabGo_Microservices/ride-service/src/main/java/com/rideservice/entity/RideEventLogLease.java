@@ -0,0 +1,30 @@
+package com.rideservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * The ride-service instance that owns the ride event read models. A single
+ * row, renewed by its owner; see InstanceLease.
+ */
+@Entity
+@Table(name = "ride_event_log_lease")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RideEventLogLease {
+
+    public static final long ID = 1L;
+
+    @Id
+    private Long leaseId;
+
+    @Column(nullable = false)
+    private String instanceId;
+
+    @Column(nullable = false)
+    private LocalDateTime renewedAt;
+}
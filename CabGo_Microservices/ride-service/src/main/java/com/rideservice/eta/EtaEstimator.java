@@ -0,0 +1,106 @@
+package com.rideservice.eta;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Constant-time travel time estimates for matching, fare quotes and the ride
+ * view. Answers come from the memory-mapped {@link TravelTimeTable}; points in
+ * the same cell or outside the table's box fall back to the speed model, which
+ * is just as cheap but ignores anything the table knows about the roads.
+ */
+@Component
+public class EtaEstimator {
+
+    private final Path tablePath;
+    private final double cellDegrees;
+    private final double minLatitude;
+    private final double minLongitude;
+    private final double maxLatitude;
+    private final double maxLongitude;
+    private final SpeedBandModel fallback;
+
+    private final Counter tableHits;
+    private final Counter fallbacks;
+
+    private volatile TravelTimeTable table;
+
+    public EtaEstimator(MeterRegistry meterRegistry,
+                        @Value("${ride.eta.table-path:data/eta-table.bin}") String tablePath,
+                        @Value("${ride.eta.cell-degrees:0.01}") double cellDegrees,
+                        @Value("${ride.eta.min-latitude:12.80}") double minLatitude,
+                        @Value("${ride.eta.min-longitude:77.40}") double minLongitude,
+                        @Value("${ride.eta.max-latitude:13.20}") double maxLatitude,
+                        @Value("${ride.eta.max-longitude:77.80}") double maxLongitude,
+                        @Value("${ride.eta.detour-factor:1.35}") double detourFactor,
+                        @Value("${ride.eta.city-speed-kmh:18}") double citySpeedKmh,
+                        @Value("${ride.eta.arterial-speed-kmh:32}") double arterialSpeedKmh,
+                        @Value("${ride.eta.city-km:3}") double cityKm) {
+        this.tablePath = Paths.get(tablePath);
+        this.cellDegrees = cellDegrees;
+        this.minLatitude = minLatitude;
+        this.minLongitude = minLongitude;
+        this.maxLatitude = maxLatitude;
+        this.maxLongitude = maxLongitude;
+        this.fallback = new SpeedBandModel(detourFactor, citySpeedKmh, arterialSpeedKmh, cityKm);
+        this.tableHits = meterRegistry.counter("ride.eta.lookups", "source", "table");
+        this.fallbacks = meterRegistry.counter("ride.eta.lookups", "source", "model");
+    }
+
+    /**
+     * Maps the table file, generating it from the speed model first when it is
+     * missing or was built for a different box. Without a table every estimate
+     * comes from the model.
+     */
+    @PostConstruct
+    public void load() {
+        try {
+            if (Files.exists(tablePath)) {
+                TravelTimeTable existing = TravelTimeTable.open(tablePath);
+                if (existing.covers(cellDegrees, minLatitude, minLongitude, maxLatitude, maxLongitude)) {
+                    table = existing;
+                    return;
+                }
+            }
+            TravelTimeTable.build(tablePath, fallback, cellDegrees, minLatitude, minLongitude, maxLatitude, maxLongitude);
+            table = TravelTimeTable.open(tablePath);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("ETA table unavailable, using the speed model only: " + e.getMessage());
+        }
+    }
+
+    public int estimateSeconds(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude) {
+        TravelTimeTable current = table;
+        if (current != null) {
+            int from = current.cellIndex(fromLatitude, fromLongitude);
+            int to = current.cellIndex(toLatitude, toLongitude);
+            // Inside one cell the centre-to-centre value would be zero
+            if (from != to) {
+                int seconds = current.seconds(from, to);
+                if (seconds != TravelTimeTable.UNKNOWN) {
+                    tableHits.increment();
+                    return seconds;
+                }
+            }
+        }
+        fallbacks.increment();
+        return fallback.seconds(fromLatitude, fromLongitude, toLatitude, toLongitude);
+    }
+
+    // Null when either end has no coordinates
+    public Integer estimateSecondsIfKnown(Double fromLatitude, Double fromLongitude, Double toLatitude, Double toLongitude) {
+        if (fromLatitude == null || fromLongitude == null || toLatitude == null || toLongitude == null) {
+            return null;
+        }
+        return estimateSeconds(fromLatitude.doubleValue(), fromLongitude.doubleValue(),
+                toLatitude.doubleValue(), toLongitude.doubleValue());
+    }
+}
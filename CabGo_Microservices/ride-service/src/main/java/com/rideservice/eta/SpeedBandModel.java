@@ -0,0 +1,37 @@
+package com.rideservice.eta;
+
+import com.commonlib.geo.GeoGrid;
+
+/**
+ * Straight-line distance stretched by a detour factor, driven at city speed
+ * for the first few kilometres and at arterial speed after that.
+ */
+public class SpeedBandModel implements TravelTimeModel {
+
+    private final double detourFactor;
+    private final double citySpeedKmh;
+    private final double arterialSpeedKmh;
+    private final double cityKm;
+
+    public SpeedBandModel(double detourFactor, double citySpeedKmh, double arterialSpeedKmh, double cityKm) {
+        if (detourFactor < 1 || citySpeedKmh <= 0 || arterialSpeedKmh <= 0 || cityKm < 0) {
+            throw new IllegalArgumentException("Invalid speed band model");
+        }
+        this.detourFactor = detourFactor;
+        this.citySpeedKmh = citySpeedKmh;
+        this.arterialSpeedKmh = arterialSpeedKmh;
+        this.cityKm = cityKm;
+    }
+
+    @Override
+    public int seconds(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude) {
+        return secondsForKm(GeoGrid.distanceKm(fromLatitude, fromLongitude, toLatitude, toLongitude));
+    }
+
+    public int secondsForKm(double straightLineKm) {
+        double roadKm = straightLineKm * detourFactor;
+        double cityPart = Math.min(roadKm, cityKm);
+        double hours = cityPart / citySpeedKmh + (roadKm - cityPart) / arterialSpeedKmh;
+        return (int) Math.round(hours * 3600);
+    }
+}
@@ -0,0 +1,12 @@
+package com.rideservice.eta;
+
+/**
+ * Source of travel times used to fill the ETA table. The default is a
+ * distance/speed model; an export from a routing engine can be written into
+ * the same table format offline and dropped in place of the generated file.
+ */
+@FunctionalInterface
+public interface TravelTimeModel {
+
+    int seconds(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude);
+}
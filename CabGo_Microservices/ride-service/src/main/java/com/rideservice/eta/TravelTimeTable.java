@@ -0,0 +1,181 @@
+package com.rideservice.eta;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Cell-to-cell travel times for a bounding box, memory-mapped from disk.
+ *
+ * File layout (big-endian): a 40 byte header
+ *   magic, version, cellDegrees, minLatitude, minLongitude, rows, cols
+ * followed by an n x n matrix (n = rows * cols) of unsigned 16-bit seconds,
+ * row = origin cell, column = destination cell. A lookup is two index
+ * computations and one read from the mapping, no allocation and no I/O
+ * once the pages are resident.
+ */
+public final class TravelTimeTable {
+
+    public static final int UNKNOWN = -1;
+
+    private static final int MAGIC = 0x43455441; // "CETA"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 40;
+    private static final int MAX_SECONDS = 0xFFFE;
+    private static final char MISSING = 0xFFFF;
+
+    private final MappedByteBuffer matrix;
+    private final double cellDegrees;
+    private final double minLatitude;
+    private final double minLongitude;
+    private final int rows;
+    private final int cols;
+    private final int cells;
+
+    private TravelTimeTable(MappedByteBuffer matrix, double cellDegrees, double minLatitude, double minLongitude,
+                            int rows, int cols) {
+        this.matrix = matrix;
+        this.cellDegrees = cellDegrees;
+        this.minLatitude = minLatitude;
+        this.minLongitude = minLongitude;
+        this.rows = rows;
+        this.cols = cols;
+        this.cells = rows * cols;
+    }
+
+    /**
+     * Maps an existing table file read-only. The mapping stays valid after the
+     * channel is closed.
+     */
+    public static TravelTimeTable open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading until the header is complete or the file ends
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a travel time table: " + path);
+            }
+            double cellDegrees = header.getDouble();
+            double minLatitude = header.getDouble();
+            double minLongitude = header.getDouble();
+            int rows = header.getInt();
+            int cols = header.getInt();
+            long cells = (long) rows * cols;
+            long matrixBytes = cells * cells * 2;
+            if (rows <= 0 || cols <= 0 || channel.size() != HEADER_BYTES + matrixBytes) {
+                throw new IOException("Truncated or corrupt travel time table: " + path);
+            }
+            MappedByteBuffer matrix = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, matrixBytes);
+            return new TravelTimeTable(matrix, cellDegrees, minLatitude, minLongitude, rows, cols);
+        }
+    }
+
+    /**
+     * Precomputes the table for the box from the model's cell-centre to
+     * cell-centre times. Written to a temp file and moved into place, so a
+     * reader never maps a half-written table.
+     */
+    public static void build(Path path, TravelTimeModel model, double cellDegrees,
+                             double minLatitude, double minLongitude, double maxLatitude, double maxLongitude)
+            throws IOException {
+        int rows = (int) Math.ceil((maxLatitude - minLatitude) / cellDegrees);
+        int cols = (int) Math.ceil((maxLongitude - minLongitude) / cellDegrees);
+        long cells = (long) rows * cols;
+        // One mapping is limited to 2 GB
+        if (rows <= 0 || cols <= 0 || cells * cells * 2 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("ETA table box must have between 1 and 32767 cells, got " + cells);
+        }
+        int n = (int) cells;
+
+        double[] centerLat = new double[n];
+        double[] centerLng = new double[n];
+        for (int i = 0; i < n; i++) {
+            centerLat[i] = minLatitude + (i / cols + 0.5) * cellDegrees;
+            centerLng[i] = minLongitude + (i % cols + 0.5) * cellDegrees;
+        }
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putDouble(cellDegrees)
+                    .putDouble(minLatitude).putDouble(minLongitude).putInt(rows).putInt(cols).flip();
+            writeFully(channel, header);
+
+            ByteBuffer row = ByteBuffer.allocate(n * 2);
+            for (int from = 0; from < n; from++) {
+                row.clear();
+                for (int to = 0; to < n; to++) {
+                    int seconds = model.seconds(centerLat[from], centerLng[from], centerLat[to], centerLng[to]);
+                    row.putChar(seconds < 0 ? MISSING : (char) Math.min(seconds, MAX_SECONDS));
+                }
+                row.flip();
+                writeFully(channel, row);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Index of the cell holding the point, or -1 outside the box.
+     */
+    public int cellIndex(double latitude, double longitude) {
+        int row = (int) Math.floor((latitude - minLatitude) / cellDegrees);
+        int col = (int) Math.floor((longitude - minLongitude) / cellDegrees);
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            return -1;
+        }
+        return row * cols + col;
+    }
+
+    /**
+     * Seconds from one cell to another, or {@link #UNKNOWN} when either cell
+     * is outside the box or the table has no value for the pair.
+     */
+    public int seconds(int fromCell, int toCell) {
+        if (fromCell < 0 || toCell < 0) {
+            return UNKNOWN;
+        }
+        char value = matrix.getChar(((fromCell * cells) + toCell) * 2);
+        return value == MISSING ? UNKNOWN : value;
+    }
+
+    /**
+     * True when the table was built for exactly this grid and box, so a config
+     * change is noticed instead of silently serving the old table.
+     */
+    public boolean covers(double cellDegrees, double minLatitude, double minLongitude,
+                          double maxLatitude, double maxLongitude) {
+        return this.cellDegrees == cellDegrees && this.minLatitude == minLatitude
+                && this.minLongitude == minLongitude
+                && rows == (int) Math.ceil((maxLatitude - minLatitude) / cellDegrees)
+                && cols == (int) Math.ceil((maxLongitude - minLongitude) / cellDegrees);
+    }
+
+    public double getCellDegrees() {
+        return cellDegrees;
+    }
+
+    public int getCellCount() {
+        return cells;
+    }
+}
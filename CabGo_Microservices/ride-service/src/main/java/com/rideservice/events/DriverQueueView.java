@@ -0,0 +1,99 @@
+package com.rideservice.events;
+
+import com.commonlib.enums.RideStatus;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.rideservice.entity.RideEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Open rides per driver with their current status, oldest ride first.
+ * Status events usually carry no driver, so the driver is remembered from
+ * the event that attached it until the ride completes or is cancelled.
+ */
+@Component
+public class DriverQueueView implements RideEventProjection {
+
+    private final ConcurrentHashMap<Long, Long> driverByRide = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, ConcurrentSkipListMap<Long, RideStatus>> queues = new ConcurrentHashMap<>();
+
+    @Override
+    public void apply(RideEvent event) {
+        Long rideId = event.getRideId();
+        Long driverId = event.getDriverId() != null ? event.getDriverId() : driverByRide.get(rideId);
+        if (driverId == null) {
+            return;
+        }
+        Long previousDriver = driverByRide.put(rideId, driverId);
+        if (previousDriver != null && !previousDriver.equals(driverId)) {
+            remove(previousDriver, rideId);
+        }
+        if (event.getStatus() == RideStatus.COMPLETED || event.getStatus() == RideStatus.CANCELLED) {
+            driverByRide.remove(rideId);
+            remove(driverId, rideId);
+            return;
+        }
+        queues.computeIfAbsent(driverId, d -> new ConcurrentSkipListMap<>()).put(rideId, event.getStatus());
+    }
+
+    @Override
+    public void reset() {
+        driverByRide.clear();
+        queues.clear();
+    }
+
+    @Override
+    public String name() {
+        return "driverQueue";
+    }
+
+    @Override
+    public List<QueuedRide> checkpoint() {
+        List<QueuedRide> rides = new ArrayList<>();
+        queues.forEach((driverId, queue) -> queue.forEach((rideId, status) ->
+                rides.add(new QueuedRide(rideId, driverId, status))));
+        return rides;
+    }
+
+    @Override
+    public void restore(JsonNode state) {
+        for (JsonNode ride : state) {
+            long rideId = ride.get("rideId").asLong();
+            long driverId = ride.get("driverId").asLong();
+            driverByRide.put(rideId, driverId);
+            queues.computeIfAbsent(driverId, d -> new ConcurrentSkipListMap<>())
+                    .put(rideId, RideStatus.valueOf(ride.get("status").asText()));
+        }
+    }
+
+    public List<Entry> queueFor(Long driverId) {
+        Map<Long, RideStatus> queue = queues.get(driverId);
+        List<Entry> entries = new ArrayList<>();
+        if (queue != null) {
+            queue.forEach((rideId, status) -> entries.add(new Entry(rideId, status)));
+        }
+        return entries;
+    }
+
+    public Long driverFor(Long rideId) {
+        return driverByRide.get(rideId);
+    }
+
+    private void remove(Long driverId, Long rideId) {
+        queues.computeIfPresent(driverId, (d, queue) -> {
+            queue.remove(rideId);
+            return queue.isEmpty() ? null : queue;
+        });
+    }
+
+    public record Entry(Long rideId, RideStatus status) {
+    }
+
+    public record QueuedRide(Long rideId, Long driverId, RideStatus status) {
+    }
+}
@@ -0,0 +1,76 @@
+package com.rideservice.events;
+
+import com.rideservice.entity.RideEventLogLease;
+import com.rideservice.repository.RideEventLogLeaseRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Keeps ride-service to a single running instance. Each instance applies
+ * only the events it appended itself, and the read model checkpoint is one
+ * row, so a second instance would serve read models missing the other's
+ * rides and overwrite its checkpoint with them.
+ *
+ * The lease is taken before the application serves anything and renewed
+ * every heartbeat-ms. While it is renewed, another instance fails to start;
+ * it can only take the lease once it has gone timeout-ms without renewal.
+ * An instance that was stalled that long loses the lease for good and
+ * stops writing checkpoints.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class InstanceLease {
+
+    private final RideEventLogLeaseRepository leaseRepository;
+    private final String instanceId;
+    private final long timeoutMs;
+
+    private volatile boolean held;
+
+    public InstanceLease(RideEventLogLeaseRepository leaseRepository,
+                         @Value("${spring.cloud.client.hostname:localhost}:${server.port:8080}") String instanceId,
+                         @Value("${ride.instance-lease.timeout-ms:30000}") long timeoutMs) {
+        this.leaseRepository = leaseRepository;
+        this.instanceId = instanceId;
+        this.timeoutMs = timeoutMs;
+    }
+
+    @PostConstruct
+    public void acquire() {
+        try {
+            leaseRepository.create(RideEventLogLease.ID, instanceId, LocalDateTime.now());
+        } catch (DataIntegrityViolationException e) {
+            // Taken before, by this instance before a restart or by another one
+        }
+        if (!renew()) {
+            String owner = leaseRepository.findById(RideEventLogLease.ID).map(RideEventLogLease::getInstanceId).orElse("unknown");
+            throw new IllegalStateException("ride-service is already running as " + owner
+                    + "; it must run as a single instance (the lease is released after ride.instance-lease.timeout-ms)");
+        }
+        held = true;
+    }
+
+    @Scheduled(fixedDelayString = "${ride.instance-lease.heartbeat-ms:10000}")
+    public void heartbeat() {
+        if (held && !renew()) {
+            held = false;
+            System.err.println("Lost the ride-service instance lease to another instance; no more ride event checkpoints");
+        }
+    }
+
+    public boolean isHeld() {
+        return held;
+    }
+
+    private boolean renew() {
+        LocalDateTime now = LocalDateTime.now();
+        return leaseRepository.renew(RideEventLogLease.ID, instanceId, now, now.minus(timeoutMs, ChronoUnit.MILLIS)) == 1;
+    }
+}
@@ -0,0 +1,12 @@
+package com.rideservice.events;
+
+import com.rideservice.entity.RideEvent;
+
+/**
+ * Told about each event as it is appended. Unlike projections, listeners
+ * never see replayed events.
+ */
+public interface RideEventListener {
+
+    void onEvent(RideEvent event);
+}
@@ -0,0 +1,277 @@
+package com.rideservice.events;
+
+import com.commonlib.enums.RideStatus;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rideservice.entity.RideEvent;
+import com.rideservice.entity.RideEventCheckpoint;
+import com.rideservice.repository.RideEventCheckpointRepository;
+import com.rideservice.repository.RideEventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only log of ride transitions and the in-memory read models built
+ * from it. Each transition is appended after its conditional write on the
+ * ride table succeeded, then applied to every projection. Read endpoints go
+ * to the projections and never touch the ride table.
+ *
+ * On startup the projections are reset, loaded from the last checkpoint and
+ * brought up to date by replaying the log after it. Events appended while
+ * the replay runs are held back and applied after it, skipping the ones the
+ * replay already read.
+ *
+ * A checkpoint is taken every checkpoint-interval-ms, but only at a moment
+ * when every event saved so far has been applied. Event ids only grow, so
+ * everything after its lastEventId is still to be applied.
+ *
+ * This only holds with a single instance. Replay reads the shared log, but
+ * after startup an instance applies only the events it appended itself,
+ * and every instance would write the same checkpoint row. InstanceLease
+ * keeps a second instance from starting, and an instance that lost the
+ * lease stops taking checkpoints.
+ */
+@Component
+public class RideEventLog {
+
+    private final RideEventRepository rideEventRepository;
+    private final RideEventCheckpointRepository checkpointRepository;
+    private final InstanceLease instanceLease;
+    private final ObjectMapper objectMapper;
+    private final List<RideEventProjection> projections;
+    private final List<RideEventListener> listeners;
+    private final int replayBatchSize;
+
+    // A lock rather than a monitor, so a virtual thread waiting here does not pin its carrier
+    private final ReentrantLock applyLock = new ReentrantLock();
+    // Non-null while a replay is running
+    private List<RideEvent> heldBack;
+    // Events being saved or waiting for their transaction; a checkpoint waits until there are none
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Guarded by applyLock
+    private long lastAppliedEventId;
+    private long lastCheckpointEventId;
+
+    public RideEventLog(RideEventRepository rideEventRepository,
+                        RideEventCheckpointRepository checkpointRepository,
+                        InstanceLease instanceLease,
+                        ObjectMapper objectMapper,
+                        List<RideEventProjection> projections,
+                        List<RideEventListener> listeners,
+                        @Value("${ride.events.replay-batch-size:1000}") int replayBatchSize) {
+        this.rideEventRepository = rideEventRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.instanceLease = instanceLease;
+        this.objectMapper = objectMapper;
+        this.projections = projections;
+        this.listeners = listeners;
+        this.replayBatchSize = replayBatchSize;
+    }
+
+    public RideEvent append(RideEventType type, Long rideId, Long userId, Long driverId, RideStatus status) {
+        // Counted before the insert, so no checkpoint can be taken between the id being handed out and the apply
+        inFlight.incrementAndGet();
+        RideEvent event;
+        try {
+            event = rideEventRepository.save(RideEvent.builder()
+                    .rideId(rideId)
+                    .userId(userId)
+                    .driverId(driverId)
+                    .type(type)
+                    .status(status)
+                    .occurredAt(LocalDateTime.now())
+                    .build());
+        } catch (RuntimeException e) {
+            inFlight.decrementAndGet();
+            throw e;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Inside a transaction the read models only see the event once it is committed
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(event);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    inFlight.decrementAndGet();
+                }
+            });
+        } else {
+            try {
+                publish(event);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+        return event;
+    }
+
+    public RideEvent statusChanged(Long rideId, RideStatus status) {
+        return append(RideEventType.of(status), rideId, null, null, status);
+    }
+
+    public List<RideEvent> timeline(Long rideId) {
+        return rideEventRepository.findByRideIdOrderByEventId(rideId);
+    }
+
+    private void publish(RideEvent event) {
+        // Listeners go first, while the projections still hold the state from before this event
+        for (RideEventListener listener : listeners) {
+            try {
+                listener.onEvent(event);
+            } catch (RuntimeException e) {
+                System.err.println("Ride event listener failed: " + e.getMessage());
+            }
+        }
+        applyLock.lock();
+        try {
+            if (heldBack != null) {
+                heldBack.add(event);
+                return;
+            }
+            applyToAll(event);
+        } finally {
+            applyLock.unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void replay() {
+        long checkpointEventId;
+        applyLock.lock();
+        try {
+            heldBack = new ArrayList<>();
+            projections.forEach(RideEventProjection::reset);
+            checkpointEventId = restoreCheckpoint();
+            lastAppliedEventId = checkpointEventId;
+            lastCheckpointEventId = checkpointEventId;
+        } finally {
+            applyLock.unlock();
+        }
+        // Read after publishing is held back, so every event above it reaches heldBack
+        long lastBeforeReplay = rideEventRepository.findMaxEventId();
+
+        // Events newer than the starting point may be read here and also arrive through publish()
+        Set<Long> replayedLate = new HashSet<>();
+        try {
+            long afterEventId = checkpointEventId;
+            List<RideEvent> page;
+            do {
+                page = rideEventRepository.findByEventIdGreaterThanOrderByEventId(afterEventId, Limit.of(replayBatchSize));
+                applyLock.lock();
+                try {
+                    for (RideEvent event : page) {
+                        applyToAll(event);
+                        if (event.getEventId() > lastBeforeReplay) {
+                            replayedLate.add(event.getEventId());
+                        }
+                    }
+                } finally {
+                    applyLock.unlock();
+                }
+                if (!page.isEmpty()) {
+                    afterEventId = page.get(page.size() - 1).getEventId();
+                }
+            } while (page.size() == replayBatchSize);
+        } finally {
+            applyLock.lock();
+            try {
+                for (RideEvent event : heldBack) {
+                    if (event.getEventId() > lastBeforeReplay && !replayedLate.contains(event.getEventId())) {
+                        applyToAll(event);
+                    }
+                }
+                heldBack = null;
+            } finally {
+                applyLock.unlock();
+            }
+        }
+    }
+
+    // Last event id of the restored checkpoint, or 0 with the projections still empty when there is none to use
+    private long restoreCheckpoint() {
+        RideEventCheckpoint checkpoint = checkpointRepository.findById(RideEventCheckpoint.ID).orElse(null);
+        if (checkpoint == null) {
+            return 0;
+        }
+        try {
+            JsonNode state = objectMapper.readTree(checkpoint.getState());
+            for (RideEventProjection projection : projections) {
+                if (!state.has(projection.name())) {
+                    // A projection added since the checkpoint was taken needs the whole log
+                    projections.forEach(RideEventProjection::reset);
+                    return 0;
+                }
+                projection.restore(state.get(projection.name()));
+            }
+            return checkpoint.getLastEventId();
+        } catch (JsonProcessingException | RuntimeException e) {
+            System.err.println("Ignoring unreadable ride event checkpoint: " + e.getMessage());
+            projections.forEach(RideEventProjection::reset);
+            return 0;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ride.events.checkpoint-interval-ms:300000}",
+            initialDelayString = "${ride.events.checkpoint-interval-ms:300000}")
+    public void checkpoint() {
+        if (!instanceLease.isHeld()) {
+            // Another instance owns the checkpoint now
+            return;
+        }
+        long lastEventId;
+        Map<String, Object> state = new LinkedHashMap<>();
+        String json;
+        applyLock.lock();
+        try {
+            if (heldBack != null || inFlight.get() != 0 || lastAppliedEventId == lastCheckpointEventId) {
+                // Replaying, an event is half way in, or nothing new since the last one; try again next time
+                return;
+            }
+            lastEventId = lastAppliedEventId;
+            for (RideEventProjection projection : projections) {
+                state.put(projection.name(), projection.checkpoint());
+            }
+            // Written to a string under the lock, the projections keep changing once it is released
+            json = objectMapper.writeValueAsString(state);
+        } catch (JsonProcessingException e) {
+            System.err.println("Could not write ride event checkpoint: " + e.getMessage());
+            return;
+        } finally {
+            applyLock.unlock();
+        }
+        checkpointRepository.save(new RideEventCheckpoint(RideEventCheckpoint.ID, lastEventId, json, LocalDateTime.now()));
+        applyLock.lock();
+        try {
+            lastCheckpointEventId = Math.max(lastCheckpointEventId, lastEventId);
+        } finally {
+            applyLock.unlock();
+        }
+    }
+
+    private void applyToAll(RideEvent event) {
+        for (RideEventProjection projection : projections) {
+            projection.apply(event);
+        }
+        lastAppliedEventId = Math.max(lastAppliedEventId, event.getEventId());
+    }
+}
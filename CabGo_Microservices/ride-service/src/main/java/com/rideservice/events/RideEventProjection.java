@@ -0,0 +1,25 @@
+package com.rideservice.events;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.rideservice.entity.RideEvent;
+
+/**
+ * A read model fed from the ride event log. Events arrive one at a time in
+ * log order per ride; after reset() the log is replayed into it, starting
+ * from the last checkpoint when there is one.
+ */
+public interface RideEventProjection {
+
+    void apply(RideEvent event);
+
+    void reset();
+
+    // Key of this projection's state inside a checkpoint
+    String name();
+
+    // State to store in a checkpoint, written as JSON; called while no event is being applied
+    Object checkpoint();
+
+    // Loads state written by checkpoint() into a projection that was just reset
+    void restore(JsonNode state);
+}
@@ -0,0 +1,21 @@
+package com.rideservice.events;
+
+import com.commonlib.enums.RideStatus;
+
+public enum RideEventType {
+    REQUESTED,
+    ASSIGNED,   // a driver was attached; the status may still be REQUESTED
+    STARTED,
+    COMPLETED,
+    CANCELLED;
+
+    public static RideEventType of(RideStatus status) {
+        return switch (status) {
+            case REQUESTED -> REQUESTED;
+            case ASSIGNED -> ASSIGNED;
+            case ONGOING, IN_PROGRESS -> STARTED;
+            case COMPLETED -> COMPLETED;
+            case CANCELLED -> CANCELLED;
+        };
+    }
+}
@@ -0,0 +1,84 @@
+package com.rideservice.events;
+
+import com.commonlib.enums.RideStatus;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.rideservice.entity.RideEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Rides per status: open rides by their current status, plus running totals
+ * of completed and cancelled ones. Only open rides are kept per id.
+ */
+@Component
+public class RideStatusCountsView implements RideEventProjection {
+
+    private static final RideStatus[] STATUSES = RideStatus.values();
+
+    private final ConcurrentHashMap<Long, RideStatus> openRides = new ConcurrentHashMap<>();
+    private final AtomicLongArray counts = new AtomicLongArray(STATUSES.length);
+
+    @Override
+    public void apply(RideEvent event) {
+        RideStatus status = event.getStatus();
+        RideStatus previous = isFinal(status)
+                ? openRides.remove(event.getRideId())
+                : openRides.put(event.getRideId(), status);
+        if (previous != null) {
+            counts.decrementAndGet(previous.ordinal());
+        }
+        counts.incrementAndGet(status.ordinal());
+    }
+
+    @Override
+    public void reset() {
+        openRides.clear();
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "statusCounts";
+    }
+
+    @Override
+    public State checkpoint() {
+        return new State(new HashMap<>(openRides), snapshot());
+    }
+
+    @Override
+    public void restore(JsonNode state) {
+        for (Iterator<Map.Entry<String, JsonNode>> it = state.get("openRides").fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> ride = it.next();
+            openRides.put(Long.valueOf(ride.getKey()), RideStatus.valueOf(ride.getValue().asText()));
+        }
+        for (Iterator<Map.Entry<String, JsonNode>> it = state.get("counts").fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> count = it.next();
+            counts.set(RideStatus.valueOf(count.getKey()).ordinal(), count.getValue().asLong());
+        }
+    }
+
+    public Map<RideStatus, Long> snapshot() {
+        Map<RideStatus, Long> snapshot = new EnumMap<>(RideStatus.class);
+        for (RideStatus status : STATUSES) {
+            snapshot.put(status, counts.get(status.ordinal()));
+        }
+        return snapshot;
+    }
+
+    private static boolean isFinal(RideStatus status) {
+        return status == RideStatus.COMPLETED || status == RideStatus.CANCELLED;
+    }
+
+    // Counts are keyed by status name, so a checkpoint survives a reordered enum
+    public record State(Map<Long, RideStatus> openRides, Map<RideStatus, Long> counts) {
+    }
+}
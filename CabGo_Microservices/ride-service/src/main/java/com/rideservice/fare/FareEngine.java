@@ -0,0 +1,174 @@
+package com.rideservice.fare;
+
+import com.commonlib.enums.VehicleClass;
+import com.commonlib.geo.GeoGrid;
+import com.rideservice.eta.EtaEstimator;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Deterministic fares for quotes and bookings.
+ *
+ * Tariffs per vehicle class are read from the tariff file (one
+ * "CLASS=base,per-km,per-minute,minimum" line each, in rupees), falling back
+ * to the tariffs.properties shipped with the service. Trips shorter than
+ * direct-km or starting outside the box are priced from their own distance
+ * and ETA. Longer trips are priced from the precomputed {@link ZoneFareMatrix},
+ * never below what a direct-km trip would cost, and trips leaving the box cost
+ * at least the fare to its nearest zone, so taking the dropoff further from
+ * the same pickup never makes a trip cheaper. The file is checked for changes in the background and a new matrix is
+ * swapped in once it is built, so tariffs change without a restart and a bad
+ * file leaves the current fares in place.
+ */
+@Component
+public class FareEngine {
+
+    private static final String DEFAULT_TARIFFS = "/tariffs.properties";
+
+    private final EtaEstimator etaEstimator;
+    private final Path tariffPath;
+    private final VehicleClass defaultClass;
+    private final double zoneDegrees;
+    private final double minLatitude;
+    private final double minLongitude;
+    private final double maxLatitude;
+    private final double maxLongitude;
+    private final double detourFactor;
+    private final double directKm;
+    // Road km beyond direct-km within which a zone-centre fare can still fall below the direct-km fare
+    private final double floorKm;
+
+    private volatile ZoneFareMatrix matrix;
+    // Modification time of the tariff file the current matrix was built from, null for the built-in one
+    private volatile FileTime loadedVersion;
+
+    public FareEngine(EtaEstimator etaEstimator,
+                      @Value("${ride.fare.tariff-path:data/tariffs.properties}") String tariffPath,
+                      @Value("${ride.fare.default-class:HATCHBACK}") VehicleClass defaultClass,
+                      @Value("${ride.fare.zone-degrees:0.02}") double zoneDegrees,
+                      @Value("${ride.eta.min-latitude:12.80}") double minLatitude,
+                      @Value("${ride.eta.min-longitude:77.40}") double minLongitude,
+                      @Value("${ride.eta.max-latitude:13.20}") double maxLatitude,
+                      @Value("${ride.eta.max-longitude:77.80}") double maxLongitude,
+                      @Value("${ride.eta.detour-factor:1.35}") double detourFactor,
+                      @Value("${ride.fare.direct-km:5}") double directKm) {
+        this.etaEstimator = etaEstimator;
+        this.tariffPath = Paths.get(tariffPath);
+        this.defaultClass = defaultClass;
+        this.zoneDegrees = zoneDegrees;
+        this.minLatitude = minLatitude;
+        this.minLongitude = minLongitude;
+        this.maxLatitude = maxLatitude;
+        this.maxLongitude = maxLongitude;
+        this.detourFactor = detourFactor;
+        this.directKm = directKm;
+        this.floorKm = directKm + GeoGrid.distanceKm(minLatitude, minLongitude,
+                minLatitude + zoneDegrees, minLongitude + zoneDegrees) * detourFactor;
+    }
+
+    @PostConstruct
+    public void load() {
+        try {
+            FileTime version = Files.exists(tariffPath) ? Files.getLastModifiedTime(tariffPath) : null;
+            Map<VehicleClass, Tariff> tariffs = readTariffs(version != null);
+            matrix = ZoneFareMatrix.build(tariffs, etaEstimator::estimateSeconds, detourFactor, zoneDegrees,
+                    minLatitude, minLongitude, maxLatitude, maxLongitude);
+            loadedVersion = version;
+        } catch (IOException | RuntimeException e) {
+            if (matrix == null) {
+                throw new IllegalStateException("Could not load fare tariffs", e);
+            }
+            System.err.println("Fare tariffs not reloaded, keeping the current ones: " + e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ride.fare.reload-check-ms:30000}")
+    public void reloadIfChanged() {
+        try {
+            FileTime version = Files.exists(tariffPath) ? Files.getLastModifiedTime(tariffPath) : null;
+            if (version != null && !version.equals(loadedVersion)) {
+                load();
+            }
+        } catch (IOException e) {
+            System.err.println("Could not check the tariff file: " + e.getMessage());
+        }
+    }
+
+    private Map<VehicleClass, Tariff> readTariffs(boolean fromFile) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = fromFile ? Files.newInputStream(tariffPath)
+                : FareEngine.class.getResourceAsStream(DEFAULT_TARIFFS)) {
+            if (in == null) {
+                throw new IOException("Missing " + DEFAULT_TARIFFS);
+            }
+            properties.load(in);
+        }
+        Map<VehicleClass, Tariff> tariffs = new EnumMap<>(VehicleClass.class);
+        for (String name : properties.stringPropertyNames()) {
+            tariffs.put(VehicleClass.valueOf(name.trim()), Tariff.parse(properties.getProperty(name)));
+        }
+        return tariffs;
+    }
+
+    /**
+     * Fare in rupees. No allocation, and no ETA lookup for trips well beyond direct-km.
+     */
+    public double fare(VehicleClass vehicleClass, double fromLatitude, double fromLongitude,
+                       double toLatitude, double toLongitude) {
+        VehicleClass priced = vehicleClass == null ? defaultClass : vehicleClass;
+        ZoneFareMatrix current = matrix;
+        Tariff tariff = current.tariff(priced);
+        double roadKm = GeoGrid.distanceKm(fromLatitude, fromLongitude, toLatitude, toLongitude) * detourFactor;
+        int from = current.zoneIndex(fromLatitude, fromLongitude);
+        if (roadKm <= directKm || from < 0) {
+            // Zone centres are too coarse for short trips, and a pickup outside the box has no zone
+            int seconds = etaEstimator.estimateSeconds(fromLatitude, fromLongitude, toLatitude, toLongitude);
+            return tariff.farePaise(roadKm, seconds) / 100.0;
+        }
+        int to = current.zoneIndex(toLatitude, toLongitude);
+        if (to < 0) {
+            // Leaving the box costs at least as much as going to its edge
+            int seconds = etaEstimator.estimateSeconds(fromLatitude, fromLongitude, toLatitude, toLongitude);
+            return Math.max(tariff.farePaise(roadKm, seconds),
+                    current.farePaise(priced, from, current.nearestZoneIndex(toLatitude, toLongitude))) / 100.0;
+        }
+        int paise = current.farePaise(priced, from, to);
+        if (roadKm < floorKm) {
+            // The zone centres may be closer than this trip's ends; charge at least the longest direct fare
+            int seconds = etaEstimator.estimateSeconds(fromLatitude, fromLongitude, toLatitude, toLongitude);
+            paise = Math.max(paise, tariff.farePaise(directKm, seconds));
+        }
+        return paise / 100.0;
+    }
+
+    // The minimum fare of the class when either end has no coordinates
+    public double fareIfKnown(VehicleClass vehicleClass, Double fromLatitude, Double fromLongitude,
+                              Double toLatitude, Double toLongitude) {
+        if (fromLatitude == null || fromLongitude == null || toLatitude == null || toLongitude == null) {
+            return matrix.tariff(vehicleClass == null ? defaultClass : vehicleClass).minimumPaise() / 100.0;
+        }
+        return fare(vehicleClass, fromLatitude.doubleValue(), fromLongitude.doubleValue(),
+                toLatitude.doubleValue(), toLongitude.doubleValue());
+    }
+
+    public Map<VehicleClass, Double> quote(Double fromLatitude, Double fromLongitude,
+                                           Double toLatitude, Double toLongitude) {
+        Map<VehicleClass, Double> fares = new EnumMap<>(VehicleClass.class);
+        for (VehicleClass vehicleClass : VehicleClass.values()) {
+            fares.put(vehicleClass, fareIfKnown(vehicleClass, fromLatitude, fromLongitude, toLatitude, toLongitude));
+        }
+        return fares;
+    }
+}
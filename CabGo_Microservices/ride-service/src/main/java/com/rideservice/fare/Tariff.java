@@ -0,0 +1,36 @@
+package com.rideservice.fare;
+
+/**
+ * Fare rules of one vehicle class, in rupees. A trip costs the base fare
+ * plus its road distance and driving time, but never less than the minimum.
+ */
+public record Tariff(double baseFare, double perKm, double perMinute, double minimumFare) {
+
+    public Tariff {
+        if (baseFare < 0 || perKm < 0 || perMinute < 0 || minimumFare < 0) {
+            throw new IllegalArgumentException("Tariff values must not be negative");
+        }
+    }
+
+    /**
+     * Parses "base,perKm,perMinute,minimum", the format of a line in the tariff file.
+     */
+    public static Tariff parse(String value) {
+        String[] parts = value.split(",");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Expected base,per-km,per-minute,minimum but got: " + value);
+        }
+        return new Tariff(Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim()),
+                Double.parseDouble(parts[2].trim()), Double.parseDouble(parts[3].trim()));
+    }
+
+    // Rounded to whole paise, so the same trip always costs exactly the same
+    public int farePaise(double roadKm, int seconds) {
+        double rupees = Math.max(minimumFare, baseFare + perKm * roadKm + perMinute * seconds / 60.0);
+        return (int) Math.round(rupees * 100);
+    }
+
+    public int minimumPaise() {
+        return (int) Math.round(minimumFare * 100);
+    }
+}
@@ -0,0 +1,124 @@
+package com.rideservice.fare;
+
+import com.commonlib.enums.VehicleClass;
+import com.commonlib.geo.GeoGrid;
+import com.rideservice.eta.TravelTimeModel;
+
+import java.util.Map;
+
+/**
+ * Precomputed zone-to-zone fares for every vehicle class, in paise.
+ *
+ * The box is cut into square zones and the fare between two zones is priced
+ * once, from the road distance and travel time between their centres. The
+ * fares sit in one flat int array laid out [class][from zone][to zone], so
+ * a lookup is two index computations and one array read with no allocation.
+ * Instances are immutable; a reload builds a new one and swaps it in.
+ */
+public final class ZoneFareMatrix {
+
+    // 160 MB of fares; the default 20 x 20 zone box needs 2.5 MB
+    private static final long MAX_ENTRIES = 40_000_000L;
+
+    private final double zoneDegrees;
+    private final double minLatitude;
+    private final double minLongitude;
+    private final int rows;
+    private final int cols;
+    private final int zones;
+    private final int[] paise;
+    private final Tariff[] tariffs;
+
+    private ZoneFareMatrix(double zoneDegrees, double minLatitude, double minLongitude, int rows, int cols,
+                           int[] paise, Tariff[] tariffs) {
+        this.zoneDegrees = zoneDegrees;
+        this.minLatitude = minLatitude;
+        this.minLongitude = minLongitude;
+        this.rows = rows;
+        this.cols = cols;
+        this.zones = rows * cols;
+        this.paise = paise;
+        this.tariffs = tariffs;
+    }
+
+    /**
+     * Prices every zone pair of the box for every class. Travel times come
+     * from the given model and distances are centre to centre, stretched by
+     * the detour factor.
+     */
+    public static ZoneFareMatrix build(Map<VehicleClass, Tariff> tariffsByClass, TravelTimeModel travelTime,
+                                       double detourFactor, double zoneDegrees,
+                                       double minLatitude, double minLongitude,
+                                       double maxLatitude, double maxLongitude) {
+        VehicleClass[] classes = VehicleClass.values();
+        Tariff[] tariffs = new Tariff[classes.length];
+        for (VehicleClass vehicleClass : classes) {
+            Tariff tariff = tariffsByClass.get(vehicleClass);
+            if (tariff == null) {
+                throw new IllegalArgumentException("No tariff for " + vehicleClass);
+            }
+            tariffs[vehicleClass.ordinal()] = tariff;
+        }
+        int rows = (int) Math.ceil((maxLatitude - minLatitude) / zoneDegrees);
+        int cols = (int) Math.ceil((maxLongitude - minLongitude) / zoneDegrees);
+        long zoneCount = (long) rows * cols;
+        if (rows <= 0 || cols <= 0 || classes.length * zoneCount * zoneCount > MAX_ENTRIES) {
+            throw new IllegalArgumentException("Fare zone box must have between 1 and "
+                    + (int) Math.sqrt(MAX_ENTRIES / classes.length) + " zones, got " + zoneCount);
+        }
+        int n = (int) zoneCount;
+
+        double[] centerLat = new double[n];
+        double[] centerLng = new double[n];
+        for (int i = 0; i < n; i++) {
+            centerLat[i] = minLatitude + (i / cols + 0.5) * zoneDegrees;
+            centerLng[i] = minLongitude + (i % cols + 0.5) * zoneDegrees;
+        }
+
+        int[] paise = new int[classes.length * n * n];
+        for (int from = 0; from < n; from++) {
+            for (int to = 0; to < n; to++) {
+                double roadKm = GeoGrid.distanceKm(centerLat[from], centerLng[from], centerLat[to], centerLng[to])
+                        * detourFactor;
+                int seconds = travelTime.seconds(centerLat[from], centerLng[from], centerLat[to], centerLng[to]);
+                for (int c = 0; c < classes.length; c++) {
+                    paise[(c * n + from) * n + to] = tariffs[c].farePaise(roadKm, seconds);
+                }
+            }
+        }
+        return new ZoneFareMatrix(zoneDegrees, minLatitude, minLongitude, rows, cols, paise, tariffs);
+    }
+
+    /**
+     * Index of the zone holding the point, or -1 outside the box.
+     */
+    public int zoneIndex(double latitude, double longitude) {
+        int row = (int) Math.floor((latitude - minLatitude) / zoneDegrees);
+        int col = (int) Math.floor((longitude - minLongitude) / zoneDegrees);
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            return -1;
+        }
+        return row * cols + col;
+    }
+
+    /**
+     * Index of the zone of the box closest to the point; the point's own zone inside the box.
+     */
+    public int nearestZoneIndex(double latitude, double longitude) {
+        int row = (int) Math.floor((latitude - minLatitude) / zoneDegrees);
+        int col = (int) Math.floor((longitude - minLongitude) / zoneDegrees);
+        return Math.min(Math.max(row, 0), rows - 1) * cols + Math.min(Math.max(col, 0), cols - 1);
+    }
+
+    public int farePaise(VehicleClass vehicleClass, int fromZone, int toZone) {
+        return paise[(vehicleClass.ordinal() * zones + fromZone) * zones + toZone];
+    }
+
+    public Tariff tariff(VehicleClass vehicleClass) {
+        return tariffs[vehicleClass.ordinal()];
+    }
+
+    public int getZoneCount() {
+        return zones;
+    }
+}
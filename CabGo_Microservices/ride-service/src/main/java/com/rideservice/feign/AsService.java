@@ -0,0 +1,18 @@
+package com.rideservice.feign;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a Feign method that is always called with ride-service's own SERVICE
+ * token, even while handling a user's request. For endpoints that only other
+ * services may call; the caller decides what of the answer the user sees.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface AsService {
+}
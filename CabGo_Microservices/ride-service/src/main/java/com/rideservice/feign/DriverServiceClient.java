@@ -1,11 +1,18 @@
 package com.rideservice.feign;
 
 import com.commonlib.dto.DriverResponse;
+import com.commonlib.dto.HeatmapSnapshot;
+import com.commonlib.dto.NearbyDriverResponse;
+import feign.Request;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @FeignClient(name = "driver-service")
 public interface DriverServiceClient {
+    // Driver coordinates are only served to services
+    @AsService
     @GetMapping("/api/drivers/available/first")
     DriverResponse getAvailableDriver();
 
@@ -14,6 +21,34 @@ public interface DriverServiceClient {
     DriverResponse getDriverByPhone(@RequestParam("phone") String phone);
 
 
+    // Picks and reserves an available driver in one call; 404 when none, 409 when all candidates were taken.
+    // Claims are made on behalf of a booking, never with the rider's or driver's own token
+    @AsService
+    @PostMapping("/api/drivers/claim")
+    DriverResponse claimDriver(@RequestParam(value = "lat", required = false) Double lat,
+                               @RequestParam(value = "lng", required = false) Double lng);
+
+    // Same claim with its own connect and read timeouts, for bookings working to a deadline
+    @AsService
+    @PostMapping("/api/drivers/claim")
+    DriverResponse claimDriver(@RequestParam(value = "lat", required = false) Double lat,
+                               @RequestParam(value = "lng", required = false) Double lng,
+                               Request.Options options);
+
+    // Reserves one specific driver, 409 if somebody else got there first
+    @AsService
+    @PutMapping("/api/drivers/{id}/claim")
+    DriverResponse claimDriverById(@PathVariable("id") Long driverId);
+
+    @GetMapping("/api/drivers/heatmap")
+    HeatmapSnapshot getSupplyHeatmap(@RequestParam("windowMs") long windowMs);
+
+    @AsService
+    @GetMapping("/api/drivers/available/nearest")
+    List<NearbyDriverResponse> getNearestAvailableDrivers(@RequestParam("lat") double lat,
+                                                          @RequestParam("lng") double lng,
+                                                          @RequestParam("k") int k);
+
     @PutMapping("/api/drivers/{id}/availability")
     void setDriverAvailable(@PathVariable("id") Long driverId, @RequestParam("available") boolean available);
 }
\ No newline at end of file
@@ -1,13 +1,20 @@
 package com.rideservice.feign;
 
+import com.commonlib.dto.UserEmailResponse;
 import com.commonlib.dto.UserResponse;
 import com.rideservice.config.FeignClientConfig;
 
+import feign.Request;
+
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import java.util.List;
+
 @FeignClient(name = "user-service",configuration = FeignClientConfig.class)
 public interface UserServiceClient {
     @GetMapping("/api/users/{id}")
@@ -15,4 +22,13 @@ public interface UserServiceClient {
 
     @GetMapping("/api/users/by-email")
     UserResponse getUserByEmail(@RequestParam("email") String email);
+
+    // Same lookup with its own connect and read timeouts, for callers working to a deadline
+    @GetMapping("/api/users/by-email")
+    UserResponse getUserByEmail(@RequestParam("email") String email, Request.Options options);
+
+    // Unknown ids are left out of the result; user-service only answers SERVICE tokens
+    @AsService
+    @PostMapping("/api/users/batch")
+    List<UserEmailResponse> getUsersByIds(@RequestBody List<Long> ids);
 }
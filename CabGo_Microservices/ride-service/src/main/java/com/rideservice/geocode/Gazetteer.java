@@ -0,0 +1,226 @@
+package com.rideservice.geocode;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Offline place names with their coordinates, memory-mapped from disk.
+ *
+ * File layout (big-endian): a 16 byte header
+ *   magic, version, entry count, name bytes
+ * followed by fixed-size entries sorted by name
+ *   name offset (int), name length (short), flags (short), latitude, longitude
+ * and then the UTF-8 names back to back. Names are stored normalized, so a
+ * lookup is a binary search over the entries comparing bytes in place, with
+ * no decoding and no allocation beyond the key.
+ */
+public final class Gazetteer {
+
+    // Places kept in memory by the geocoder, e.g. airports and stations
+    public static final int PINNED = 1;
+
+    private static final int MAGIC = 0x4347415A; // "CGAZ"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int ENTRY_BYTES = 24;
+    private static final int MAX_NAME_BYTES = 255;
+
+    private final MappedByteBuffer data;
+    private final int count;
+    private final int namesStart;
+
+    private Gazetteer(MappedByteBuffer data, int count) {
+        this.data = data;
+        this.count = count;
+        this.namesStart = count * ENTRY_BYTES;
+    }
+
+    /**
+     * Lower case, with everything but letters and digits turned into single
+     * spaces, so "Kempegowda Int'l  Airport" and "kempegowda int l airport"
+     * are the same key.
+     */
+    public static String normalize(String name) {
+        StringBuilder normalized = new StringBuilder(name.length());
+        boolean space = false;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (space && !normalized.isEmpty()) {
+                    normalized.append(' ');
+                }
+                normalized.append(Character.toLowerCase(c));
+                space = false;
+            } else {
+                space = true;
+            }
+        }
+        return normalized.toString();
+    }
+
+    public static Gazetteer open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading until the header is complete or the file ends
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a gazetteer: " + path);
+            }
+            int count = header.getInt();
+            int nameBytes = header.getInt();
+            long dataBytes = (long) count * ENTRY_BYTES + nameBytes;
+            if (count < 0 || nameBytes < 0 || channel.size() != HEADER_BYTES + dataBytes) {
+                throw new IOException("Truncated or corrupt gazetteer: " + path);
+            }
+            return new Gazetteer(channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, dataBytes), count);
+        }
+    }
+
+    /**
+     * Builds the binary file from CSV lines of "latitude,longitude,pinned,name".
+     * The name comes last so it may contain commas; blank lines and lines
+     * starting with # are skipped and the first line for a name wins. Written
+     * to a temp file and moved into place, so a reader never maps a
+     * half-written file.
+     */
+    public static void build(Path path, BufferedReader csv) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = csv.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split(",", 4);
+            if (parts.length != 4) {
+                throw new IOException("Line " + lineNumber + ": expected latitude,longitude,pinned,name");
+            }
+            String name = normalize(parts[3]);
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            if (nameBytes.length == 0 || nameBytes.length > MAX_NAME_BYTES) {
+                throw new IOException("Line " + lineNumber + ": name must have 1 to " + MAX_NAME_BYTES + " bytes");
+            }
+            double latitude;
+            double longitude;
+            try {
+                latitude = Double.parseDouble(parts[0].trim());
+                longitude = Double.parseDouble(parts[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("Line " + lineNumber + ": bad coordinates", e);
+            }
+            // Also rejects NaN, which Double.parseDouble accepts
+            if (!(Math.abs(latitude) <= 90) || !(Math.abs(longitude) <= 180)) {
+                throw new IOException("Line " + lineNumber + ": bad coordinates " + latitude + "," + longitude);
+            }
+            if (seen.add(name)) {
+                entries.add(new Entry(nameBytes, "1".equals(parts[2].trim()) ? PINNED : 0, latitude, longitude));
+            }
+        }
+        entries.sort((a, b) -> Arrays.compareUnsigned(a.name(), b.name()));
+
+        int nameBytes = entries.stream().mapToInt(e -> e.name().length).sum();
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + entries.size() * ENTRY_BYTES + nameBytes);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(entries.size()).putInt(nameBytes);
+            int offset = 0;
+            for (Entry entry : entries) {
+                buffer.putInt(offset).putShort((short) entry.name().length).putShort((short) entry.flags())
+                        .putDouble(entry.latitude()).putDouble(entry.longitude());
+                offset += entry.name().length;
+            }
+            for (Entry entry : entries) {
+                buffer.put(entry.name());
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Coordinates of a normalized name, or null when it is not in the file.
+     */
+    public GeoPoint find(String normalizedName) {
+        byte[] key = normalizedName.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareName(mid, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return point(mid);
+            }
+        }
+        return null;
+    }
+
+    public void forEachPinned(BiConsumer<String, GeoPoint> action) {
+        for (int i = 0; i < count; i++) {
+            if ((data.getShort(i * ENTRY_BYTES + 6) & PINNED) != 0) {
+                byte[] name = new byte[data.getShort(i * ENTRY_BYTES + 4)];
+                data.get(namesStart + data.getInt(i * ENTRY_BYTES), name);
+                action.accept(new String(name, StandardCharsets.UTF_8), point(i));
+            }
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // Unsigned byte order, the same order the file was sorted in
+    private int compareName(int index, byte[] key) {
+        int entry = index * ENTRY_BYTES;
+        int offset = namesStart + data.getInt(entry);
+        int length = data.getShort(entry + 4);
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Byte.compareUnsigned(data.get(offset + i), key[i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private GeoPoint point(int index) {
+        int entry = index * ENTRY_BYTES;
+        return new GeoPoint(data.getDouble(entry + 8), data.getDouble(entry + 16));
+    }
+
+    private record Entry(byte[] name, int flags, double latitude, double longitude) {
+    }
+}
@@ -0,0 +1,4 @@
+package com.rideservice.geocode;
+
+public record GeoPoint(double latitude, double longitude) {
+}
@@ -0,0 +1,194 @@
+package com.rideservice.geocode;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coordinates for the free-text pickup and dropoff of a booking, without a
+ * call to any outside service.
+ *
+ * Places come from the memory-mapped {@link Gazetteer}, built from the
+ * gazetteer CSV (or the one shipped with the service) whenever the CSV is
+ * newer. Pinned places such as airports and stations are copied into a map
+ * at startup and answered with no I/O; everything else goes through an LRU
+ * of recent normalized texts, misses included, before the file is searched.
+ * Texts longer than any place name skip the LRU, so a flood of long
+ * addresses cannot fill memory. A text that is not a known place as a whole
+ * is tried one comma-separated part at a time, so "Gate 2, Kempegowda
+ * International Airport" still resolves.
+ */
+@Component
+public class Geocoder {
+
+    private static final String DEFAULT_SOURCE = "/gazetteer.csv";
+    // Cached answer for a text the gazetteer does not know, compared by identity
+    private static final GeoPoint UNKNOWN = new GeoPoint(Double.NaN, Double.NaN);
+    // Gazetteer names have at most 255 UTF-8 bytes, so no longer key matches one as a whole
+    private static final int MAX_CACHED_KEY_CHARS = 255;
+
+    private final Path sourcePath;
+    private final Path gazetteerPath;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, GeoPoint> recent;
+
+    private final Counter pinnedHits;
+    private final Counter cacheHits;
+    private final Counter gazetteerHits;
+    private final Counter misses;
+    private final Timer latency;
+
+    private volatile Gazetteer gazetteer;
+    private volatile Map<String, GeoPoint> pinned = Map.of();
+
+    public Geocoder(MeterRegistry meterRegistry,
+                    @Value("${ride.geocode.source-path:data/gazetteer.csv}") String sourcePath,
+                    @Value("${ride.geocode.gazetteer-path:data/gazetteer.bin}") String gazetteerPath,
+                    @Value("${ride.geocode.cache-size:10000}") int cacheSize) {
+        this.sourcePath = Paths.get(sourcePath);
+        this.gazetteerPath = Paths.get(gazetteerPath);
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, GeoPoint> eldest) {
+                return size() > cacheSize;
+            }
+        };
+
+        this.pinnedHits = meterRegistry.counter("ride.geocode.lookups", "source", "pinned");
+        this.cacheHits = meterRegistry.counter("ride.geocode.lookups", "source", "cache");
+        this.gazetteerHits = meterRegistry.counter("ride.geocode.lookups", "source", "gazetteer");
+        this.misses = meterRegistry.counter("ride.geocode.lookups", "source", "miss");
+        this.latency = Timer.builder("ride.geocode.latency")
+                .description("Time to geocode one pickup or dropoff text")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("ride.geocode.hit.ratio", this, Geocoder::hitRatio)
+                .description("Share of lookups answered from memory, pinned places or the LRU")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void load() {
+        try {
+            if (Files.exists(sourcePath)) {
+                if (!Files.exists(gazetteerPath)
+                        || Files.getLastModifiedTime(sourcePath).compareTo(Files.getLastModifiedTime(gazetteerPath)) > 0) {
+                    try (BufferedReader csv = Files.newBufferedReader(sourcePath, StandardCharsets.UTF_8)) {
+                        Gazetteer.build(gazetteerPath, csv);
+                    }
+                }
+            } else if (!Files.exists(gazetteerPath)) {
+                try (InputStream in = Geocoder.class.getResourceAsStream(DEFAULT_SOURCE)) {
+                    if (in == null) {
+                        throw new IOException("Missing " + DEFAULT_SOURCE);
+                    }
+                    Gazetteer.build(gazetteerPath, new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+                }
+            }
+            Gazetteer opened = Gazetteer.open(gazetteerPath);
+            Map<String, GeoPoint> pins = new HashMap<>();
+            opened.forEachPinned(pins::put);
+            pinned = Map.copyOf(pins);
+            gazetteer = opened;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Gazetteer unavailable, locations will not be geocoded: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Coordinates of the place named by the text, or null when it is not a
+     * known place or the gazetteer could not be loaded.
+     */
+    public GeoPoint locate(String text) {
+        Gazetteer current = gazetteer;
+        if (current == null || text == null || text.isBlank()) {
+            return null;
+        }
+        long started = System.nanoTime();
+        try {
+            String key = Gazetteer.normalize(text);
+            GeoPoint point = pinned.get(key);
+            if (point != null) {
+                pinnedHits.increment();
+                return point;
+            }
+
+            boolean cacheable = key.length() <= MAX_CACHED_KEY_CHARS;
+            if (cacheable) {
+                GeoPoint cached;
+                lock.lock();
+                try {
+                    cached = recent.get(key);
+                } finally {
+                    lock.unlock();
+                }
+                if (cached != null) {
+                    cacheHits.increment();
+                    return cached == UNKNOWN ? null : cached;
+                }
+            }
+
+            point = search(current, key, text);
+            (point == null ? misses : gazetteerHits).increment();
+            if (cacheable) {
+                lock.lock();
+                try {
+                    recent.put(key, point == null ? UNKNOWN : point);
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return point;
+        } finally {
+            latency.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // The whole text first, then each part in the order written; addresses usually start
+    // with the most specific part, so the first one that is a known place wins
+    private GeoPoint search(Gazetteer current, String key, String text) {
+        GeoPoint point = key.length() <= MAX_CACHED_KEY_CHARS ? current.find(key) : null;
+        if (point != null || text.indexOf(',') < 0) {
+            return point;
+        }
+        for (String part : text.split(",")) {
+            String partKey = Gazetteer.normalize(part);
+            if (partKey.isEmpty()) {
+                continue;
+            }
+            point = pinned.get(partKey);
+            if (point == null) {
+                point = current.find(partKey);
+            }
+            if (point != null) {
+                return point;
+            }
+        }
+        return null;
+    }
+
+    private double hitRatio() {
+        double fromMemory = pinnedHits.count() + cacheHits.count();
+        double total = fromMemory + gazetteerHits.count() + misses.count();
+        return total == 0 ? 0 : fromMemory / total;
+    }
+}
@@ -0,0 +1,117 @@
+package com.rideservice.heatmap;
+
+import com.commonlib.dto.HeatmapCell;
+import com.commonlib.dto.HeatmapSnapshot;
+import com.commonlib.dto.SupplyDemandCell;
+import com.commonlib.dto.SupplyDemandSnapshot;
+import com.commonlib.enums.RideStatus;
+import com.commonlib.geo.CellHeatmap;
+import com.rideservice.entity.Ride;
+import com.rideservice.repository.RideRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Open ride requests per grid cell and new requests per cell over a sliding
+ * window. Fed from the booking and status paths, read by /api/rides/heatmap,
+ * which merges in the supply side from driver-service.
+ */
+@Component
+public class DemandHeatmap {
+
+    private final RideRepository rideRepository;
+    private final CellHeatmap heatmap;
+    // Cell of every open request, so closing one needs only its id
+    private final ConcurrentHashMap<Long, Long> openRequests = new ConcurrentHashMap<>();
+
+    public DemandHeatmap(RideRepository rideRepository,
+                         @Value("${heatmap.cell-degrees:0.01}") double cellDegrees,
+                         @Value("${heatmap.bucket-ms:10000}") long bucketMs,
+                         @Value("${heatmap.buckets:90}") int buckets) {
+        this.rideRepository = rideRepository;
+        this.heatmap = new CellHeatmap(cellDegrees, bucketMs, buckets);
+    }
+
+    // Open requests survive restarts in the ride table; the sliding window starts empty
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOpenRequests() {
+        for (Object[] pickup : rideRepository.findPickupsByStatus(RideStatus.REQUESTED)) {
+            open((Long) pickup[0], heatmap.cellOf((Double) pickup[1], (Double) pickup[2]));
+        }
+    }
+
+    public void onBooked(Ride ride) {
+        if (hasPickup(ride)) {
+            long cell = heatmap.cellOf(ride.getPickupLatitude(), ride.getPickupLongitude());
+            open(ride.getRideId(), cell);
+            heatmap.recordEvent(cell);
+        }
+    }
+
+    /**
+     * Call after any successful status change; only the first call for a ride
+     * that was REQUESTED changes the open count.
+     */
+    public void onLeftRequested(Long rideId) {
+        Long cell = rideId == null ? null : openRequests.remove(rideId);
+        if (cell != null) {
+            heatmap.decrement(cell);
+        }
+    }
+
+    private void open(Long rideId, long cell) {
+        if (rideId != null && openRequests.putIfAbsent(rideId, cell) == null) {
+            heatmap.increment(cell);
+        }
+    }
+
+    public HeatmapSnapshot snapshot(long windowMs) {
+        return heatmap.snapshot(windowMs);
+    }
+
+    /**
+     * Joins the demand snapshot with driver-service's supply snapshot on grid
+     * cell. Supply cells are re-bucketed by their centre in case the two
+     * services run with different cell sizes.
+     */
+    public SupplyDemandSnapshot merge(HeatmapSnapshot demand, HeatmapSnapshot supply) {
+        Map<Long, SupplyDemandCell> cells = new HashMap<>();
+        for (HeatmapCell cell : demand.getCells()) {
+            SupplyDemandCell merged = cellFor(cells, cell.getCell(), cell.getLatitude(), cell.getLongitude());
+            merged.setOpenRequests(cell.getCurrent());
+            merged.setRecentRequests(cell.getRecent());
+        }
+        if (supply != null) {
+            for (HeatmapCell cell : supply.getCells()) {
+                long key = heatmap.cellOf(cell.getLatitude(), cell.getLongitude());
+                SupplyDemandCell merged = cellFor(cells, key, cell.getLatitude(), cell.getLongitude());
+                merged.setAvailableDrivers(merged.getAvailableDrivers() + cell.getCurrent());
+                merged.setRecentlyFreedDrivers(merged.getRecentlyFreedDrivers() + cell.getRecent());
+            }
+        }
+        return new SupplyDemandSnapshot(demand.getGeneratedAt(), demand.getCellDegrees(), demand.getWindowMs(),
+                supply != null, new ArrayList<>(cells.values()));
+    }
+
+    private static SupplyDemandCell cellFor(Map<Long, SupplyDemandCell> cells, long key, double lat, double lng) {
+        return cells.computeIfAbsent(key, k -> {
+            SupplyDemandCell cell = new SupplyDemandCell();
+            cell.setCell(k);
+            cell.setLatitude(lat);
+            cell.setLongitude(lng);
+            return cell;
+        });
+    }
+
+    private static boolean hasPickup(Ride ride) {
+        return ride.getPickupLatitude() != null && ride.getPickupLongitude() != null;
+    }
+}
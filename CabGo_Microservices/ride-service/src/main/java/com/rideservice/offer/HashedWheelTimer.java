@@ -0,0 +1,173 @@
+package com.rideservice.offer;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timing wheel for large numbers of short, mostly cancelled timeouts.
+ *
+ * One worker thread advances a wheel of buckets every tick; a timeout sits in
+ * the bucket of its deadline with a count of full rotations still to wait.
+ * Scheduling and cancelling are O(1) and never block: new timeouts go through
+ * a lock-free queue and cancelled ones are dropped the next time their bucket
+ * comes round. Deadlines are only accurate to one tick, which is fine for
+ * offer expiry measured in seconds.
+ *
+ * Tasks run on the worker thread and must be quick; hand anything blocking to
+ * an executor.
+ */
+public class HashedWheelTimer {
+
+    private final long tickNanos;
+    private final int mask;
+    private final Queue<Timeout>[] wheel;
+    private final Queue<Timeout> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final long startNanos;
+    private final Thread worker;
+
+    private volatile boolean running = true;
+    // Worker thread only
+    private long tick;
+
+    @SuppressWarnings("unchecked")
+    public HashedWheelTimer(String name, long tickDuration, TimeUnit unit, int wheelSize) {
+        if (tickDuration <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick duration and wheel size must be positive");
+        }
+        int size = Integer.highestOneBit(wheelSize - 1) << 1;
+        if (size <= 0) {
+            size = 1;
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.mask = size - 1;
+        this.wheel = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new ArrayDeque<>();
+        }
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (!running) {
+            throw new IllegalStateException("Timer stopped");
+        }
+        Timeout timeout = new Timeout(task, System.nanoTime() - startNanos + Math.max(0, unit.toNanos(delay)));
+        outstanding.incrementAndGet();
+        incoming.add(timeout);
+        return timeout;
+    }
+
+    // Scheduled and not yet fired or swept after cancel
+    public int outstanding() {
+        return outstanding.get();
+    }
+
+    public void stop() {
+        running = false;
+        worker.interrupt();
+        try {
+            worker.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            long wakeAt = startNanos + (tick + 1) * tickNanos;
+            long sleep;
+            while ((sleep = wakeAt - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, sleep);
+                if (!running) {
+                    return;
+                }
+            }
+            transferIncoming();
+            expire(wheel[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    private void transferIncoming() {
+        // Bounded so a flood of new timeouts cannot stall the tick
+        for (int i = 0; i < 100_000; i++) {
+            Timeout timeout = incoming.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.state.get() == Timeout.CANCELLED) {
+                outstanding.decrementAndGet();
+                continue;
+            }
+            long dueTick = timeout.deadlineNanos / tickNanos;
+            timeout.remainingRounds = (dueTick - tick) / wheel.length;
+            // Already overdue timeouts go into the current bucket and fire this tick
+            wheel[(int) (Math.max(dueTick, tick) & mask)].add(timeout);
+        }
+    }
+
+    private void expire(Queue<Timeout> bucket) {
+        Iterator<Timeout> it = bucket.iterator();
+        while (it.hasNext()) {
+            Timeout timeout = it.next();
+            if (timeout.state.get() == Timeout.CANCELLED) {
+                it.remove();
+                outstanding.decrementAndGet();
+            } else if (timeout.remainingRounds <= 0) {
+                it.remove();
+                outstanding.decrementAndGet();
+                timeout.fire();
+            } else {
+                timeout.remainingRounds--;
+            }
+        }
+    }
+
+    public static final class Timeout {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadlineNanos;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        // Worker thread only
+        private long remainingRounds;
+
+        private Timeout(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * Returns true if the task will not run. Exactly one of cancel and
+         * expiry wins for every timeout.
+         */
+        public boolean cancel() {
+            return state.compareAndSet(PENDING, CANCELLED);
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        private void fire() {
+            if (state.compareAndSet(PENDING, EXPIRED)) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Timer task failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
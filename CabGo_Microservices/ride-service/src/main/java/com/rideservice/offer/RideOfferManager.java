@@ -0,0 +1,324 @@
+package com.rideservice.offer;
+
+import com.commonlib.dto.DriverResponse;
+import com.commonlib.dto.NearbyDriverResponse;
+import com.commonlib.dto.RideOfferResponse;
+import com.commonlib.enums.RideStatus;
+import com.commonlib.exception.RideOfferConflictException;
+import com.rideservice.active.ActiveRideIndex;
+import com.rideservice.entity.Ride;
+import com.rideservice.eta.EtaEstimator;
+import com.rideservice.events.RideEventLog;
+import com.rideservice.events.RideEventType;
+import com.rideservice.feign.DriverServiceClient;
+import com.rideservice.heatmap.DemandHeatmap;
+import com.rideservice.push.RideUpdateHub;
+import com.rideservice.repository.RideRepository;
+import feign.FeignException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Offer stage between matching and assignment (ride.offer.enabled, off by default).
+ *
+ * A matched driver is claimed in driver-service and gets the ride as an offer
+ * for timeout-ms. Accepting assigns the ride; declining or letting the offer
+ * lapse releases the driver and offers the ride to the next nearest one, up
+ * to max-attempts drivers, after which the ride is cancelled. Offers live in
+ * memory; their expiry is a timeout on a hashed wheel, so outstanding
+ * offers cost an entry in two maps and one small timer object each. The
+ * ride row only records the offered driver, which UnassignedRideSweeper
+ * uses to free them after a restart.
+ */
+@Component
+public class RideOfferManager {
+
+    private final RideRepository rideRepository;
+    private final DriverServiceClient driverServiceClient;
+    private final DemandHeatmap demandHeatmap;
+    private final EtaEstimator etaEstimator;
+    private final ActiveRideIndex activeRideIndex;
+    private final RideEventLog rideEventLog;
+    private final RideUpdateHub rideUpdateHub;
+    private final boolean enabled;
+    private final long timeoutMs;
+    private final int maxAttempts;
+
+    private final HashedWheelTimer timer;
+    // Expiry hands off here, the remote calls for the next candidate must not run on the wheel thread
+    private final ExecutorService reofferExecutor;
+
+    private final ConcurrentHashMap<Long, Offer> offersByRide = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Long> rideByDriver = new ConcurrentHashMap<>();
+
+    private final Counter offered;
+    private final Counter accepted;
+    private final Counter declined;
+    private final Counter expired;
+    private final Counter exhausted;
+
+    public RideOfferManager(RideRepository rideRepository,
+                            DriverServiceClient driverServiceClient,
+                            DemandHeatmap demandHeatmap,
+                            EtaEstimator etaEstimator,
+                            ActiveRideIndex activeRideIndex,
+                            RideEventLog rideEventLog,
+                            RideUpdateHub rideUpdateHub,
+                            MeterRegistry meterRegistry,
+                            @Value("${ride.offer.enabled:false}") boolean enabled,
+                            @Value("${ride.offer.timeout-ms:15000}") long timeoutMs,
+                            @Value("${ride.offer.max-attempts:5}") int maxAttempts,
+                            @Value("${ride.offer.tick-ms:100}") long tickMs,
+                            @Value("${ride.offer.wheel-size:512}") int wheelSize,
+                            @Value("${ride.offer.reoffer-threads:4}") int reofferThreads,
+                            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.rideRepository = rideRepository;
+        this.driverServiceClient = driverServiceClient;
+        this.demandHeatmap = demandHeatmap;
+        this.etaEstimator = etaEstimator;
+        this.activeRideIndex = activeRideIndex;
+        this.rideEventLog = rideEventLog;
+        this.rideUpdateHub = rideUpdateHub;
+        this.enabled = enabled;
+        this.timeoutMs = timeoutMs;
+        this.maxAttempts = maxAttempts;
+        this.timer = new HashedWheelTimer("ride-offer-timer", tickMs, TimeUnit.MILLISECONDS, wheelSize);
+        // Re-offers are mostly Feign calls; in virtual-thread mode each one gets its own virtual thread
+        this.reofferExecutor = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ride-offer-reoffer-", 0).factory())
+                : Executors.newFixedThreadPool(reofferThreads, r -> {
+                    Thread thread = new Thread(r, "ride-offer-reoffer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        this.offered = meterRegistry.counter("ride.offer", "outcome", "offered");
+        this.accepted = meterRegistry.counter("ride.offer", "outcome", "accepted");
+        this.declined = meterRegistry.counter("ride.offer", "outcome", "declined");
+        this.expired = meterRegistry.counter("ride.offer", "outcome", "expired");
+        this.exhausted = meterRegistry.counter("ride.offer", "outcome", "exhausted");
+        Gauge.builder("ride.offer.outstanding", offersByRide, Map::size).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Offers a saved REQUESTED ride to a driver that has already been claimed
+     * for it in driver-service.
+     */
+    public void open(Ride ride, long driverId, Integer pickupSeconds) {
+        Set<Long> tried = new HashSet<>();
+        tried.add(driverId);
+        offer(new Offer(ride.getRideId(), driverId, ride.getPickupLatitude(), ride.getPickupLongitude(),
+                pickupSeconds, 1, tried, System.currentTimeMillis() + timeoutMs));
+    }
+
+    private void offer(Offer offer) {
+        try {
+            rideRepository.setOfferedDriver(offer.rideId(), offer.driverId());
+        } catch (RuntimeException e) {
+            // The offer still works from memory, only a restart in the meantime would lose track of the driver
+            System.err.println("Could not record offer of ride " + offer.rideId() + ": " + e.getMessage());
+        }
+        offersByRide.put(offer.rideId(), offer);
+        rideByDriver.put(offer.driverId(), offer.rideId());
+        offered.increment();
+        // Registered after the put: if accept wins first, expiry finds the offer gone and does nothing
+        scheduleExpiry(offer, timeoutMs);
+        rideUpdateHub.pushOffer(offer.driverId(), offer.toResponse());
+    }
+
+    private void scheduleExpiry(Offer offer, long delayMs) {
+        offer.timeout().set(timer.schedule(() -> reofferExecutor.execute(() -> expire(offer)),
+                delayMs, TimeUnit.MILLISECONDS));
+    }
+
+    public Ride accept(long rideId, long driverId) {
+        Offer offer = take(rideId, driverId);
+
+        int assigned;
+        try {
+            assigned = rideRepository.assignDriver(rideId, driverId, offer.pickupSeconds(),
+                    RideStatus.REQUESTED, RideStatus.ASSIGNED);
+        } catch (RuntimeException e) {
+            // Nothing was assigned: the offer goes back out, so the driver can retry and expiry still frees them
+            reopen(offer);
+            throw e;
+        }
+        if (assigned == 0) {
+            // Cancelled by the rider while the offer was out
+            release(driverId);
+            throw new RideOfferConflictException("Ride is no longer open");
+        }
+        accepted.increment();
+        demandHeatmap.onLeftRequested(rideId);
+        activeRideIndex.assign(driverId, rideId);
+        rideEventLog.append(RideEventType.ASSIGNED, rideId, null, driverId, RideStatus.ASSIGNED);
+        return rideRepository.findById(rideId)
+                .orElseThrow(() -> new RideOfferConflictException("Ride is no longer open"));
+    }
+
+    public void decline(long rideId, long driverId) {
+        Offer offer = take(rideId, driverId);
+        declined.increment();
+        reofferExecutor.execute(() -> moveOn(offer));
+    }
+
+    public RideOfferResponse currentOffer(long driverId) {
+        Long rideId = rideByDriver.get(driverId);
+        Offer offer = rideId == null ? null : offersByRide.get(rideId);
+        if (offer == null || offer.driverId() != driverId) {
+            return null;
+        }
+        return offer.toResponse();
+    }
+
+    public int outstanding() {
+        return offersByRide.size();
+    }
+
+    // Removes the driver's live offer for the ride, or fails if it already expired or went to someone else
+    private Offer take(long rideId, long driverId) {
+        Offer offer = offersByRide.get(rideId);
+        if (offer == null || offer.driverId() != driverId || !offersByRide.remove(rideId, offer)) {
+            throw new RideOfferConflictException("No open offer for this ride");
+        }
+        rideByDriver.remove(driverId, rideId);
+        offer.cancelTimeout();
+        return offer;
+    }
+
+    // Puts a taken offer back with whatever time it had left
+    private void reopen(Offer offer) {
+        offersByRide.put(offer.rideId(), offer);
+        rideByDriver.put(offer.driverId(), offer.rideId());
+        scheduleExpiry(offer, offer.expiresAt() - System.currentTimeMillis());
+    }
+
+    private void expire(Offer offer) {
+        if (offersByRide.remove(offer.rideId(), offer)) {
+            rideByDriver.remove(offer.driverId(), offer.rideId());
+            expired.increment();
+            moveOn(offer);
+        }
+    }
+
+    private void moveOn(Offer previous) {
+        release(previous.driverId());
+        try {
+            Ride ride = rideRepository.findById(previous.rideId()).orElse(null);
+            if (ride == null || ride.getStatus() != RideStatus.REQUESTED) {
+                return;
+            }
+            Offer next = previous.attempt() < maxAttempts ? claimNext(previous) : null;
+            if (next == null) {
+                exhausted.increment();
+                if (rideRepository.transition(previous.rideId(), List.of(RideStatus.REQUESTED), RideStatus.CANCELLED) > 0) {
+                    demandHeatmap.onLeftRequested(previous.rideId());
+                    rideEventLog.statusChanged(previous.rideId(), RideStatus.CANCELLED);
+                }
+                return;
+            }
+            offer(next);
+        } catch (RuntimeException e) {
+            System.err.println("Could not re-offer ride " + previous.rideId() + ": " + e.getMessage());
+        }
+    }
+
+    // Claims the nearest available driver that has not seen this ride yet
+    private Offer claimNext(Offer previous) {
+        Set<Long> tried = new HashSet<>(previous.tried());
+        if (previous.pickupLatitude() != null && previous.pickupLongitude() != null) {
+            for (NearbyDriverResponse candidate : driverServiceClient.getNearestAvailableDrivers(
+                    previous.pickupLatitude(), previous.pickupLongitude(), tried.size() + 5)) {
+                if (tried.contains(candidate.getDriverId()) || !claim(candidate.getDriverId())) {
+                    continue;
+                }
+                tried.add(candidate.getDriverId());
+                return previous.next(candidate.getDriverId(), etaEstimator.estimateSeconds(
+                        candidate.getLatitude(), candidate.getLongitude(),
+                        previous.pickupLatitude(), previous.pickupLongitude()), tried, timeoutMs);
+            }
+            return null;
+        }
+        try {
+            DriverResponse driver = driverServiceClient.claimDriver(null, null);
+            if (driver == null || driver.getDriverId() == null) {
+                return null;
+            }
+            if (tried.contains(driver.getDriverId())) {
+                release(driver.getDriverId());
+                return null;
+            }
+            tried.add(driver.getDriverId());
+            return previous.next(driver.getDriverId(), null, tried, timeoutMs);
+        } catch (FeignException e) {
+            return null;
+        }
+    }
+
+    private boolean claim(long driverId) {
+        try {
+            return driverServiceClient.claimDriverById(driverId) != null;
+        } catch (FeignException e) {
+            return false;
+        }
+    }
+
+    private void release(long driverId) {
+        try {
+            driverServiceClient.setDriverAvailable(driverId, true);
+        } catch (FeignException e) {
+            System.err.println("Could not release driver " + driverId + ": " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.stop();
+        reofferExecutor.shutdown();
+    }
+
+    private record Offer(long rideId, long driverId, Double pickupLatitude, Double pickupLongitude,
+                         Integer pickupSeconds, int attempt, Set<Long> tried, long expiresAt,
+                         AtomicReference<HashedWheelTimer.Timeout> timeout) {
+
+        private Offer(long rideId, long driverId, Double pickupLatitude, Double pickupLongitude,
+                      Integer pickupSeconds, int attempt, Set<Long> tried, long expiresAt) {
+            this(rideId, driverId, pickupLatitude, pickupLongitude, pickupSeconds, attempt, tried, expiresAt,
+                    new AtomicReference<>());
+        }
+
+        private Offer next(long nextDriverId, Integer nextPickupSeconds, Set<Long> nextTried, long timeoutMs) {
+            return new Offer(rideId, nextDriverId, pickupLatitude, pickupLongitude, nextPickupSeconds,
+                    attempt + 1, nextTried, System.currentTimeMillis() + timeoutMs);
+        }
+
+        private RideOfferResponse toResponse() {
+            return new RideOfferResponse(rideId, pickupLatitude, pickupLongitude, pickupSeconds, expiresAt);
+        }
+
+        private void cancelTimeout() {
+            HashedWheelTimer.Timeout scheduled = timeout.get();
+            if (scheduled != null) {
+                scheduled.cancel();
+            }
+        }
+    }
+}
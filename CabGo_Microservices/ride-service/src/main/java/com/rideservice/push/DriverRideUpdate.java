@@ -0,0 +1,20 @@
+package com.rideservice.push;
+
+import com.commonlib.enums.RideStatus;
+import com.rideservice.entity.RideEvent;
+import com.rideservice.events.RideEventType;
+
+import java.time.LocalDateTime;
+
+/**
+ * A ride event as a driver stream sees it: what happened to the ride, but
+ * not who booked it.
+ */
+public record DriverRideUpdate(Long eventId, Long rideId, RideEventType type, RideStatus status,
+                               LocalDateTime occurredAt) {
+
+    static DriverRideUpdate of(RideEvent event) {
+        return new DriverRideUpdate(event.getEventId(), event.getRideId(), event.getType(), event.getStatus(),
+                event.getOccurredAt());
+    }
+}
@@ -0,0 +1,20 @@
+package com.rideservice.push;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * What gets queued per connection. SseEventBuilder is mutated when sent, so
+ * the builder is created per send rather than shared between connections.
+ */
+record PushMessage(String name, String id, Object data) {
+
+    static final PushMessage HEARTBEAT = new PushMessage(null, null, null);
+
+    SseEmitter.SseEventBuilder toEvent() {
+        if (name == null) {
+            return SseEmitter.event().comment("heartbeat");
+        }
+        SseEmitter.SseEventBuilder event = SseEmitter.event().name(name).data(data);
+        return id == null ? event : event.id(id);
+    }
+}
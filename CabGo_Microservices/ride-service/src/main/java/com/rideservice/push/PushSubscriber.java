@@ -0,0 +1,85 @@
+package com.rideservice.push;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One open SSE connection with its own bounded send queue. Publishers only
+ * enqueue; a single drain task at a time writes to the socket, so a slow
+ * client backs up its own queue and nothing else. When the queue is full
+ * the connection is closed and the client is expected to reconnect.
+ */
+final class PushSubscriber {
+
+    private final SseEmitter emitter;
+    private final int capacity;
+    private final Executor sender;
+
+    private final Queue<PushMessage> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile boolean closed;
+
+    PushSubscriber(SseEmitter emitter, int capacity, Executor sender) {
+        this.emitter = emitter;
+        this.capacity = capacity;
+        this.sender = sender;
+    }
+
+    SseEmitter emitter() {
+        return emitter;
+    }
+
+    /**
+     * Queues a message, or returns false if the client is too far behind.
+     */
+    boolean offer(PushMessage message) {
+        if (closed) {
+            return true;
+        }
+        if (queued.incrementAndGet() > capacity) {
+            queued.decrementAndGet();
+            return false;
+        }
+        queue.add(message);
+        if (draining.compareAndSet(false, true)) {
+            sender.execute(this::drain);
+        }
+        return true;
+    }
+
+    boolean isIdle() {
+        return queued.get() == 0;
+    }
+
+    void close() {
+        if (!closed) {
+            closed = true;
+            emitter.complete();
+        }
+    }
+
+    private void drain() {
+        try {
+            PushMessage next;
+            while (!closed && (next = queue.poll()) != null) {
+                queued.decrementAndGet();
+                emitter.send(next.toEvent());
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; the emitter callbacks unregister it
+            close();
+        } finally {
+            draining.set(false);
+            if (!closed && !queue.isEmpty() && draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.rideservice.push;
+
+import com.commonlib.dto.RideOfferResponse;
+import com.rideservice.entity.RideEvent;
+import com.rideservice.events.DriverQueueView;
+import com.rideservice.events.RideEventListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-sent ride updates, replacing polling of pending-requests and
+ * /api/rides/{rideId}. Drivers get offers and every event of their rides,
+ * without the rider's id; riders subscribe to a single ride.
+ *
+ * Streams are held per instance and an event is only pushed by the
+ * instance that appended it. Push therefore needs ride-service to run as a
+ * single instance, which InstanceLease enforces; with several, a stream
+ * would miss the events of rides handled elsewhere until they fan out
+ * through a shared channel.
+ *
+ * An idle connection is an async servlet request plus one small subscriber
+ * object, no thread. Writes run on virtual threads, so a client with a full
+ * TCP buffer parks a virtual thread instead of holding a pool thread.
+ */
+@Component
+public class RideUpdateHub implements RideEventListener {
+
+    private final DriverQueueView driverQueueView;
+    private final long timeoutMs;
+    private final int queueCapacity;
+    private final int maxConnections;
+
+    private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+    private final ConcurrentHashMap<Long, Set<PushSubscriber>> byDriver = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<PushSubscriber>> byRide = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private final Counter slowConsumers;
+
+    public RideUpdateHub(DriverQueueView driverQueueView,
+                         MeterRegistry meterRegistry,
+                         @Value("${ride.push.timeout-ms:1800000}") long timeoutMs,
+                         @Value("${ride.push.queue-capacity:32}") int queueCapacity,
+                         @Value("${ride.push.max-connections:20000}") int maxConnections) {
+        this.driverQueueView = driverQueueView;
+        this.timeoutMs = timeoutMs;
+        this.queueCapacity = queueCapacity;
+        this.maxConnections = maxConnections;
+        this.slowConsumers = Counter.builder("ride.push.slow.consumers")
+                .description("Connections closed because their send queue was full")
+                .register(meterRegistry);
+        Gauge.builder("ride.push.connections", connections, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream for the driver, or returns null when this instance is
+     * at ride.push.max-connections.
+     */
+    public SseEmitter subscribeDriver(Long driverId) {
+        return subscribe(byDriver, driverId);
+    }
+
+    public SseEmitter subscribeRide(Long rideId) {
+        return subscribe(byRide, rideId);
+    }
+
+    @Override
+    public void onEvent(RideEvent event) {
+        String id = String.valueOf(event.getEventId());
+        send(byRide.get(event.getRideId()), new PushMessage("ride", id, event));
+        Long driverId = event.getDriverId() != null ? event.getDriverId() : driverQueueView.driverFor(event.getRideId());
+        if (driverId != null) {
+            send(byDriver.get(driverId), new PushMessage("ride", id, DriverRideUpdate.of(event)));
+        }
+    }
+
+    public void pushOffer(Long driverId, RideOfferResponse offer) {
+        send(byDriver.get(driverId), new PushMessage("offer", null, offer));
+    }
+
+    public int connections() {
+        return connections.get();
+    }
+
+    // Keeps proxies and load balancers from closing idle streams; busy connections need none
+    @Scheduled(fixedDelayString = "${ride.push.heartbeat-ms:15000}")
+    public void heartbeat() {
+        heartbeat(byDriver);
+        heartbeat(byRide);
+    }
+
+    private void heartbeat(Map<Long, Set<PushSubscriber>> subscribers) {
+        for (Set<PushSubscriber> group : subscribers.values()) {
+            for (PushSubscriber subscriber : group) {
+                if (subscriber.isIdle()) {
+                    subscriber.offer(PushMessage.HEARTBEAT);
+                }
+            }
+        }
+    }
+
+    private SseEmitter subscribe(ConcurrentHashMap<Long, Set<PushSubscriber>> subscribers, Long key) {
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        PushSubscriber subscriber = new PushSubscriber(emitter, queueCapacity, sender);
+        subscribers.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+
+        Runnable unregister = () -> {
+            boolean[] removed = new boolean[1];
+            subscribers.computeIfPresent(key, (k, group) -> {
+                removed[0] = group.remove(subscriber);
+                return group.isEmpty() ? null : group;
+            });
+            if (removed[0]) {
+                connections.decrementAndGet();
+            }
+        };
+        emitter.onCompletion(unregister);
+        emitter.onTimeout(unregister);
+        emitter.onError(e -> unregister.run());
+        return emitter;
+    }
+
+    private void send(Set<PushSubscriber> group, PushMessage message) {
+        if (group == null) {
+            return;
+        }
+        for (PushSubscriber subscriber : group) {
+            if (!subscriber.offer(message)) {
+                slowConsumers.increment();
+                subscriber.close();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Set<PushSubscriber> group : byDriver.values()) {
+            group.forEach(PushSubscriber::close);
+        }
+        for (Set<PushSubscriber> group : byRide.values()) {
+            group.forEach(PushSubscriber::close);
+        }
+        sender.shutdown();
+    }
+}
@@ -0,0 +1,31 @@
+package com.rideservice.repository;
+
+import com.commonlib.enums.RideStatus;
+import com.rideservice.entity.ActiveRide;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ActiveRideRepository extends JpaRepository<ActiveRide, Long> {
+
+    // Single statement upsert, a stale row for the driver is simply replaced
+    @Modifying
+    @Transactional
+    @Query(value = "insert into active_ride (driver_id, ride_id) values (:driverId, :rideId) "
+            + "on duplicate key update ride_id = values(ride_id)", nativeQuery = true)
+    int upsert(@Param("driverId") Long driverId, @Param("rideId") Long rideId);
+
+    @Modifying
+    @Transactional
+    @Query("delete from ActiveRide a where a.rideId = :rideId")
+    int deleteByRideId(@Param("rideId") Long rideId);
+
+    // One-off backfill from the ride table when active_ride starts out empty
+    @Query("select r.driverId, r.rideId from Ride r where r.driverId is not null and r.status in :statuses")
+    List<Object[]> findAssignedRides(@Param("statuses") Collection<RideStatus> statuses);
+}
@@ -0,0 +1,38 @@
+package com.rideservice.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import com.commonlib.enums.RideStatus;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.rideservice.entity.ArchivedRide;
+
+public interface ArchivedRideRepository extends JpaRepository<ArchivedRide, Long> {
+    Optional<ArchivedRide> findFirstByUserIdOrderByRideIdDesc(Long userId);
+    Optional<ArchivedRide> findFirstByUserIdAndStatusOrderByRideIdDesc(Long userId, RideStatus status);
+
+    // Same keyset page as RideRepository.findUserRidesBefore, against the cold table
+    @Query("select a from ArchivedRide a where a.userId = :userId and a.rideId < :beforeId order by a.rideId desc")
+    List<ArchivedRide> findUserRidesBefore(@Param("userId") Long userId, @Param("beforeId") Long beforeId, Limit limit);
+
+    @Query("select coalesce(max(a.rideId), 0) from ArchivedRide a")
+    long findMaxRideId();
+
+    // Copies the rides over in one statement; the caller deletes them from the hot table in the same transaction
+    @Modifying
+    @Query("insert into ArchivedRide (rideId, userId, driverId, pickupLocation, dropoffLocation, "
+            + "pickupLatitude, pickupLongitude, dropoffLatitude, dropoffLongitude, fare, "
+            + "estimatedPickupSeconds, estimatedTripSeconds, status, requestedAt, archivedAt) "
+            + "select r.rideId, r.userId, r.driverId, r.pickupLocation, r.dropoffLocation, "
+            + "r.pickupLatitude, r.pickupLongitude, r.dropoffLatitude, r.dropoffLongitude, r.fare, "
+            + "r.estimatedPickupSeconds, r.estimatedTripSeconds, r.status, r.requestedAt, :archivedAt "
+            + "from Ride r where r.rideId in :rideIds")
+    int copyFromRides(@Param("rideIds") Collection<Long> rideIds, @Param("archivedAt") LocalDateTime archivedAt);
+}
@@ -0,0 +1,42 @@
+package com.rideservice.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.rideservice.entity.BookingIdempotencyKey;
+
+public interface BookingIdempotencyKeyRepository extends JpaRepository<BookingIdempotencyKey, String> {
+    // A plain insert, so a key that is already stored fails on the primary key instead of being merged
+    @Modifying
+    @Transactional
+    @Query(value = "insert into booking_idempotency_key (key_hash, request_fingerprint, created_at) values (:keyHash, :fingerprint, :createdAt)", nativeQuery = true)
+    int reserve(@Param("keyHash") String keyHash, @Param("fingerprint") String fingerprint, @Param("createdAt") LocalDateTime createdAt);
+
+    // Reuses a key that expired, or whose booking was abandoned without finishing or releasing it
+    @Modifying
+    @Transactional
+    @Query("update BookingIdempotencyKey k set k.rideId = null, k.requestFingerprint = :fingerprint, k.createdAt = :createdAt " +
+            "where k.keyHash = :keyHash and (k.createdAt < :expiredBefore or (k.rideId is null and k.createdAt < :abandonedBefore))")
+    int takeOver(@Param("keyHash") String keyHash, @Param("fingerprint") String fingerprint, @Param("createdAt") LocalDateTime createdAt,
+                 @Param("expiredBefore") LocalDateTime expiredBefore, @Param("abandonedBefore") LocalDateTime abandonedBefore);
+
+    @Modifying
+    @Transactional
+    @Query("update BookingIdempotencyKey k set k.rideId = :rideId where k.keyHash = :keyHash")
+    int attachRide(@Param("keyHash") String keyHash, @Param("rideId") Long rideId);
+
+    @Modifying
+    @Transactional
+    @Query("delete from BookingIdempotencyKey k where k.keyHash = :keyHash and k.rideId is null")
+    int release(@Param("keyHash") String keyHash);
+
+    @Modifying
+    @Transactional
+    @Query("delete from BookingIdempotencyKey k where k.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,8 @@
+package com.rideservice.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.rideservice.entity.RideEventCheckpoint;
+
+public interface RideEventCheckpointRepository extends JpaRepository<RideEventCheckpoint, Long> {
+}
@@ -0,0 +1,27 @@
+package com.rideservice.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.rideservice.entity.RideEventLogLease;
+
+public interface RideEventLogLeaseRepository extends JpaRepository<RideEventLogLease, Long> {
+    // A plain insert, so an existing lease fails on the primary key instead of being merged
+    @Modifying
+    @Transactional
+    @Query(value = "insert into ride_event_log_lease (lease_id, instance_id, renewed_at) values (:leaseId, :instanceId, :renewedAt)", nativeQuery = true)
+    int create(@Param("leaseId") Long leaseId, @Param("instanceId") String instanceId, @Param("renewedAt") LocalDateTime renewedAt);
+
+    // Renews the lease of this instance, or takes over one its owner stopped renewing
+    @Modifying
+    @Transactional
+    @Query("update RideEventLogLease l set l.instanceId = :instanceId, l.renewedAt = :renewedAt " +
+            "where l.leaseId = :leaseId and (l.instanceId = :instanceId or l.renewedAt < :staleBefore)")
+    int renew(@Param("leaseId") Long leaseId, @Param("instanceId") String instanceId,
+              @Param("renewedAt") LocalDateTime renewedAt, @Param("staleBefore") LocalDateTime staleBefore);
+}
@@ -0,0 +1,19 @@
+package com.rideservice.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import com.rideservice.entity.RideEvent;
+
+public interface RideEventRepository extends JpaRepository<RideEvent, Long> {
+    List<RideEvent> findByRideIdOrderByEventId(Long rideId);
+
+    // Replay in log order, one keyset page at a time
+    List<RideEvent> findByEventIdGreaterThanOrderByEventId(Long afterEventId, Limit limit);
+
+    @Query("select coalesce(max(e.eventId), 0) from RideEvent e")
+    long findMaxEventId();
+}
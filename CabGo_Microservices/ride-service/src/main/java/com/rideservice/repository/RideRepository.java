@@ -1,21 +1,69 @@
 package com.rideservice.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 import com.commonlib.enums.RideStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.rideservice.entity.Ride;
 
 public interface RideRepository extends JpaRepository<Ride, Long> {
-    List<Ride> findByUserId(Long userId);
+    // Newest ride of a user, a LIMIT 1 read off the (user_id, ride_id desc) index
+    Optional<Ride> findFirstByUserIdOrderByRideIdDesc(Long userId);
+    Optional<Ride> findFirstByUserIdAndStatusOrderByRideIdDesc(Long userId, RideStatus status);
+
+    // Keyset page of a user's rides, newest first
+    @Query("select r from Ride r where r.userId = :userId and r.rideId < :beforeId order by r.rideId desc")
+    List<Ride> findUserRidesBefore(@Param("userId") Long userId, @Param("beforeId") Long beforeId, Limit limit);
     List<Ride> findByDriverId(Long driverId);
 
-    // For getPendingRidesForDriver:
-    List<Ride> findByDriverIdAndStatusIn(Long driverId, List<RideStatus> statuses);
+    // Active-ride lookups per driver go through ActiveRideIndex instead of these history queries
+
+    // Id and pickup coordinates only, used to rebuild the demand heatmap on startup
+    @Query("select r.rideId, r.pickupLatitude, r.pickupLongitude from Ride r where r.status = :status and r.pickupLatitude is not null and r.pickupLongitude is not null")
+    List<Object[]> findPickupsByStatus(@Param("status") RideStatus status);
+
+    // Conditional status change in one statement; 0 means the ride is missing or not in one of the from statuses
+    @Modifying
+    @Transactional
+    @Query("update Ride r set r.status = :to where r.rideId = :rideId and r.status in :from")
+    int transition(@Param("rideId") Long rideId, @Param("from") Collection<RideStatus> from, @Param("to") RideStatus to);
+
+    // Sets the driver only if nobody else did and the ride is still in the expected status
+    @Modifying
+    @Transactional
+    @Query("update Ride r set r.driverId = :driverId, r.estimatedPickupSeconds = :pickupSeconds, r.status = :to "
+            + "where r.rideId = :rideId and r.status = :from and r.driverId is null")
+    int assignDriver(@Param("rideId") Long rideId, @Param("driverId") Long driverId,
+                     @Param("pickupSeconds") Integer pickupSeconds,
+                     @Param("from") RideStatus from, @Param("to") RideStatus to);
+
+    @Modifying
+    @Transactional
+    @Query("update Ride r set r.offeredDriverId = :driverId where r.rideId = :rideId")
+    int setOfferedDriver(@Param("rideId") Long rideId, @Param("driverId") Long driverId);
+
+    // Rides in the status that still have no driver, requested before the cutoff, for UnassignedRideSweeper
+    @Query("select r from Ride r where r.status = :status and r.driverId is null "
+            + "and (r.requestedAt < :cutoff or r.requestedAt is null) order by r.rideId")
+    List<Ride> findUnassignedBefore(@Param("status") RideStatus status, @Param("cutoff") LocalDateTime cutoff);
+
+    // Oldest finished rides first, for RideArchiver; rows from before requestedAt existed count as old
+    @Query("select r.rideId from Ride r where r.status in :statuses "
+            + "and (r.requestedAt < :cutoff or r.requestedAt is null) order by r.rideId")
+    List<Long> findArchivableIds(@Param("statuses") Collection<RideStatus> statuses,
+                                 @Param("cutoff") LocalDateTime cutoff, Limit limit);
 
-    // Minor improvement for updateStatusByDriver, to find non-completed rides:
-    List<Ride> findByDriverIdAndStatusNotIn(Long driverId, List<RideStatus> statuses);
-    // --- END NEW REPOSITORY METHODS ---
+    @Modifying
+    @Query("delete from Ride r where r.rideId in :rideIds")
+    int deleteByRideIds(@Param("rideIds") Collection<Long> rideIds);
 
 }
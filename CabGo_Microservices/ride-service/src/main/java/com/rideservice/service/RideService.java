@@ -3,16 +3,36 @@ package com.rideservice.service;
 
 
 import com.commonlib.dto.RideBookingRequest;
+import com.commonlib.dto.RideOfferResponse;
+import com.commonlib.dto.SupplyDemandSnapshot;
+import com.commonlib.enums.RideStatus;
+import com.commonlib.enums.VehicleClass;
 import com.rideservice.entity.Ride;
+import com.rideservice.entity.RideEvent;
+import com.rideservice.events.DriverQueueView;
 
 import java.util.List;
+import java.util.Map;
 
 public interface RideService {
-    Ride bookRide(RideBookingRequest request, Long userId);         // request contains userId and driverId
+    Ride bookRide(RideBookingRequest request, String userEmail);    // resolves the user, then claims a driver
+    Ride bookRide(RideBookingRequest request, String userEmail, String idempotencyKey); // repeats of a key return the first ride
     void updateStatus(Long rideId, String status);     // update ride status (e.g., COMPLETED)
-    List<Ride> getUserRides(Long userId);              // list of rides booked by a user
+    List<Ride> getUserRides(Long userId, Long beforeId, Integer size); // one page of a user's rides, newest first
+    Ride getLatestUserRide(Long userId, RideStatus status); // null when the user has no (matching) ride
     void updateStatusByDriver(Long driverId, String status); // Use driverId instead of phone
 
     Ride getRideById(Long rideId); // Fetch ride details by rideId
+    List<Ride> getRidesByIds(List<Long> rideIds); // in request order, unknown ids left out
     List<Ride> getPendingRidesForDriver(Long driverId);
+    SupplyDemandSnapshot getSupplyDemandHeatmap(long windowMs);
+    Map<VehicleClass, Double> getFareQuote(Double pickupLatitude, Double pickupLongitude,
+                                           Double dropoffLatitude, Double dropoffLongitude); // fare per vehicle class, surge included
+    double getSurgeMultiplier(Double latitude, Double longitude); // 1.0 when there is no surge
+    List<RideEvent> getRideTimeline(Long rideId); // every transition of the ride, oldest first
+    List<DriverQueueView.Entry> getDriverQueue(Long driverId); // open rides of the driver, from the event read model
+    Map<RideStatus, Long> getStatusCounts(); // open rides by status plus completed/cancelled totals
+    Ride acceptOffer(Long rideId, Long driverId);
+    void declineOffer(Long rideId, Long driverId);
+    RideOfferResponse getCurrentOffer(Long driverId);
 }
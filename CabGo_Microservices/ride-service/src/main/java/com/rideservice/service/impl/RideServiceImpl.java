@@ -3,102 +3,510 @@ package com.rideservice.service.impl;
 import com.commonlib.dto.RideBookingRequest;
 import com.commonlib.dto.UserResponse;
 import com.commonlib.dto.DriverResponse;
+import com.commonlib.dto.HeatmapSnapshot;
+import com.commonlib.dto.RideOfferResponse;
+import com.commonlib.dto.SupplyDemandSnapshot;
 import com.commonlib.enums.RideStatus;
+import com.commonlib.enums.VehicleClass;
+import com.commonlib.exception.RideStatusConflictException;
+import com.commonlib.exception.NoDriversAvailableException;
+import com.commonlib.exception.UserNotFoundException;
+import com.rideservice.active.ActiveRideIndex;
+import com.rideservice.booking.BookingTimings;
+import com.rideservice.booking.BookingQueue;
+import com.rideservice.booking.IdempotentBookings;
+import com.rideservice.archive.RideArchiver;
+import com.rideservice.dispatch.BatchDispatcher;
+import com.rideservice.entity.ArchivedRide;
 import com.rideservice.entity.Ride;
+import com.rideservice.entity.RideEvent;
+import com.rideservice.eta.EtaEstimator;
+import com.rideservice.fare.FareEngine;
+import com.rideservice.geocode.GeoPoint;
+import com.rideservice.geocode.Geocoder;
+import com.rideservice.events.DriverQueueView;
+import com.rideservice.events.RideEventLog;
+import com.rideservice.events.RideEventType;
+import com.rideservice.events.RideStatusCountsView;
+import com.rideservice.heatmap.DemandHeatmap;
+import com.rideservice.offer.RideOfferManager;
+import com.rideservice.repository.ArchivedRideRepository;
 import com.rideservice.repository.RideRepository;
 import com.rideservice.service.RideService;
+import com.rideservice.state.RideStateMachine;
+import com.rideservice.surge.SurgePricing;
 import com.rideservice.feign.UserServiceClient;
 import com.rideservice.feign.DriverServiceClient;
+import feign.FeignException;
+import feign.Request;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 public class RideServiceImpl implements RideService {
 
+    // driver-service already walks several candidates per claim, so a couple of retries is plenty
+    private static final int CLAIM_ATTEMPTS = 3;
+    // Read timeout of a booking's claim once sent; it outlives the deadline so a driver it took is never lost
+    private static final long CLAIM_READ_TIMEOUT_MS = 60_000;
+    private static final List<RideStatus> FINAL_STATUSES = List.of(RideStatus.COMPLETED, RideStatus.CANCELLED);
+
     private final RideRepository rideRepository;
     private final UserServiceClient userServiceClient;
     private final DriverServiceClient driverServiceClient;
+    private final BatchDispatcher batchDispatcher;
+    private final DemandHeatmap demandHeatmap;
+    private final EtaEstimator etaEstimator;
+    private final RideOfferManager rideOfferManager;
+    private final ActiveRideIndex activeRideIndex;
+    private final ArchivedRideRepository archivedRideRepository;
+    private final RideArchiver rideArchiver;
+    private final RideEventLog rideEventLog;
+    private final DriverQueueView driverQueueView;
+    private final RideStatusCountsView rideStatusCountsView;
+    private final BookingTimings bookingTimings;
+    private final IdempotentBookings idempotentBookings;
+    private final BookingQueue bookingQueue;
+    private final FareEngine fareEngine;
+    private final SurgePricing surgePricing;
+    private final Geocoder geocoder;
+
+    @Value("${ride.booking.deadline-ms:3000}")
+    private long bookingDeadlineMs = 3000;
+
+    @Value("${ride.history.page-size:20}")
+    private int historyPageSize = 20;
+
+    @Value("${ride.history.max-page-size:100}")
+    private int historyMaxPageSize = 100;
+
+    @Value("${ride.batch.max-ids:200}")
+    private int batchMaxIds = 200;
+
+    @Override
+    public Ride bookRide(RideBookingRequest request, String userEmail) {
+        long started = System.nanoTime();
+        long deadline = started + TimeUnit.MILLISECONDS.toNanos(bookingDeadlineMs);
+        geocodeMissingCoordinates(request);
+        boolean batch = batchDispatcher.isEnabled()
+                && request.getPickupLatitude() != null && request.getPickupLongitude() != null;
+        boolean queued = !batch && bookingQueue.isEnabled();
+
+        // 0. In async mode a full zone queue turns the booking away before any work is done
+        BookingQueue.Slot slot = queued ? bookingQueue.reserve(request.getPickupLatitude(), request.getPickupLongitude()) : null;
+        try {
+            return bookRide(request, userEmail, batch, slot, started, deadline);
+        } finally {
+            if (slot != null) {
+                // No-op once the match was queued
+                slot.release();
+            }
+        }
+    }
+
+    // Coordinates sent by the client win; otherwise known places get theirs from the gazetteer
+    private void geocodeMissingCoordinates(RideBookingRequest request) {
+        if (request.getPickupLatitude() == null || request.getPickupLongitude() == null) {
+            GeoPoint pickup = geocoder.locate(request.getPickupLocation());
+            if (pickup != null) {
+                request.setPickupLatitude(pickup.latitude());
+                request.setPickupLongitude(pickup.longitude());
+            }
+        }
+        if (request.getDropoffLatitude() == null || request.getDropoffLongitude() == null) {
+            GeoPoint dropoff = geocoder.locate(request.getDropoffLocation());
+            if (dropoff != null) {
+                request.setDropoffLatitude(dropoff.latitude());
+                request.setDropoffLongitude(dropoff.longitude());
+            }
+        }
+    }
+
+    private Ride bookRide(RideBookingRequest request, String userEmail, boolean batch, BookingQueue.Slot slot,
+                          long started, long deadline) {
+        // 1. Resolve the user first, so an unknown user never takes a driver off the market. Both
+        //    lookups run on the request thread, so the rider's own token goes to user-service
+        UserResponse user = timed("user", () -> userServiceClient.getUserByEmail(userEmail, withinDeadline(deadline)));
+        if (user == null || user.getUserId() == null) {
+            throw new UserNotFoundException("User not found");
+        }
+
+        // 2. When matching inline, claim the nearest driver. It has to be sent within the deadline, but
+        //    its answer is always awaited: a driver it took after the deadline is handed straight back
+        DriverResponse driver = null;
+        if (!batch && slot == null) {
+            Request.Options claimOptions = new Request.Options(remainingMs(deadline), TimeUnit.MILLISECONDS,
+                    CLAIM_READ_TIMEOUT_MS, TimeUnit.MILLISECONDS, true);
+            driver = timed("driver", () -> claimDriver(request.getPickupLatitude(), request.getPickupLongitude(),
+                    claimOptions));
+            if (driver != null && System.nanoTime() > deadline) {
+                driverServiceClient.setDriverAvailable(driver.getDriverId(), true);
+                throw new RuntimeException("Booking lookups timed out");
+            }
+        }
+        bookingTimings.record("lookups", System.nanoTime() - started);
+
+        // 3. In batch and async mode the ride is saved without a driver and matched in the background
+        long saveStarted = System.nanoTime();
+        if (batch || slot != null) {
+            Ride ride = rideRepository.save(buildRide(request, user.getUserId(), null));
+            demandHeatmap.onBooked(ride);
+            rideEventLog.append(RideEventType.REQUESTED, ride.getRideId(), ride.getUserId(), null, RideStatus.REQUESTED);
+            if (batch) {
+                batchDispatcher.enqueue(ride);
+            } else {
+                slot.submit(() -> matchQueued(ride));
+            }
+            recordSaveAndTotal(saveStarted, started);
+            return ride;
+        }
+        if (driver == null) throw new NoDriversAvailableException("No drivers available");
+
+        // 4. Create and save ride; with offers on, the driver is only set once they accept
+        Integer pickupSeconds = etaEstimator.estimateSecondsIfKnown(driver.getLatitude(), driver.getLongitude(),
+                request.getPickupLatitude(), request.getPickupLongitude());
+        Ride ride = buildRide(request, user.getUserId(), rideOfferManager.isEnabled() ? null : driver.getDriverId());
+        ride.setEstimatedPickupSeconds(pickupSeconds);
+        try {
+            ride = rideRepository.save(ride);
+        } catch (RuntimeException e) {
+            // No ride points at the driver, so nothing else would ever free them
+            driverServiceClient.setDriverAvailable(driver.getDriverId(), true);
+            throw e;
+        }
+        demandHeatmap.onBooked(ride);
+        rideEventLog.append(RideEventType.REQUESTED, ride.getRideId(), ride.getUserId(), ride.getDriverId(),
+                RideStatus.REQUESTED);
+        if (rideOfferManager.isEnabled()) {
+            rideOfferManager.open(ride, driver.getDriverId(), pickupSeconds);
+        } else {
+            activeRideIndex.assign(driver.getDriverId(), ride.getRideId());
+        }
+        recordSaveAndTotal(saveStarted, started);
+        return ride;
+    }
+
+    // Runs on a booking queue worker; the outcome reaches the rider as an event on the ride stream
+    private void matchQueued(Ride ride) {
+        Long rideId = ride.getRideId();
+        DriverResponse driver;
+        try {
+            driver = timed("driver", () -> claimDriver(ride.getPickupLatitude(), ride.getPickupLongitude(),
+                    new Request.Options()));
+            if (driver == null) {
+                throw new NoDriversAvailableException("No drivers available");
+            }
+        } catch (RuntimeException e) {
+            if (rideRepository.transition(rideId, List.of(RideStatus.REQUESTED), RideStatus.CANCELLED) > 0) {
+                demandHeatmap.onLeftRequested(rideId);
+                rideEventLog.statusChanged(rideId, RideStatus.CANCELLED);
+            }
+            return;
+        }
+        Long driverId = driver.getDriverId();
+        Integer pickupSeconds = etaEstimator.estimateSecondsIfKnown(driver.getLatitude(), driver.getLongitude(),
+                ride.getPickupLatitude(), ride.getPickupLongitude());
+        if (rideOfferManager.isEnabled()) {
+            rideOfferManager.open(ride, driverId, pickupSeconds);
+        } else if (rideRepository.assignDriver(rideId, driverId, pickupSeconds,
+                RideStatus.REQUESTED, RideStatus.REQUESTED) == 0) {
+            // Cancelled while it was queued, give the driver back
+            driverServiceClient.setDriverAvailable(driverId, true);
+        } else {
+            activeRideIndex.assign(driverId, rideId);
+            rideEventLog.append(RideEventType.ASSIGNED, rideId, null, driverId, RideStatus.REQUESTED);
+        }
+    }
 
     @Override
-    public Ride bookRide(RideBookingRequest request, Long userId) {
-        // 1. Get user info from user-service (optional, for validation)
-        UserResponse user = userServiceClient.getUserById(userId);
-        if (user == null) throw new RuntimeException("User not found");
+    public Ride bookRide(RideBookingRequest request, String userEmail, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return bookRide(request, userEmail);
+        }
+        return idempotentBookings.book(userEmail, idempotencyKey, request, () -> bookRide(request, userEmail), this::getRideById);
+    }
+
+    private <T> T timed(String phase, Supplier<T> call) {
+        long started = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            bookingTimings.record(phase, System.nanoTime() - started);
+        }
+    }
+
+    private void recordSaveAndTotal(long saveStarted, long started) {
+        long now = System.nanoTime();
+        bookingTimings.record("save", now - saveStarted);
+        bookingTimings.record("total", now - started);
+    }
 
-        // 2. Get available driver from driver-service
-        DriverResponse driver = driverServiceClient.getAvailableDriver();
-        if (driver == null) throw new RuntimeException("No drivers available");
+    // Connect and read timeouts for a call that has to finish within what is left of the deadline
+    private static Request.Options withinDeadline(long deadlineNanos) {
+        long remainingMs = remainingMs(deadlineNanos);
+        return new Request.Options(remainingMs, TimeUnit.MILLISECONDS, remainingMs, TimeUnit.MILLISECONDS, true);
+    }
 
-        // 3. Mark driver as unavailable (call driver-service)
-        driverServiceClient.setDriverAvailable(driver.getDriverId(), false);
+    private static long remainingMs(long deadlineNanos) {
+        long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+        if (remainingMs <= 0) {
+            throw new RuntimeException("Booking lookups timed out");
+        }
+        return remainingMs;
+    }
 
-        // 4. Create and save ride
-        Ride ride = Ride.builder()
-                .userId(user.getUserId())
-                .driverId(driver.getDriverId())
+    private Ride buildRide(RideBookingRequest request, Long userId, Long driverId) {
+        return Ride.builder()
+                .userId(userId)
+                .driverId(driverId)
                 .pickupLocation(request.getPickupLocation())
                 .dropoffLocation(request.getDropoffLocation())
-                .fare(Math.random() * 200 + 50)
+                .pickupLatitude(request.getPickupLatitude())
+                .pickupLongitude(request.getPickupLongitude())
+                .dropoffLatitude(request.getDropoffLatitude())
+                .dropoffLongitude(request.getDropoffLongitude())
+                .fare(surged(fareEngine.fareIfKnown(request.getVehicleClass(), request.getPickupLatitude(),
+                                request.getPickupLongitude(), request.getDropoffLatitude(), request.getDropoffLongitude()),
+                        surgePricing.multiplierIfKnown(request.getPickupLatitude(), request.getPickupLongitude())))
+                .estimatedTripSeconds(etaEstimator.estimateSecondsIfKnown(request.getPickupLatitude(),
+                        request.getPickupLongitude(), request.getDropoffLatitude(), request.getDropoffLongitude()))
                 .status(RideStatus.REQUESTED)
                 .build();
+    }
 
-        return rideRepository.save(ride);
+    private DriverResponse claimDriver(Double lat, Double lng, Request.Options options) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return driverServiceClient.claimDriver(lat, lng, options);
+            } catch (FeignException.Conflict e) {
+                // Every candidate was taken by a concurrent booking, ask again for fresh ones
+                if (attempt >= CLAIM_ATTEMPTS) {
+                    throw new NoDriversAvailableException("No drivers available");
+                }
+            } catch (FeignException.NotFound e) {
+                throw new NoDriversAvailableException("No drivers available");
+            }
+        }
     }
 
     @Override
     public void updateStatus(Long rideId, String status) {
-        Ride ride = rideRepository.findById(rideId)
-                .orElseThrow(() -> new RuntimeException("Ride not found"));
-        ride.setStatus(RideStatus.valueOf(status));
-        rideRepository.save(ride);
+        RideStatus target = RideStatus.valueOf(status);
+        transition(rideId, target);
+        if (FINAL_STATUSES.contains(target)) {
+            activeRideIndex.release(rideId);
+        }
+    }
+
+    // One conditional UPDATE; the losing side of a race or an illegal transition gets a conflict
+    private void transition(Long rideId, RideStatus target) {
+        List<RideStatus> from = RideStateMachine.allowedFrom(target);
+        if (from.isEmpty() || rideRepository.transition(rideId, from, target) == 0) {
+            // Only the failure path reads the row, to tell a missing ride from a conflicting one
+            Ride current = rideRepository.findById(rideId)
+                    .orElseThrow(() -> new RuntimeException("Ride not found"));
+            throw new RideStatusConflictException("Ride " + rideId + " cannot move from "
+                    + current.getStatus() + " to " + target);
+        }
+        demandHeatmap.onLeftRequested(rideId);
+        rideEventLog.statusChanged(rideId, target);
     }
 
     @Override
-    public List<Ride> getUserRides(Long userId) {
-        return rideRepository.findByUserId(userId);
+    public List<Ride> getUserRides(Long userId, Long beforeId, Integer size) {
+        int pageSize = size == null || size <= 0 ? historyPageSize : Math.min(size, historyMaxPageSize);
+        long before = beforeId == null ? Long.MAX_VALUE : beforeId;
+        List<Ride> hot = rideRepository.findUserRidesBefore(userId, before, Limit.of(pageSize));
+        if (rideArchiver.highestArchivedRideId() == 0
+                || (hot.size() == pageSize && !reachesArchive(hot.get(pageSize - 1)))) {
+            return hot;
+        }
+        List<Ride> cold = archivedRideRepository.findUserRidesBefore(userId, before, Limit.of(pageSize)).stream()
+                .map(ArchivedRide::toRide)
+                .toList();
+        return mergeNewestFirst(hot, cold, pageSize);
+    }
+
+    // Archived ids never exceed the archiver's watermark, rides above it can only be in the hot table
+    private boolean reachesArchive(Ride ride) {
+        return ride.getRideId() <= rideArchiver.highestArchivedRideId();
+    }
+
+    // Both lists are newest first; a ride caught mid-move can show up in both, keep one copy
+    private static List<Ride> mergeNewestFirst(List<Ride> hot, List<Ride> cold, int limit) {
+        List<Ride> merged = new ArrayList<>(Math.min(limit, hot.size() + cold.size()));
+        int h = 0;
+        int c = 0;
+        while (merged.size() < limit && (h < hot.size() || c < cold.size())) {
+            Ride next;
+            if (c >= cold.size() || (h < hot.size() && hot.get(h).getRideId() >= cold.get(c).getRideId())) {
+                next = hot.get(h++);
+            } else {
+                next = cold.get(c++);
+            }
+            if (merged.isEmpty() || !merged.get(merged.size() - 1).getRideId().equals(next.getRideId())) {
+                merged.add(next);
+            }
+        }
+        return merged;
+    }
+
+    @Override
+    public Ride getLatestUserRide(Long userId, RideStatus status) {
+        Ride hot = (status == null
+                ? rideRepository.findFirstByUserIdOrderByRideIdDesc(userId)
+                : rideRepository.findFirstByUserIdAndStatusOrderByRideIdDesc(userId, status))
+                .orElse(null);
+        if (rideArchiver.highestArchivedRideId() == 0 || (hot != null && !reachesArchive(hot))) {
+            return hot;
+        }
+        Ride cold = (status == null
+                ? archivedRideRepository.findFirstByUserIdOrderByRideIdDesc(userId)
+                : archivedRideRepository.findFirstByUserIdAndStatusOrderByRideIdDesc(userId, status))
+                .map(ArchivedRide::toRide)
+                .orElse(null);
+        if (hot == null || (cold != null && cold.getRideId() > hot.getRideId())) {
+            return cold;
+        }
+        return hot;
     }
 
     @Override
     public void updateStatusByDriver(Long driverId, String status) {
+        RideStatus target = RideStatus.valueOf(status);
+
         // Find the ride assigned to this driver
-        List<Ride> rides = rideRepository.findByDriverId(driverId);
-        Ride ride = rides.stream()
-                .filter(r -> r.getStatus() != RideStatus.COMPLETED)
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("No active ride found for this driver"));
+        Long rideId = activeRideIndex.rideFor(driverId);
+        if (rideId == null) {
+            throw new RuntimeException("No active ride found for this driver");
+        }
 
-        ride.setStatus(RideStatus.valueOf(status));
+        transition(rideId, target);
+        if (FINAL_STATUSES.contains(target)) {
+            activeRideIndex.release(rideId);
+        }
 
         // If the ride is being marked as COMPLETED, set the driver as available via driver-service
-        if (RideStatus.COMPLETED.name().equals(status)) {
+        if (target == RideStatus.COMPLETED) {
             driverServiceClient.setDriverAvailable(driverId, true);
         }
-
-        rideRepository.save(ride);
     }
 
     @Override
     public Ride getRideById(Long rideId) {
         return rideRepository.findById(rideId)
+                .or(() -> archivedRideRepository.findById(rideId).map(ArchivedRide::toRide))
                 .orElseThrow(() -> new RuntimeException("Ride not found"));
     }
 
+    @Override
+    public List<Ride> getRidesByIds(List<Long> rideIds) {
+        List<Long> ids = rideIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (ids.size() > batchMaxIds) {
+            throw new IllegalArgumentException("At most " + batchMaxIds + " ride ids per request");
+        }
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        // One IN query on the hot table, a second one on the archive only for the ids it did not have
+        Map<Long, Ride> found = new HashMap<>();
+        rideRepository.findAllById(ids).forEach(ride -> found.put(ride.getRideId(), ride));
+        long watermark = rideArchiver.highestArchivedRideId();
+        List<Long> missing = ids.stream().filter(id -> !found.containsKey(id) && id <= watermark).toList();
+        if (!missing.isEmpty()) {
+            archivedRideRepository.findAllById(missing).forEach(archived -> found.put(archived.getRideId(), archived.toRide()));
+        }
+        return ids.stream().map(found::get).filter(Objects::nonNull).toList();
+    }
+
     // --- NEW METHOD IMPLEMENTATION ---
     @Override
     public List<Ride> getPendingRidesForDriver(Long driverId) {
         // Define the statuses that count as "pending" for a driver
         List<RideStatus> pendingStatuses = Arrays.asList(RideStatus.REQUESTED, RideStatus.ASSIGNED,RideStatus.ONGOING);
 
-        // Use a repository method to find rides by driverId and a list of statuses
-        return rideRepository.findByDriverIdAndStatusIn(driverId, pendingStatuses);
+        // A driver has at most one active ride, found by key instead of scanning their history
+        Long rideId = activeRideIndex.rideFor(driverId);
+        if (rideId == null) {
+            return List.of();
+        }
+        return rideRepository.findById(rideId)
+                .filter(ride -> pendingStatuses.contains(ride.getStatus()))
+                .map(List::of)
+                .orElse(List.of());
     }
     // --- END NEW METHOD IMPLEMENTATION ---
 
+    @Override
+    public Map<VehicleClass, Double> getFareQuote(Double pickupLatitude, Double pickupLongitude,
+                                                  Double dropoffLatitude, Double dropoffLongitude) {
+        Map<VehicleClass, Double> fares = fareEngine.quote(pickupLatitude, pickupLongitude, dropoffLatitude, dropoffLongitude);
+        double multiplier = surgePricing.multiplierIfKnown(pickupLatitude, pickupLongitude);
+        fares.replaceAll((vehicleClass, fare) -> surged(fare, multiplier));
+        return fares;
+    }
 
+    @Override
+    public double getSurgeMultiplier(Double latitude, Double longitude) {
+        return surgePricing.multiplierIfKnown(latitude, longitude);
+    }
+
+    // Surge applies to the whole fare of the pickup zone, rounded back to paise
+    private static double surged(double fare, double multiplier) {
+        return multiplier == 1.0 ? fare : Math.round(fare * multiplier * 100) / 100.0;
+    }
+
+    @Override
+    public SupplyDemandSnapshot getSupplyDemandHeatmap(long windowMs) {
+        HeatmapSnapshot supply = null;
+        try {
+            supply = driverServiceClient.getSupplyHeatmap(windowMs);
+        } catch (FeignException e) {
+            // Still serve demand, the snapshot says supply is missing
+            System.err.println("Supply heatmap unavailable: " + e.getMessage());
+        }
+        return demandHeatmap.merge(demandHeatmap.snapshot(windowMs), supply);
+    }
+
+    @Override
+    public List<RideEvent> getRideTimeline(Long rideId) {
+        return rideEventLog.timeline(rideId);
+    }
 
+    @Override
+    public List<DriverQueueView.Entry> getDriverQueue(Long driverId) {
+        return driverQueueView.queueFor(driverId);
+    }
 
-}
\ No newline at end of file
+    @Override
+    public Map<RideStatus, Long> getStatusCounts() {
+        return rideStatusCountsView.snapshot();
+    }
+
+    @Override
+    public Ride acceptOffer(Long rideId, Long driverId) {
+        return rideOfferManager.accept(rideId, driverId);
+    }
+
+    @Override
+    public void declineOffer(Long rideId, Long driverId) {
+        rideOfferManager.decline(rideId, driverId);
+    }
+
+    @Override
+    public RideOfferResponse getCurrentOffer(Long driverId) {
+        return rideOfferManager.currentOffer(driverId);
+    }
+}
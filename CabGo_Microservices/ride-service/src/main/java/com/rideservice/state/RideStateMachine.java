@@ -0,0 +1,54 @@
+package com.rideservice.state;
+
+import com.commonlib.enums.RideStatus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Allowed ride status transitions. REQUESTED is the only entry state and
+ * COMPLETED/CANCELLED are final. A REQUESTED ride may start right away when
+ * it was assigned without the offer stage. A started ride is ONGOING;
+ * IN_PROGRESS is never entered, and rides left in it by older builds can
+ * only be completed or cancelled.
+ *
+ * Writers do not check the current status in Java; they issue one conditional
+ * UPDATE restricted to {@link #allowedFrom}, so the database decides who wins.
+ */
+public final class RideStateMachine {
+
+    private static final Map<RideStatus, Set<RideStatus>> NEXT = new EnumMap<>(RideStatus.class);
+    private static final Map<RideStatus, List<RideStatus>> PREVIOUS = new EnumMap<>(RideStatus.class);
+
+    static {
+        NEXT.put(RideStatus.REQUESTED, EnumSet.of(RideStatus.ASSIGNED, RideStatus.ONGOING, RideStatus.CANCELLED));
+        NEXT.put(RideStatus.ASSIGNED, EnumSet.of(RideStatus.ONGOING, RideStatus.CANCELLED));
+        NEXT.put(RideStatus.ONGOING, EnumSet.of(RideStatus.COMPLETED, RideStatus.CANCELLED));
+        NEXT.put(RideStatus.IN_PROGRESS, EnumSet.of(RideStatus.COMPLETED, RideStatus.CANCELLED));
+        NEXT.put(RideStatus.COMPLETED, EnumSet.noneOf(RideStatus.class));
+        NEXT.put(RideStatus.CANCELLED, EnumSet.noneOf(RideStatus.class));
+
+        for (RideStatus to : RideStatus.values()) {
+            List<RideStatus> from = new ArrayList<>();
+            NEXT.forEach((status, next) -> {
+                if (next.contains(to)) {
+                    from.add(status);
+                }
+            });
+            PREVIOUS.put(to, Collections.unmodifiableList(from));
+        }
+    }
+
+    private RideStateMachine() {
+    }
+
+    // Statuses a ride may be in to move to the target, empty for REQUESTED
+    public static List<RideStatus> allowedFrom(RideStatus to) {
+        return PREVIOUS.get(to);
+    }
+}
@@ -0,0 +1,178 @@
+package com.rideservice.surge;
+
+import com.commonlib.dto.HeatmapCell;
+import com.commonlib.dto.HeatmapSnapshot;
+import com.rideservice.feign.DriverServiceClient;
+import com.rideservice.heatmap.DemandHeatmap;
+import feign.FeignException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+/**
+ * Surge multiplier per zone of the ETA box, recomputed on a fixed tick.
+ *
+ * Demand is the requests booked in a zone over the last window-ms, taken
+ * from {@link DemandHeatmap}; supply is the drivers available in it right
+ * now, from driver-service's supply heatmap. Drivers freed during the window
+ * are already among the available ones, so they are not added again. Both
+ * heatmaps are fed as bookings and availability changes happen, so the tick
+ * only reads two snapshots and nothing on the booking path writes to the
+ * database.
+ *
+ * Multipliers live in one array that the tick replaces as a whole; pricing a
+ * booking is a volatile read and an index. A zone moves at most max-step per
+ * tick and is rounded to 0.1, so prices do not flap between ticks. While
+ * driver-service cannot be reached the multipliers are held, and once that
+ * has lasted max-failed-ticks ticks they step back down to 1.0 at the same
+ * pace.
+ */
+@Component
+public class SurgePricing {
+
+    private final DemandHeatmap demandHeatmap;
+    private final DriverServiceClient driverServiceClient;
+    private final boolean enabled;
+    private final long windowMs;
+    private final double zoneDegrees;
+    private final double minLatitude;
+    private final double minLongitude;
+    private final int rows;
+    private final int cols;
+    private final long minRequests;
+    private final double threshold;
+    private final double sensitivity;
+    private final double maxMultiplier;
+    private final double maxStep;
+    private final int maxFailedTicks;
+
+    private volatile double[] multipliers;
+    // Ticks in a row without supply numbers; only the scheduler thread touches it
+    private int failedTicks;
+
+    public SurgePricing(DemandHeatmap demandHeatmap,
+                        DriverServiceClient driverServiceClient,
+                        @Value("${ride.surge.enabled:true}") boolean enabled,
+                        @Value("${ride.surge.window-ms:300000}") long windowMs,
+                        @Value("${ride.surge.zone-degrees:0.02}") double zoneDegrees,
+                        @Value("${ride.eta.min-latitude:12.80}") double minLatitude,
+                        @Value("${ride.eta.min-longitude:77.40}") double minLongitude,
+                        @Value("${ride.eta.max-latitude:13.20}") double maxLatitude,
+                        @Value("${ride.eta.max-longitude:77.80}") double maxLongitude,
+                        @Value("${ride.surge.min-requests:5}") long minRequests,
+                        @Value("${ride.surge.threshold:1.0}") double threshold,
+                        @Value("${ride.surge.sensitivity:0.5}") double sensitivity,
+                        @Value("${ride.surge.max-multiplier:3.0}") double maxMultiplier,
+                        @Value("${ride.surge.max-step:0.5}") double maxStep,
+                        @Value("${ride.surge.max-failed-ticks:4}") int maxFailedTicks) {
+        this.demandHeatmap = demandHeatmap;
+        this.driverServiceClient = driverServiceClient;
+        this.enabled = enabled;
+        this.windowMs = windowMs;
+        this.zoneDegrees = zoneDegrees;
+        this.minLatitude = minLatitude;
+        this.minLongitude = minLongitude;
+        this.rows = (int) Math.ceil((maxLatitude - minLatitude) / zoneDegrees);
+        this.cols = (int) Math.ceil((maxLongitude - minLongitude) / zoneDegrees);
+        this.minRequests = minRequests;
+        this.threshold = threshold;
+        this.sensitivity = sensitivity;
+        this.maxMultiplier = maxMultiplier;
+        this.maxStep = maxStep;
+        this.maxFailedTicks = maxFailedTicks;
+        double[] none = new double[rows * cols];
+        Arrays.fill(none, 1.0);
+        this.multipliers = none;
+    }
+
+    /**
+     * Current multiplier at the point, 1.0 outside the box or when surge is off.
+     */
+    public double multiplier(double latitude, double longitude) {
+        double[] current = multipliers;
+        int zone = zoneIndex(latitude, longitude);
+        return zone < 0 ? 1.0 : current[zone];
+    }
+
+    public double multiplierIfKnown(Double latitude, Double longitude) {
+        if (latitude == null || longitude == null) {
+            return 1.0;
+        }
+        return multiplier(latitude.doubleValue(), longitude.doubleValue());
+    }
+
+    @Scheduled(fixedDelayString = "${ride.surge.tick-ms:30000}")
+    public void recompute() {
+        if (!enabled) {
+            return;
+        }
+        HeatmapSnapshot supply;
+        try {
+            supply = driverServiceClient.getSupplyHeatmap(windowMs);
+        } catch (FeignException e) {
+            // Without supply numbers any multiplier would be a guess: keep the last ones for a
+            // few ticks, then wind them down rather than charge a stale surge indefinitely
+            failedTicks++;
+            System.err.println("Surge not recomputed, driver-service supply unavailable: " + e.getMessage());
+            if (failedTicks >= maxFailedTicks) {
+                multipliers = stepTowardsTargets(new double[rows * cols]);
+            }
+            return;
+        }
+        failedTicks = 0;
+        int zones = rows * cols;
+        long[] demand = new long[zones];
+        long[] drivers = new long[zones];
+        for (HeatmapCell cell : demandHeatmap.snapshot(windowMs).getCells()) {
+            int zone = zoneIndex(cell.getLatitude(), cell.getLongitude());
+            if (zone >= 0) {
+                demand[zone] += cell.getRecent();
+            }
+        }
+        if (supply != null) {
+            for (HeatmapCell cell : supply.getCells()) {
+                int zone = zoneIndex(cell.getLatitude(), cell.getLongitude());
+                if (zone >= 0) {
+                    drivers[zone] += cell.getCurrent();
+                }
+            }
+        }
+
+        double[] targets = new double[zones];
+        for (int zone = 0; zone < zones; zone++) {
+            targets[zone] = target(demand[zone], drivers[zone]);
+        }
+        multipliers = stepTowardsTargets(targets);
+    }
+
+    // Moves every zone at most max-step towards its target; a target below 1.0 means no surge
+    private double[] stepTowardsTargets(double[] targets) {
+        double[] previous = multipliers;
+        double[] next = new double[targets.length];
+        for (int zone = 0; zone < targets.length; zone++) {
+            double stepped = previous[zone] + Math.clamp(targets[zone] - previous[zone], -maxStep, maxStep);
+            next[zone] = Math.clamp(Math.round(stepped * 10) / 10.0, 1.0, maxMultiplier);
+        }
+        return next;
+    }
+
+    // Surges once requests outnumber drivers by more than the threshold
+    private double target(long requests, long drivers) {
+        if (requests < minRequests) {
+            return 1.0;
+        }
+        double ratio = (double) requests / Math.max(1, drivers);
+        return 1.0 + sensitivity * Math.max(0, ratio - threshold);
+    }
+
+    private int zoneIndex(double latitude, double longitude) {
+        int row = (int) Math.floor((latitude - minLatitude) / zoneDegrees);
+        int col = (int) Math.floor((longitude - minLongitude) / zoneDegrees);
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            return -1;
+        }
+        return row * cols + col;
+    }
+}
@@ -0,0 +1,61 @@
+package com.rideservice.active;
+
+import com.rideservice.entity.ActiveRide;
+import com.rideservice.repository.ActiveRideRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ActiveRideIndexTest {
+
+    @Mock
+    private ActiveRideRepository activeRideRepository;
+
+    @InjectMocks
+    private ActiveRideIndex index;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void load_shouldRestoreFromTableAndReleaseByRide() {
+        when(activeRideRepository.findAll()).thenReturn(List.of(new ActiveRide(2L, 5L), new ActiveRide(3L, 6L)));
+        index.load();
+
+        assertEquals(5L, index.rideFor(2L));
+        index.release(5L);
+        index.release(99L);
+
+        assertNull(index.rideFor(2L));
+        assertEquals(6L, index.rideFor(3L));
+        verify(activeRideRepository).deleteByRideId(5L);
+        verify(activeRideRepository, never()).deleteByRideId(99L);
+        verify(activeRideRepository, never()).findAssignedRides(any());
+    }
+
+    @Test
+    void emptyTable_shouldBackfillFromRidesOnce_andReassignReplacesStaleRide() {
+        when(activeRideRepository.findAll()).thenReturn(List.of());
+        when(activeRideRepository.findAssignedRides(ActiveRideIndex.ACTIVE_STATUSES))
+                .thenReturn(List.<Object[]>of(new Object[]{2L, 5L}));
+        index.load();
+        verify(activeRideRepository).upsert(2L, 5L);
+
+        index.assign(2L, 7L);
+        // The old ride no longer maps to the driver, so releasing it is a no-op
+        index.release(5L);
+
+        assertEquals(7L, index.rideFor(2L));
+        verify(activeRideRepository, never()).deleteByRideId(5L);
+    }
+}
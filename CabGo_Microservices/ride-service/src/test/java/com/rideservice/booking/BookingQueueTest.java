@@ -0,0 +1,63 @@
+package com.rideservice.booking;
+
+import com.commonlib.exception.BookingQueueFullException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingQueueTest {
+
+    @Mock
+    private BookingTimings bookingTimings;
+
+    private BookingQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        queue = new BookingQueue(bookingTimings, new SimpleMeterRegistry(), true, 2, 0.05, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        queue.shutdown();
+    }
+
+    @Test
+    void fullZone_shouldRejectWithRetryAfterWhileOtherZonesStillAccept() {
+        queue.reserve(12.97, 77.59);
+        BookingQueue.Slot second = queue.reserve(12.97, 77.59);
+
+        BookingQueueFullException e = assertThrows(BookingQueueFullException.class, () -> queue.reserve(12.97, 77.59));
+        assertTrue(e.getRetryAfterSeconds() >= 1);
+        assertNotNull(queue.reserve(13.10, 77.70));
+
+        // A released slot can be taken again
+        second.release();
+        assertNotNull(queue.reserve(12.97, 77.59));
+    }
+
+    @Test
+    void zone_shouldMatchInSubmitOrderAndFreeItsSlots() throws InterruptedException {
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(2);
+        queue.reserve(12.97, 77.59).submit(() -> { order.add(1); done.countDown(); });
+        queue.reserve(12.97, 77.59).submit(() -> { order.add(2); done.countDown(); });
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of(1, 2), order);
+        // Both slots were given back once their matches ran
+        queue.reserve(12.97, 77.59);
+        queue.reserve(12.97, 77.59);
+    }
+}
@@ -0,0 +1,134 @@
+package com.rideservice.booking;
+
+import com.commonlib.dto.RideBookingRequest;
+import com.commonlib.exception.BookingInProgressException;
+import com.commonlib.exception.IdempotencyKeyReusedException;
+import com.rideservice.entity.BookingIdempotencyKey;
+import com.rideservice.entity.Ride;
+import com.rideservice.repository.BookingIdempotencyKeyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class IdempotentBookingsTest {
+
+    @Mock
+    private BookingIdempotencyKeyRepository keyRepository;
+
+    private IdempotentBookings bookings;
+    private final AtomicInteger booked = new AtomicInteger();
+    private final Supplier<Ride> booking = () -> Ride.builder().rideId(100L + booked.incrementAndGet()).build();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(keyRepository.findById(anyString())).thenReturn(Optional.empty());
+        bookings = new IdempotentBookings(keyRepository, 60_000, 100, 1_000, 300_000);
+    }
+
+    @Test
+    void sameKey_shouldBookOnceAndReturnTheSameRide() {
+        RideBookingRequest request = request("MG Road");
+        Ride first = bookings.book("a@example.com", "k1", request, booking, id -> Ride.builder().rideId(id).build());
+        Ride retry = bookings.book("a@example.com", "k1", request("MG Road"), booking, id -> Ride.builder().rideId(id).build());
+        Ride otherUser = bookings.book("b@example.com", "k1", request, booking, id -> Ride.builder().rideId(id).build());
+
+        assertEquals(101L, first.getRideId());
+        assertEquals(first.getRideId(), retry.getRideId());
+        assertNotEquals(first.getRideId(), otherUser.getRideId());
+        assertEquals(2, booked.get());
+        verify(keyRepository, times(2)).reserve(anyString(), anyString(), any(LocalDateTime.class));
+        verify(keyRepository, times(2)).attachRide(anyString(), anyLong());
+    }
+
+    @Test
+    void key_shouldBeReservedBeforeBookingAndTheRideAttachedAfterwards() {
+        bookings.book("a@example.com", "k1", request("MG Road"), () -> {
+            verify(keyRepository).reserve(anyString(), anyString(), any(LocalDateTime.class));
+            verify(keyRepository, never()).attachRide(anyString(), anyLong());
+            return booking.get();
+        }, id -> null);
+
+        InOrder order = inOrder(keyRepository);
+        order.verify(keyRepository).reserve(anyString(), anyString(), any(LocalDateTime.class));
+        order.verify(keyRepository).attachRide(anyString(), eq(101L));
+    }
+
+    @Test
+    void keyReusedForADifferentRequest_shouldBeRejected() {
+        bookings.book("a@example.com", "k1", request("MG Road"), booking, id -> Ride.builder().rideId(id).build());
+
+        assertThrows(IdempotencyKeyReusedException.class, () -> bookings.book("a@example.com", "k1",
+                request("Airport"), booking, id -> Ride.builder().rideId(id).build()));
+        assertEquals(1, booked.get());
+    }
+
+    @Test
+    void storedKey_shouldSurviveRestart_andFailedBookingShouldBeRetryable() {
+        bookings.book("a@example.com", "k1", request("MG Road"), booking, id -> null);
+        ArgumentCaptor<String> keyHash = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> fingerprint = ArgumentCaptor.forClass(String.class);
+        verify(keyRepository).reserve(keyHash.capture(), fingerprint.capture(), any(LocalDateTime.class));
+        doThrow(new DataIntegrityViolationException("Duplicate entry"))
+                .when(keyRepository).reserve(eq(keyHash.getValue()), anyString(), any(LocalDateTime.class));
+        when(keyRepository.findById(keyHash.getValue())).thenReturn(Optional.of(
+                new BookingIdempotencyKey(keyHash.getValue(), 101L, fingerprint.getValue(), LocalDateTime.now())));
+
+        IdempotentBookings restarted = new IdempotentBookings(keyRepository, 60_000, 100, 1_000, 300_000);
+        Ride afterRestart = restarted.book("a@example.com", "k1", request("MG Road"), booking, id -> Ride.builder().rideId(id).build());
+        assertEquals(101L, afterRestart.getRideId());
+        assertEquals(1, booked.get());
+        assertThrows(IdempotencyKeyReusedException.class, () -> new IdempotentBookings(keyRepository, 60_000, 100, 1_000, 300_000)
+                .book("a@example.com", "k1", request("Airport"), booking, id -> null));
+
+        assertThrows(IllegalStateException.class, () -> restarted.book("a@example.com", "k2", request("MG Road"),
+                () -> { throw new IllegalStateException("No drivers available"); }, id -> null));
+        verify(keyRepository).release(anyString());
+        assertEquals(102L, restarted.book("a@example.com", "k2", request("MG Road"), booking, id -> null).getRideId());
+    }
+
+    @Test
+    void keyHeldByAnotherInstance_shouldNotBookAgain() {
+        doThrow(new DataIntegrityViolationException("Duplicate entry"))
+                .when(keyRepository).reserve(anyString(), anyString(), any(LocalDateTime.class));
+        when(keyRepository.findById(anyString())).thenAnswer(invocation -> Optional.of(
+                new BookingIdempotencyKey(invocation.getArgument(0), null, fingerprintOf(request("MG Road")), LocalDateTime.now())));
+
+        assertThrows(BookingInProgressException.class, () -> bookings.book("a@example.com", "k1",
+                request("MG Road"), booking, id -> null));
+        assertEquals(0, booked.get());
+
+        // Abandoned or expired: this attempt takes the row over and books
+        when(keyRepository.takeOver(anyString(), anyString(), any(), any(), any())).thenReturn(1);
+        assertEquals(101L, bookings.book("a@example.com", "k1", request("MG Road"), booking, id -> null).getRideId());
+    }
+
+    private RideBookingRequest request(String pickup) {
+        RideBookingRequest request = new RideBookingRequest();
+        request.setPickupLocation(pickup);
+        request.setDropoffLocation("Indiranagar");
+        return request;
+    }
+
+    private String fingerprintOf(RideBookingRequest request) {
+        ArgumentCaptor<String> fingerprint = ArgumentCaptor.forClass(String.class);
+        BookingIdempotencyKeyRepository probe = mock(BookingIdempotencyKeyRepository.class);
+        new IdempotentBookings(probe, 60_000, 100, 1_000, 300_000)
+                .book("probe@example.com", "probe", request, () -> Ride.builder().rideId(1L).build(), id -> null);
+        verify(probe).reserve(anyString(), fingerprint.capture(), any(LocalDateTime.class));
+        return fingerprint.getValue();
+    }
+}
@@ -0,0 +1,60 @@
+package com.rideservice.config;
+
+import com.commonlib.utils.JwtUtil;
+import com.rideservice.feign.UserServiceClient;
+import feign.MethodMetadata;
+import feign.RequestInterceptor;
+import feign.RequestTemplate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.cloud.openfeign.support.SpringMvcContract;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+class FeignClientConfigTest {
+
+    @Mock
+    private JwtUtil jwtUtil;
+
+    private RequestInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(jwtUtil.generateToken("ride-service", "SERVICE")).thenReturn("serviceToken");
+        interceptor = new FeignClientConfig(jwtUtil).requestInterceptor();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer userToken");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    private RequestTemplate intercepted(String methodName) {
+        MethodMetadata metadata = new SpringMvcContract().parseAndValidateMetadata(UserServiceClient.class).stream()
+                .filter(m -> m.method().getName().equals(methodName))
+                .findFirst().orElseThrow();
+        RequestTemplate template = new RequestTemplate();
+        template.methodMetadata(metadata);
+        interceptor.apply(template);
+        return template;
+    }
+
+    @Test
+    void serviceOnlyCalls_shouldUseTheServiceTokenInsteadOfTheCallers() {
+        assertEquals(List.of("Bearer serviceToken"), List.copyOf(intercepted("getUsersByIds").headers().get("Authorization")));
+        assertEquals(List.of("Bearer userToken"), List.copyOf(intercepted("getUserByEmail").headers().get("Authorization")));
+    }
+}
@@ -1,8 +1,12 @@
 package com.rideservice.controller;
 
+import com.commonlib.dto.DriverResponse;
 import com.commonlib.dto.RideBookingRequest;
+import com.commonlib.dto.RideDTO;
+import com.commonlib.dto.UserEmailResponse;
 import com.commonlib.dto.UserResponse;
 import com.rideservice.entity.Ride;
+import com.rideservice.entity.RideEvent;
 import com.rideservice.service.RideService;
 import com.rideservice.feign.UserServiceClient;
 import com.rideservice.feign.DriverServiceClient;
@@ -56,10 +60,6 @@ class RideControllerTest {
         when(httpRequest.getHeader("Authorization")).thenReturn("Bearer " + token);
         when(jwtUtil.getUsernameFromToken(token)).thenReturn("user@example.com");
 
-        UserResponse userResponse = new UserResponse();
-        userResponse.setUserId(1L);
-        when(userServiceClient.getUserByEmail("user@example.com")).thenReturn(userResponse);
-
         Ride ride = Ride.builder()
                 .rideId(1L)
                 .pickupLocation("Location A")
@@ -69,10 +69,10 @@ class RideControllerTest {
                 .fare(100.0)
                 .status(com.commonlib.enums.RideStatus.REQUESTED)
                 .build();
-        when(rideService.bookRide(request, 1L)).thenReturn(ride);
+        when(rideService.bookRide(request, "user@example.com", "key-1")).thenReturn(ride);
 
         // Act
-        ResponseEntity<Ride> response = rideController.bookRide(request, httpRequest);
+        ResponseEntity<Ride> response = rideController.bookRide(request, "key-1", httpRequest);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -101,13 +101,67 @@ class RideControllerTest {
                         .status(com.commonlib.enums.RideStatus.COMPLETED)
                         .build()
         );
-        when(rideService.getUserRides(1L)).thenReturn(rides);
+        when(rideService.getUserRides(1L, null, null)).thenReturn(rides);
 
         // Act
-        ResponseEntity<List<Ride>> response = rideController.getUserRides(httpRequest);
+        ResponseEntity<List<Ride>> response = rideController.getUserRides(null, null, httpRequest);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(rides, response.getBody());
+        assertEquals("1", response.getHeaders().getFirst(RideController.NEXT_BEFORE_ID_HEADER));
+    }
+
+    @Test
+    void getRidesByIds_shouldLookUpAllUsersInOneCallAndLeaveOutOtherRidersRides() {
+        List<Ride> rides = List.of(
+                Ride.builder().rideId(1L).userId(7L).status(com.commonlib.enums.RideStatus.COMPLETED).build(),
+                Ride.builder().rideId(2L).userId(7L).status(com.commonlib.enums.RideStatus.ONGOING).build(),
+                Ride.builder().rideId(3L).userId(8L).status(com.commonlib.enums.RideStatus.COMPLETED).build());
+        when(rideService.getRidesByIds(List.of(1L, 2L, 3L))).thenReturn(rides);
+        when(httpRequest.getHeader("Authorization")).thenReturn("Bearer userToken");
+        when(jwtUtil.getClaimFromToken("userToken", "role")).thenReturn("USER");
+        when(jwtUtil.getUsernameFromToken("userToken")).thenReturn("user@example.com");
+        UserResponse rider = new UserResponse();
+        rider.setUserId(7L);
+        when(userServiceClient.getUserByEmail("user@example.com")).thenReturn(rider);
+        when(userServiceClient.getUsersByIds(List.of(7L))).thenReturn(List.of(new UserEmailResponse(7L, "user@example.com")));
+
+        ResponseEntity<List<RideDTO>> response = rideController.getRidesByIds(List.of(1L, 2L, 3L), httpRequest);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of(1L, 2L), response.getBody().stream().map(RideDTO::getRideId).toList());
+        assertEquals("user@example.com", response.getBody().get(1).getUserEmail());
+        verify(userServiceClient).getUserByEmail("user@example.com");
+        verify(userServiceClient, never()).getUserById(anyLong());
+    }
+
+    @Test
+    void getRideTimeline_shouldOnlyServeTheRideItsRiderAndDriver() {
+        Ride ride = Ride.builder().rideId(1L).userId(7L).driverId(2L)
+                .status(com.commonlib.enums.RideStatus.ASSIGNED).build();
+        when(rideService.getRideById(1L)).thenReturn(ride);
+        when(rideService.getRideTimeline(1L)).thenReturn(List.of(new RideEvent()));
+        when(httpRequest.getHeader("Authorization")).thenReturn("Bearer mockToken");
+
+        // Another rider
+        when(jwtUtil.getClaimFromToken("mockToken", "role")).thenReturn("USER");
+        when(jwtUtil.getUsernameFromToken("mockToken")).thenReturn("other@example.com");
+        UserResponse other = new UserResponse();
+        other.setUserId(8L);
+        when(userServiceClient.getUserByEmail("other@example.com")).thenReturn(other);
+        assertEquals(HttpStatus.FORBIDDEN, rideController.getRideTimeline(1L, httpRequest).getStatusCode());
+
+        // The assigned driver
+        when(jwtUtil.getClaimFromToken("mockToken", "role")).thenReturn("DRIVER");
+        when(jwtUtil.getPhoneNumberFromToken("mockToken")).thenReturn("9999999999");
+        DriverResponse driver = new DriverResponse();
+        driver.setDriverId(2L);
+        when(driverServiceClient.getDriverByPhone("9999999999")).thenReturn(driver);
+        assertEquals(HttpStatus.OK, rideController.getRideTimeline(1L, httpRequest).getStatusCode());
+
+        when(jwtUtil.getClaimFromToken("mockToken", "role")).thenReturn("SERVICE");
+        assertEquals(HttpStatus.OK, rideController.getRideTimeline(1L, httpRequest).getStatusCode());
+        verify(rideService, times(2)).getRideTimeline(1L);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,145 @@
+package com.rideservice.dispatch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssignmentSolverTest {
+
+    @Test
+    void hungarian_shouldMatchBruteForceOptimum() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            int rows = 1 + random.nextInt(6);
+            int cols = 1 + random.nextInt(6);
+            double[][] cost = new double[rows][cols];
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    cost[i][j] = random.nextInt(100);
+                }
+            }
+
+            int[] result = AssignmentSolver.hungarian(cost);
+
+            assertValid(result, cols);
+            assertEquals(Math.min(rows, cols), matched(result));
+            assertEquals(bruteForce(cost, 0, new boolean[cols]), total(cost, result), 1e-9);
+        }
+    }
+
+    @Test
+    void solve_shouldLeaveUnreachablePairsUnmatched() {
+        double U = AssignmentSolver.UNREACHABLE;
+        double[][] cost = {
+                {1, U},
+                {2, U},
+                {U, U}
+        };
+
+        int[] result = AssignmentSolver.solve(cost, 64);
+
+        assertArrayEquals(new int[]{0, -1, -1}, result);
+    }
+
+    @Test
+    void greedy_shouldImproveOnNaiveChoice() {
+        // Plain greedy takes (0,0)=1 and leaves request 1 with cost 100; the swap gives 2 + 3
+        double[][] cost = {
+                {1, 2},
+                {3, 100}
+        };
+
+        int[] result = AssignmentSolver.greedyWithImprovement(cost);
+
+        assertArrayEquals(new int[]{1, 0}, result);
+    }
+
+    @Test
+    void greedy_shouldStayCloseToOptimumOnLargeBatches() {
+        // Riders and drivers scattered over a 10 km square, cost is the straight-line pickup distance
+        Random random = new Random(11);
+        int n = 200;
+        double[][] riders = new double[n][2];
+        double[][] drivers = new double[n][2];
+        for (int i = 0; i < n; i++) {
+            riders[i] = new double[]{random.nextDouble() * 10, random.nextDouble() * 10};
+            drivers[i] = new double[]{random.nextDouble() * 10, random.nextDouble() * 10};
+        }
+        double[][] cost = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                cost[i][j] = Math.hypot(riders[i][0] - drivers[j][0], riders[i][1] - drivers[j][1]);
+            }
+        }
+
+        int[] greedy = AssignmentSolver.greedyWithImprovement(cost);
+        int[] optimal = AssignmentSolver.hungarian(cost);
+
+        assertValid(greedy, n);
+        assertEquals(n, matched(greedy));
+        assertTrue(total(cost, greedy) <= total(cost, optimal) * 1.2);
+    }
+
+    private static void assertValid(int[] result, int cols) {
+        Set<Integer> used = new HashSet<>();
+        for (int j : result) {
+            if (j >= 0) {
+                assertTrue(j < cols);
+                assertTrue(used.add(j), "driver assigned twice");
+            }
+        }
+    }
+
+    private static int matched(int[] result) {
+        int count = 0;
+        for (int j : result) {
+            if (j >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static double total(double[][] cost, int[] result) {
+        double sum = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (result[i] >= 0) {
+                sum += cost[i][result[i]];
+            }
+        }
+        return sum;
+    }
+
+    // Minimum cost over assignments that match min(rows, cols) pairs
+    private static double bruteForce(double[][] cost, int row, boolean[] used) {
+        int rows = cost.length;
+        int cols = cost[0].length;
+        if (row == rows) {
+            return 0;
+        }
+        int remainingRows = rows - row;
+        int freeCols = 0;
+        for (boolean u : used) {
+            if (!u) {
+                freeCols++;
+            }
+        }
+        double best = Double.POSITIVE_INFINITY;
+        // Skipping a row is only allowed while there are more rows than drivers left
+        if (remainingRows > freeCols) {
+            best = bruteForce(cost, row + 1, used);
+        }
+        for (int j = 0; j < cols; j++) {
+            if (!used[j]) {
+                used[j] = true;
+                best = Math.min(best, cost[row][j] + bruteForce(cost, row + 1, used));
+                used[j] = false;
+            }
+        }
+        return best;
+    }
+}
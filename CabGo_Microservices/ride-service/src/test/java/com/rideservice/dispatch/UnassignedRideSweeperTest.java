@@ -0,0 +1,97 @@
+package com.rideservice.dispatch;
+
+import com.commonlib.enums.RideStatus;
+import com.rideservice.entity.Ride;
+import com.rideservice.events.RideEventLog;
+import com.rideservice.feign.DriverServiceClient;
+import com.rideservice.heatmap.DemandHeatmap;
+import com.rideservice.repository.RideRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UnassignedRideSweeperTest {
+
+    @Mock
+    private RideRepository rideRepository;
+
+    @Mock
+    private DriverServiceClient driverServiceClient;
+
+    @Mock
+    private DemandHeatmap demandHeatmap;
+
+    @Mock
+    private RideEventLog rideEventLog;
+
+    @Mock
+    private BatchDispatcher batchDispatcher;
+
+    private UnassignedRideSweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        sweeper = new UnassignedRideSweeper(rideRepository, driverServiceClient, demandHeatmap, rideEventLog,
+                batchDispatcher, new SimpleMeterRegistry(), 600_000);
+        when(rideRepository.transition(anyLong(), eq(List.of(RideStatus.REQUESTED)), eq(RideStatus.CANCELLED)))
+                .thenReturn(1);
+    }
+
+    private static Ride ride(long rideId, Long offeredDriverId, LocalDateTime requestedAt) {
+        return Ride.builder().rideId(rideId).offeredDriverId(offeredDriverId)
+                .pickupLatitude(12.97).pickupLongitude(77.59)
+                .status(RideStatus.REQUESTED).requestedAt(requestedAt).build();
+    }
+
+    @Test
+    void recover_shouldReleaseOfferedDriversAndCancelLeftoverRides() {
+        when(rideRepository.findUnassignedBefore(eq(RideStatus.REQUESTED), any())).thenReturn(List.of(
+                ride(1L, 10L, LocalDateTime.now()),
+                ride(2L, null, LocalDateTime.now())));
+
+        sweeper.recover();
+
+        verify(driverServiceClient).setDriverAvailable(10L, true);
+        verify(rideEventLog).statusChanged(1L, RideStatus.CANCELLED);
+        verify(rideEventLog).statusChanged(2L, RideStatus.CANCELLED);
+        verify(demandHeatmap).onLeftRequested(2L);
+        verify(batchDispatcher, never()).enqueue(any());
+    }
+
+    @Test
+    void recover_inBatchMode_shouldRequeueRecentRidesOnly() {
+        when(batchDispatcher.isEnabled()).thenReturn(true);
+        Ride recent = ride(1L, 10L, LocalDateTime.now().minusMinutes(1));
+        Ride old = ride(2L, null, LocalDateTime.now().minusHours(1));
+        when(rideRepository.findUnassignedBefore(eq(RideStatus.REQUESTED), any())).thenReturn(List.of(recent, old));
+
+        sweeper.recover();
+
+        verify(driverServiceClient).setDriverAvailable(10L, true);
+        verify(batchDispatcher).enqueue(recent);
+        verify(rideRepository, never()).transition(eq(1L), any(), any());
+        verify(rideEventLog).statusChanged(2L, RideStatus.CANCELLED);
+    }
+
+    @Test
+    void cancelStale_shouldCancelRidesOlderThanMaxAgeWithoutTouchingDrivers() {
+        when(rideRepository.findUnassignedBefore(eq(RideStatus.REQUESTED), any())).thenReturn(List.of(
+                ride(1L, 10L, LocalDateTime.now().minusHours(1))));
+
+        sweeper.cancelStale();
+
+        verify(rideRepository).findUnassignedBefore(eq(RideStatus.REQUESTED),
+                argThat(cutoff -> cutoff.isBefore(LocalDateTime.now().minusMinutes(9))));
+        verify(rideEventLog).statusChanged(1L, RideStatus.CANCELLED);
+        verify(driverServiceClient, never()).setDriverAvailable(anyLong(), anyBoolean());
+    }
+}
@@ -0,0 +1,65 @@
+package com.rideservice.eta;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TravelTimeTableTest {
+
+    @TempDir
+    Path dir;
+
+    private final SpeedBandModel model = new SpeedBandModel(1.35, 18, 32, 3);
+
+    @Test
+    void build_thenOpen_shouldAnswerCellCentreTimes() throws IOException {
+        Path file = dir.resolve("eta.bin");
+        TravelTimeTable.build(file, model, 0.01, 12.90, 77.50, 13.00, 77.60);
+        TravelTimeTable table = TravelTimeTable.open(file);
+
+        assertEquals(100, table.getCellCount());
+        int from = table.cellIndex(12.905, 77.505);
+        int to = table.cellIndex(12.995, 77.595);
+        assertEquals(model.seconds(12.905, 77.505, 12.995, 77.595), table.seconds(from, to));
+        assertEquals(table.seconds(from, to), table.seconds(to, from));
+        assertEquals(0, table.seconds(from, from));
+
+        assertEquals(-1, table.cellIndex(13.05, 77.55));
+        assertEquals(TravelTimeTable.UNKNOWN, table.seconds(-1, to));
+    }
+
+    @Test
+    void open_shouldRejectTruncatedFile() throws IOException {
+        Path file = dir.resolve("eta.bin");
+        TravelTimeTable.build(file, model, 0.01, 12.90, 77.50, 12.95, 77.55);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 2));
+
+        assertThrows(IOException.class, () -> TravelTimeTable.open(file));
+    }
+
+    @Test
+    void estimator_shouldRebuildForNewBoxAndFallBackOutsideIt() throws IOException {
+        Path file = dir.resolve("eta.bin");
+        TravelTimeTable.build(file, model, 0.01, 0, 0, 0.05, 0.05);
+
+        EtaEstimator estimator = new EtaEstimator(new SimpleMeterRegistry(), file.toString(),
+                0.01, 12.90, 77.50, 13.00, 77.60, 1.35, 18, 32, 3);
+        estimator.load();
+        assertTrue(TravelTimeTable.open(file).covers(0.01, 12.90, 77.50, 13.00, 77.60));
+
+        // Inside the box: cell-centre time; outside: straight from the model
+        assertEquals(model.seconds(12.905, 77.505, 12.995, 77.595),
+                estimator.estimateSeconds(12.901, 77.501, 12.999, 77.599));
+        assertEquals(model.seconds(12.95, 77.55, 13.30, 77.55),
+                estimator.estimateSeconds(12.95, 77.55, 13.30, 77.55));
+        assertNull(estimator.estimateSecondsIfKnown(12.95, 77.55, null, 77.55));
+    }
+}
@@ -0,0 +1,56 @@
+package com.rideservice.events;
+
+import com.rideservice.entity.RideEventLogLease;
+import com.rideservice.repository.RideEventLogLeaseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class InstanceLeaseTest {
+
+    @Mock
+    private RideEventLogLeaseRepository leaseRepository;
+
+    private InstanceLease lease;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        lease = new InstanceLease(leaseRepository, "host-a:8083", 30_000);
+    }
+
+    @Test
+    void secondInstance_shouldFailToStartWhileTheLeaseIsRenewed() {
+        doThrow(new DataIntegrityViolationException("Duplicate entry"))
+                .when(leaseRepository).create(anyLong(), anyString(), any(LocalDateTime.class));
+        when(leaseRepository.renew(eq(RideEventLogLease.ID), eq("host-a:8083"), any(), any())).thenReturn(0);
+        when(leaseRepository.findById(RideEventLogLease.ID)).thenReturn(Optional.of(
+                new RideEventLogLease(RideEventLogLease.ID, "host-b:8083", LocalDateTime.now())));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, lease::acquire);
+        assertTrue(e.getMessage().contains("host-b:8083"));
+        assertFalse(lease.isHeld());
+    }
+
+    @Test
+    void lease_shouldBeHeldUntilARenewalFails() {
+        when(leaseRepository.renew(eq(RideEventLogLease.ID), eq("host-a:8083"), any(), any())).thenReturn(1);
+        lease.acquire();
+        lease.heartbeat();
+        assertTrue(lease.isHeld());
+
+        // Stalled past the timeout, and another instance took over
+        when(leaseRepository.renew(eq(RideEventLogLease.ID), eq("host-a:8083"), any(), any())).thenReturn(0);
+        lease.heartbeat();
+        assertFalse(lease.isHeld());
+    }
+}
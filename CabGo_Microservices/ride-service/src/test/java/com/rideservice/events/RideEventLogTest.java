@@ -0,0 +1,136 @@
+package com.rideservice.events;
+
+import com.commonlib.enums.RideStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rideservice.entity.RideEvent;
+import com.rideservice.entity.RideEventCheckpoint;
+import com.rideservice.repository.RideEventCheckpointRepository;
+import com.rideservice.repository.RideEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RideEventLogTest {
+
+    @Mock
+    private RideEventRepository rideEventRepository;
+
+    @Mock
+    private RideEventCheckpointRepository checkpointRepository;
+
+    @Mock
+    private InstanceLease instanceLease;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final DriverQueueView driverQueue = new DriverQueueView();
+    private final RideStatusCountsView statusCounts = new RideStatusCountsView();
+    private RideEventLog log;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(instanceLease.isHeld()).thenReturn(true);
+        AtomicLong ids = new AtomicLong(100);
+        when(rideEventRepository.save(any(RideEvent.class))).thenAnswer(inv -> {
+            RideEvent event = inv.getArgument(0);
+            event.setEventId(ids.incrementAndGet());
+            return event;
+        });
+        log = new RideEventLog(rideEventRepository, checkpointRepository, instanceLease, objectMapper,
+                List.of(driverQueue, statusCounts), List.of(), 2);
+    }
+
+    @Test
+    void appendedEvents_shouldUpdateReadModels() {
+        log.append(RideEventType.REQUESTED, 1L, 7L, null, RideStatus.REQUESTED);
+        log.append(RideEventType.REQUESTED, 2L, 8L, 20L, RideStatus.REQUESTED);
+        log.append(RideEventType.ASSIGNED, 1L, null, 20L, RideStatus.ASSIGNED);
+        log.statusChanged(2L, RideStatus.CANCELLED);
+
+        assertEquals(List.of(new DriverQueueView.Entry(1L, RideStatus.ASSIGNED)), driverQueue.queueFor(20L));
+        assertEquals(0L, statusCounts.snapshot().get(RideStatus.REQUESTED));
+        assertEquals(1L, statusCounts.snapshot().get(RideStatus.ASSIGNED));
+        assertEquals(1L, statusCounts.snapshot().get(RideStatus.CANCELLED));
+
+        log.statusChanged(1L, RideStatus.COMPLETED);
+
+        assertTrue(driverQueue.queueFor(20L).isEmpty());
+        assertEquals(0L, statusCounts.snapshot().get(RideStatus.ASSIGNED));
+        assertEquals(1L, statusCounts.snapshot().get(RideStatus.COMPLETED));
+    }
+
+    @Test
+    void replay_shouldRebuildFromLogInPages() {
+        log.append(RideEventType.REQUESTED, 9L, 7L, null, RideStatus.REQUESTED); // stale state, dropped by reset
+        when(rideEventRepository.findMaxEventId()).thenReturn(3L);
+        when(rideEventRepository.findByEventIdGreaterThanOrderByEventId(0L, Limit.of(2))).thenReturn(List.of(
+                event(1L, 1L, 20L, RideEventType.REQUESTED, RideStatus.REQUESTED),
+                event(2L, 2L, null, RideEventType.REQUESTED, RideStatus.REQUESTED)));
+        when(rideEventRepository.findByEventIdGreaterThanOrderByEventId(2L, Limit.of(2))).thenReturn(List.of(
+                event(3L, 1L, null, RideEventType.STARTED, RideStatus.ONGOING)));
+
+        log.replay();
+
+        assertEquals(List.of(new DriverQueueView.Entry(1L, RideStatus.ONGOING)), driverQueue.queueFor(20L));
+        assertEquals(1L, statusCounts.snapshot().get(RideStatus.REQUESTED));
+        assertEquals(1L, statusCounts.snapshot().get(RideStatus.ONGOING));
+        verify(rideEventRepository, never()).findByEventIdGreaterThanOrderByEventId(eq(3L), any());
+    }
+
+    @Test
+    void replay_shouldStartFromTheLastCheckpoint() {
+        log.append(RideEventType.REQUESTED, 1L, 7L, 20L, RideStatus.REQUESTED);
+        log.append(RideEventType.ASSIGNED, 1L, null, 20L, RideStatus.ASSIGNED);
+        log.append(RideEventType.REQUESTED, 2L, 8L, null, RideStatus.REQUESTED);
+        log.checkpoint();
+        // Nothing new since, so no second write
+        log.checkpoint();
+        ArgumentCaptor<RideEventCheckpoint> saved = ArgumentCaptor.forClass(RideEventCheckpoint.class);
+        verify(checkpointRepository).save(saved.capture());
+        assertEquals(103L, saved.getValue().getLastEventId());
+
+        // A restarted instance loads the checkpoint and only reads the log after it
+        DriverQueueView restoredQueue = new DriverQueueView();
+        RideStatusCountsView restoredCounts = new RideStatusCountsView();
+        RideEventLog restarted = new RideEventLog(rideEventRepository, checkpointRepository, instanceLease, objectMapper,
+                List.of(restoredQueue, restoredCounts), List.of(), 2);
+        when(checkpointRepository.findById(RideEventCheckpoint.ID)).thenReturn(Optional.of(saved.getValue()));
+        when(rideEventRepository.findMaxEventId()).thenReturn(104L);
+        when(rideEventRepository.findByEventIdGreaterThanOrderByEventId(103L, Limit.of(2))).thenReturn(List.of(
+                event(104L, 1L, null, RideEventType.STARTED, RideStatus.ONGOING)));
+
+        restarted.replay();
+
+        assertEquals(List.of(new DriverQueueView.Entry(1L, RideStatus.ONGOING)), restoredQueue.queueFor(20L));
+        assertEquals(1L, restoredCounts.snapshot().get(RideStatus.REQUESTED));
+        assertEquals(0L, restoredCounts.snapshot().get(RideStatus.ASSIGNED));
+        assertEquals(1L, restoredCounts.snapshot().get(RideStatus.ONGOING));
+        verify(rideEventRepository, never()).findByEventIdGreaterThanOrderByEventId(eq(0L), any());
+    }
+
+    @Test
+    void checkpoint_shouldNotBeWrittenOnceTheLeaseIsLost() {
+        log.append(RideEventType.REQUESTED, 1L, 7L, 20L, RideStatus.REQUESTED);
+        when(instanceLease.isHeld()).thenReturn(false);
+
+        log.checkpoint();
+
+        verify(checkpointRepository, never()).save(any(RideEventCheckpoint.class));
+    }
+
+    private static RideEvent event(long eventId, long rideId, Long driverId, RideEventType type, RideStatus status) {
+        return RideEvent.builder().eventId(eventId).rideId(rideId).driverId(driverId).type(type).status(status).build();
+    }
+}
@@ -0,0 +1,102 @@
+package com.rideservice.fare;
+
+import com.commonlib.enums.VehicleClass;
+import com.commonlib.geo.GeoGrid;
+import com.rideservice.eta.EtaEstimator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.when;
+
+class FareEngineTest {
+
+    @Mock
+    private EtaEstimator etaEstimator;
+
+    @TempDir
+    Path dir;
+
+    private Path tariffFile;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(etaEstimator.estimateSeconds(anyDouble(), anyDouble(), anyDouble(), anyDouble())).thenReturn(600);
+        tariffFile = dir.resolve("tariffs.properties");
+    }
+
+    private FareEngine engine() {
+        FareEngine engine = new FareEngine(etaEstimator, tariffFile.toString(), VehicleClass.HATCHBACK, 0.02,
+                12.80, 77.40, 13.20, 77.80, 1.35, 5);
+        engine.load();
+        return engine;
+    }
+
+    @Test
+    void zoneToZoneFare_shouldBePricedFromZoneCentresAndSameForTheWholeZone() {
+        FareEngine engine = engine();
+
+        double roadKm = GeoGrid.distanceKm(12.81, 77.41, 12.85, 77.45) * 1.35;
+        double expected = new Tariff(50, 12, 1.5, 80).farePaise(roadKm, 600) / 100.0;
+        assertEquals(expected, engine.fare(VehicleClass.HATCHBACK, 12.805, 77.405, 12.845, 77.455));
+        assertEquals(expected, engine.fare(null, 12.818, 77.411, 12.859, 77.441));
+
+        Map<VehicleClass, Double> quote = engine.quote(12.805, 77.405, 12.845, 77.455);
+        assertTrue(quote.get(VehicleClass.SUV) > quote.get(VehicleClass.AUTO));
+        // Without coordinates only the minimum fare can be charged
+        assertEquals(110.0, engine.fareIfKnown(VehicleClass.SEDAN, null, null, 12.845, 77.455));
+    }
+
+    @Test
+    void fare_shouldNeverDropAsTheDropoffMovesAwayFromThePickup() {
+        FareEngine engine = engine();
+        // Short trips across a zone border are priced from their own distance
+        double shortKm = GeoGrid.distanceKm(12.819, 77.419, 12.821, 77.421) * 1.35;
+        assertEquals(new Tariff(50, 12, 1.5, 80).farePaise(shortKm, 600) / 100.0,
+                engine.fare(VehicleClass.HATCHBACK, 12.819, 77.419, 12.821, 77.421));
+
+        double[][] pickups = {{12.801, 77.401}, {12.819, 77.419}, {12.9, 77.6}, {13.011, 77.533}};
+        for (double[] pickup : pickups) {
+            for (int angle = 0; angle < 360; angle += 15) {
+                double dLat = Math.sin(Math.toRadians(angle));
+                double dLng = Math.cos(Math.toRadians(angle));
+                double previous = 0;
+                for (double step = 0; step <= 0.15; step += 0.0005) {
+                    double fare = engine.fare(VehicleClass.HATCHBACK, pickup[0], pickup[1],
+                            pickup[0] + dLat * step, pickup[1] + dLng * step);
+                    assertTrue(fare >= previous, "Fare dropped from " + previous + " to " + fare + " going "
+                            + angle + " degrees from " + pickup[0] + "," + pickup[1] + " at step " + step);
+                    previous = fare;
+                }
+            }
+        }
+    }
+
+    @Test
+    void changedTariffFile_shouldBeSwappedInAndABadOneIgnored() throws IOException {
+        Files.writeString(tariffFile, "AUTO=10,1,0,10\nHATCHBACK=20,1,0,20\nSEDAN=30,1,0,30\nSUV=40,1,0,40\n");
+        FareEngine engine = engine();
+        double before = engine.fare(VehicleClass.AUTO, 12.805, 77.405, 12.845, 77.455);
+
+        Files.writeString(tariffFile, "AUTO=60,1,0,10\nHATCHBACK=20,1,0,20\nSEDAN=30,1,0,30\nSUV=40,1,0,40\n");
+        Files.setLastModifiedTime(tariffFile, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        engine.reloadIfChanged();
+        assertEquals(before + 50, engine.fare(VehicleClass.AUTO, 12.805, 77.405, 12.845, 77.455), 0.001);
+
+        Files.writeString(tariffFile, "AUTO=not-a-number\n");
+        Files.setLastModifiedTime(tariffFile, FileTime.fromMillis(System.currentTimeMillis() + 20_000));
+        engine.reloadIfChanged();
+        assertEquals(before + 50, engine.fare(VehicleClass.AUTO, 12.805, 77.405, 12.845, 77.455), 0.001);
+    }
+}
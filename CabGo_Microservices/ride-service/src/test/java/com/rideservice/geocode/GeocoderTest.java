@@ -0,0 +1,108 @@
+package com.rideservice.geocode;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeocoderTest {
+
+    @TempDir
+    Path dir;
+
+    private MeterRegistry meterRegistry;
+    private Path sourceFile;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        sourceFile = dir.resolve("gazetteer.csv");
+    }
+
+    private Geocoder geocoder() {
+        Geocoder geocoder = new Geocoder(meterRegistry, sourceFile.toString(), dir.resolve("gazetteer.bin").toString(), 100);
+        geocoder.load();
+        return geocoder;
+    }
+
+    private double lookups(String source) {
+        return meterRegistry.counter("ride.geocode.lookups", "source", source).count();
+    }
+
+    @Test
+    void locate_shouldAnswerPinnedPlacesFromMemoryAndCacheTheRest() throws IOException {
+        Files.writeString(sourceFile, """
+                # latitude,longitude,pinned,name
+                13.1989,77.7068,1,Kempegowda International Airport
+                12.9352,77.6245,0,Koramangala
+                """);
+        Geocoder geocoder = geocoder();
+
+        assertEquals(new GeoPoint(13.1989, 77.7068), geocoder.locate("Kempegowda  International Airport!"));
+        assertEquals(new GeoPoint(12.9352, 77.6245), geocoder.locate("koramangala"));
+        assertEquals(new GeoPoint(12.9352, 77.6245), geocoder.locate("Koramangala"));
+        // Not a place as a whole, but one of its parts is
+        assertEquals(new GeoPoint(12.9352, 77.6245), geocoder.locate("Flat 3, 5th Cross, Koramangala, Bengaluru"));
+        assertNull(geocoder.locate("Location A"));
+        assertNull(geocoder.locate("Location A"));
+        assertNull(geocoder.locate(null));
+
+        assertEquals(1, lookups("pinned"));
+        assertEquals(2, lookups("cache"));
+        assertEquals(2, lookups("gazetteer"));
+        assertEquals(1, lookups("miss"));
+        assertEquals(0.5, meterRegistry.get("ride.geocode.hit.ratio").gauge().value());
+        assertEquals(6, meterRegistry.get("ride.geocode.latency").timer().count());
+    }
+
+    @Test
+    void newerSource_shouldRebuildTheGazetteer() throws IOException {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            csv.append(12.8 + i * 0.0001).append(',').append(77.4).append(",0,Place ").append(i).append('\n');
+        }
+        Files.writeString(sourceFile, csv);
+        Geocoder geocoder = geocoder();
+        for (int i = 0; i < 1000; i += 37) {
+            assertEquals(12.8 + i * 0.0001, geocoder.locate("Place " + i).latitude());
+        }
+        assertNull(geocoder.locate("Place 1000"));
+
+        Files.writeString(sourceFile, "13.0,77.5,0,Place 1000\n");
+        Files.setLastModifiedTime(sourceFile, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        geocoder = geocoder();
+        assertEquals(new GeoPoint(13.0, 77.5), geocoder.locate("Place 1000"));
+        assertNull(geocoder.locate("Place 0"));
+    }
+
+    @Test
+    void longTexts_shouldStillResolveByPartButSkipTheCache() throws IOException {
+        Files.writeString(sourceFile, "12.9352,77.6245,0,Koramangala\n");
+        Geocoder geocoder = geocoder();
+        String text = "x".repeat(300) + ", Koramangala";
+
+        assertEquals(new GeoPoint(12.9352, 77.6245), geocoder.locate(text));
+        assertEquals(new GeoPoint(12.9352, 77.6245), geocoder.locate(text));
+        assertEquals(0, lookups("cache"));
+        assertEquals(2, lookups("gazetteer"));
+    }
+
+    @Test
+    void build_shouldRejectCoordinatesOutsideTheGlobe() {
+        for (String line : new String[] {"NaN,77.6,0,Nowhere", "12.9,181,0,Nowhere", "-91,77.6,0,Nowhere"}) {
+            IOException e = assertThrows(IOException.class, () -> Gazetteer.build(dir.resolve("bad.bin"),
+                    new BufferedReader(new StringReader("12.9,77.6,0,Somewhere\n" + line + "\n"))));
+            assertTrue(e.getMessage().startsWith("Line 2: bad coordinates"), e.getMessage());
+        }
+    }
+}
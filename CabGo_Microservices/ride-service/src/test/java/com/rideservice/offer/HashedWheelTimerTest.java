@@ -0,0 +1,66 @@
+package com.rideservice.offer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedWheelTimerTest {
+
+    // Small wheel so the test also covers timeouts that need more than one rotation
+    private final HashedWheelTimer timer = new HashedWheelTimer("test-timer", 5, TimeUnit.MILLISECONDS, 8);
+
+    @AfterEach
+    void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    void schedule_shouldFireAfterDelay() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        timer.schedule(fired::countDown, 100, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 95);
+    }
+
+    @Test
+    void cancel_shouldStopTaskAndOnlyOneSideWins() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch marker = new CountDownLatch(1);
+        HashedWheelTimer.Timeout cancelled = timer.schedule(runs::incrementAndGet, 30, TimeUnit.MILLISECONDS);
+        timer.schedule(marker::countDown, 60, TimeUnit.MILLISECONDS);
+
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertTrue(marker.await(2, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    void manyTimeouts_shouldAllFireOrBeSwept() throws InterruptedException {
+        int count = 100_000;
+        CountDownLatch fired = new CountDownLatch(count / 2);
+        List<HashedWheelTimer.Timeout> timeouts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            timeouts.add(timer.schedule(fired::countDown, 10 + i % 50, TimeUnit.MILLISECONDS));
+        }
+        for (int i = 1; i < count; i += 2) {
+            timeouts.get(i).cancel();
+        }
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 2000;
+        while (timer.outstanding() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, timer.outstanding());
+    }
+}
@@ -0,0 +1,164 @@
+package com.rideservice.offer;
+
+import com.commonlib.dto.DriverResponse;
+import com.commonlib.dto.NearbyDriverResponse;
+import com.commonlib.dto.RideOfferResponse;
+import com.commonlib.enums.RideStatus;
+import com.commonlib.exception.RideOfferConflictException;
+import com.rideservice.active.ActiveRideIndex;
+import com.rideservice.entity.Ride;
+import com.rideservice.eta.EtaEstimator;
+import com.rideservice.events.RideEventLog;
+import com.rideservice.feign.DriverServiceClient;
+import com.rideservice.heatmap.DemandHeatmap;
+import com.rideservice.push.RideUpdateHub;
+import com.rideservice.repository.RideRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RideOfferManagerTest {
+
+    @Mock
+    private RideRepository rideRepository;
+
+    @Mock
+    private DriverServiceClient driverServiceClient;
+
+    @Mock
+    private DemandHeatmap demandHeatmap;
+
+    @Mock
+    private EtaEstimator etaEstimator;
+
+    @Mock
+    private ActiveRideIndex activeRideIndex;
+
+    @Mock
+    private RideEventLog rideEventLog;
+
+    @Mock
+    private RideUpdateHub rideUpdateHub;
+
+    private RideOfferManager manager;
+    private Ride ride;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ride = Ride.builder().rideId(1L).pickupLatitude(12.97).pickupLongitude(77.59)
+                .status(RideStatus.REQUESTED).build();
+        when(rideRepository.findById(1L)).thenReturn(Optional.of(ride));
+        when(driverServiceClient.claimDriverById(anyLong())).thenAnswer(inv -> {
+            DriverResponse claimed = new DriverResponse();
+            claimed.setDriverId(inv.getArgument(0));
+            return claimed;
+        });
+        when(driverServiceClient.getNearestAvailableDrivers(anyDouble(), anyDouble(), anyInt())).thenReturn(List.of(
+                new NearbyDriverResponse(10L, 12.97, 77.59, 0.1),
+                new NearbyDriverResponse(11L, 12.98, 77.59, 1.0)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (manager != null) {
+            manager.shutdown();
+        }
+    }
+
+    private RideOfferManager manager(long timeoutMs, int maxAttempts) {
+        manager = new RideOfferManager(rideRepository, driverServiceClient, demandHeatmap, etaEstimator,
+                activeRideIndex, rideEventLog, rideUpdateHub, new SimpleMeterRegistry(), true, timeoutMs, maxAttempts, 5, 64, 1, false);
+        return manager;
+    }
+
+    @Test
+    void accept_shouldAssignRideAndCloseOffer() {
+        when(rideRepository.assignDriver(1L, 10L, 120, RideStatus.REQUESTED, RideStatus.ASSIGNED)).thenReturn(1);
+        RideOfferManager offers = manager(60_000, 3);
+        offers.open(ride, 10L, 120);
+        assertEquals(1L, offers.currentOffer(10L).getRideId());
+        verify(rideRepository).setOfferedDriver(1L, 10L);
+        verify(rideUpdateHub).pushOffer(eq(10L), any(RideOfferResponse.class));
+
+        assertEquals(ride, offers.accept(1L, 10L));
+
+        verify(rideRepository).assignDriver(1L, 10L, 120, RideStatus.REQUESTED, RideStatus.ASSIGNED);
+        verify(demandHeatmap).onLeftRequested(1L);
+        verify(activeRideIndex).assign(10L, 1L);
+        assertNull(offers.currentOffer(10L));
+        assertThrows(RideOfferConflictException.class, () -> offers.accept(1L, 10L));
+    }
+
+    @Test
+    void accept_afterRideCancelled_shouldConflictAndReleaseDriver() {
+        when(rideRepository.assignDriver(anyLong(), anyLong(), any(), any(), any())).thenReturn(0);
+        RideOfferManager offers = manager(60_000, 3);
+        offers.open(ride, 10L, null);
+
+        assertThrows(RideOfferConflictException.class, () -> offers.accept(1L, 10L));
+        verify(driverServiceClient).setDriverAvailable(10L, true);
+    }
+
+    @Test
+    void accept_whenAssignmentFails_shouldPutTheOfferBackUntilItLapses() {
+        when(rideRepository.assignDriver(anyLong(), anyLong(), any(), any(), any()))
+                .thenThrow(new RuntimeException("database down"));
+        RideOfferManager offers = manager(300, 1);
+        offers.open(ride, 10L, null);
+
+        assertThrows(RuntimeException.class, () -> offers.accept(1L, 10L));
+        assertEquals(1L, offers.currentOffer(10L).getRideId());
+        verify(driverServiceClient, never()).setDriverAvailable(anyLong(), anyBoolean());
+
+        // Still on the wheel, so the lapse frees the driver
+        verify(driverServiceClient, timeout(2000)).setDriverAvailable(10L, true);
+        verify(rideRepository, timeout(2000)).transition(1L, List.of(RideStatus.REQUESTED), RideStatus.CANCELLED);
+    }
+
+    @Test
+    void accept_byAnotherDriver_shouldConflict() {
+        RideOfferManager offers = manager(60_000, 3);
+        offers.open(ride, 10L, null);
+
+        assertThrows(RideOfferConflictException.class, () -> offers.accept(1L, 99L));
+        assertEquals(1, offers.outstanding());
+    }
+
+    @Test
+    void decline_shouldReleaseDriverAndOfferToNextCandidate() {
+        RideOfferManager offers = manager(60_000, 3);
+        offers.open(ride, 10L, null);
+
+        offers.decline(1L, 10L);
+
+        verify(driverServiceClient, timeout(2000)).setDriverAvailable(10L, true);
+        verify(driverServiceClient, timeout(2000)).claimDriverById(11L);
+        verify(driverServiceClient, never()).claimDriverById(10L);
+        assertNull(offers.currentOffer(10L));
+    }
+
+    @Test
+    void expiry_shouldMoveOnAndCancelRideWhenAttemptsRunOut() {
+        when(rideRepository.transition(1L, List.of(RideStatus.REQUESTED), RideStatus.CANCELLED)).thenReturn(1);
+        RideOfferManager offers = manager(50, 2);
+        offers.open(ride, 10L, null);
+
+        // First lapse re-offers to driver 11, the second one exhausts the attempts
+        verify(driverServiceClient, timeout(2000)).claimDriverById(11L);
+        verify(driverServiceClient, timeout(2000)).setDriverAvailable(11L, true);
+        verify(rideRepository, timeout(2000)).transition(1L, List.of(RideStatus.REQUESTED), RideStatus.CANCELLED);
+        verify(demandHeatmap, timeout(2000)).onLeftRequested(1L);
+        assertEquals(0, offers.outstanding());
+    }
+}
@@ -0,0 +1,62 @@
+package com.rideservice.push;
+
+import com.commonlib.enums.RideStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rideservice.entity.RideEvent;
+import com.rideservice.events.DriverQueueView;
+import com.rideservice.events.RideEventType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RideUpdateHubTest {
+
+    @Test
+    void subscriber_shouldRejectMessagesOnceItsQueueIsFull() {
+        List<Runnable> pendingDrains = new ArrayList<>();
+        PushSubscriber subscriber = new PushSubscriber(new SseEmitter(), 2, pendingDrains::add);
+
+        assertTrue(subscriber.offer(new PushMessage("ride", "1", "a")));
+        assertTrue(subscriber.offer(new PushMessage("ride", "2", "b")));
+        assertFalse(subscriber.offer(new PushMessage("ride", "3", "c")));
+        // One drain task per backlog, not one per message
+        assertEquals(1, pendingDrains.size());
+
+        pendingDrains.remove(0).run();
+
+        assertTrue(subscriber.isIdle());
+        assertTrue(subscriber.offer(PushMessage.HEARTBEAT));
+    }
+
+    @Test
+    void subscribe_shouldRefuseConnectionsOverTheLimit() {
+        RideUpdateHub hub = new RideUpdateHub(new DriverQueueView(), new SimpleMeterRegistry(), 60_000, 8, 2);
+        try {
+            assertNotNull(hub.subscribeDriver(1L));
+            assertNotNull(hub.subscribeRide(5L));
+            assertNull(hub.subscribeDriver(2L));
+            assertEquals(2, hub.connections());
+        } finally {
+            hub.shutdown();
+        }
+    }
+
+    @Test
+    void driverUpdate_shouldLeaveOutTheRider() throws Exception {
+        RideEvent event = RideEvent.builder().eventId(31L).rideId(6L).userId(2L).driverId(1L)
+                .type(RideEventType.ASSIGNED).status(RideStatus.ASSIGNED)
+                .occurredAt(LocalDateTime.of(2025, 7, 4, 10, 30)).build();
+
+        String json = new ObjectMapper().findAndRegisterModules().writeValueAsString(DriverRideUpdate.of(event));
+
+        assertTrue(json.contains("\"rideId\":6"));
+        assertTrue(json.contains("\"status\":\"ASSIGNED\""));
+        assertFalse(json.contains("userId"));
+    }
+}
@@ -3,13 +3,36 @@ package com.rideservice.service.impl;
 import com.commonlib.dto.RideBookingRequest;
 import com.commonlib.dto.UserResponse;
 import com.commonlib.dto.DriverResponse;
+import com.commonlib.enums.RideStatus;
+import com.commonlib.exception.RideStatusConflictException;
+import com.commonlib.exception.UserNotFoundException;
+import com.rideservice.active.ActiveRideIndex;
+import com.rideservice.archive.RideArchiver;
+import com.rideservice.booking.BookingTimings;
+import com.rideservice.booking.BookingQueue;
+import com.rideservice.booking.IdempotentBookings;
+import com.rideservice.dispatch.BatchDispatcher;
+import com.rideservice.eta.EtaEstimator;
+import com.rideservice.fare.FareEngine;
+import com.rideservice.events.DriverQueueView;
+import com.rideservice.events.RideEventLog;
+import com.rideservice.events.RideStatusCountsView;
+import com.rideservice.geocode.Geocoder;
+import com.rideservice.heatmap.DemandHeatmap;
+import com.rideservice.offer.RideOfferManager;
+import com.rideservice.entity.ArchivedRide;
 import com.rideservice.entity.Ride;
+import com.rideservice.repository.ArchivedRideRepository;
 import com.rideservice.repository.RideRepository;
 import com.rideservice.feign.UserServiceClient;
 import com.rideservice.feign.DriverServiceClient;
+import com.rideservice.state.RideStateMachine;
+import com.rideservice.surge.SurgePricing;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import feign.Request;
 import org.mockito.*;
+import org.springframework.data.domain.Limit;
 
 import java.util.List;
 import java.util.Optional;
@@ -28,6 +51,54 @@ class RideServiceImplTest {
     @Mock
     private DriverServiceClient driverServiceClient;
 
+    @Mock
+    private BatchDispatcher batchDispatcher;
+
+    @Mock
+    private DemandHeatmap demandHeatmap;
+
+    @Mock
+    private EtaEstimator etaEstimator;
+
+    @Mock
+    private RideOfferManager rideOfferManager;
+
+    @Mock
+    private ActiveRideIndex activeRideIndex;
+
+    @Mock
+    private ArchivedRideRepository archivedRideRepository;
+
+    @Mock
+    private RideArchiver rideArchiver;
+
+    @Mock
+    private RideEventLog rideEventLog;
+
+    @Mock
+    private DriverQueueView driverQueueView;
+
+    @Mock
+    private RideStatusCountsView rideStatusCountsView;
+
+    @Mock
+    private BookingTimings bookingTimings;
+
+    @Mock
+    private IdempotentBookings idempotentBookings;
+
+    @Mock
+    private BookingQueue bookingQueue;
+
+    @Mock
+    private FareEngine fareEngine;
+
+    @Mock
+    private SurgePricing surgePricing;
+
+    @Mock
+    private Geocoder geocoder;
+
     @InjectMocks
     private RideServiceImpl rideService;
 
@@ -45,11 +116,11 @@ class RideServiceImplTest {
 
         UserResponse userResponse = new UserResponse();
         userResponse.setUserId(1L);
-        when(userServiceClient.getUserById(1L)).thenReturn(userResponse);
+        when(userServiceClient.getUserByEmail(eq("user@example.com"), any(Request.Options.class))).thenReturn(userResponse);
 
         DriverResponse driverResponse = new DriverResponse();
         driverResponse.setDriverId(2L);
-        when(driverServiceClient.getAvailableDriver()).thenReturn(driverResponse);
+        when(driverServiceClient.claimDriver(isNull(), isNull(), any(Request.Options.class))).thenReturn(driverResponse);
 
         Ride ride = Ride.builder()
                 .rideId(1L)
@@ -63,12 +134,101 @@ class RideServiceImplTest {
         when(rideRepository.save(any(Ride.class))).thenReturn(ride);
 
         // Act
-        Ride result = rideService.bookRide(request, 1L);
+        Ride result = rideService.bookRide(request, "user@example.com");
 
         // Assert
         assertEquals(ride, result);
-        verify(driverServiceClient).setDriverAvailable(2L, false);
+        // Not known places, so matching goes on without coordinates
+        verify(geocoder).locate("Location A");
+        verify(driverServiceClient).claimDriver(isNull(), isNull(), any(Request.Options.class));
+        verify(driverServiceClient, never()).setDriverAvailable(anyLong(), anyBoolean());
         verify(rideRepository).save(any(Ride.class));
+        verify(activeRideIndex).assign(2L, 1L);
+        verify(userServiceClient, never()).getUserById(anyLong());
+        verify(bookingTimings).record(eq("total"), anyLong());
+    }
+
+    @Test
+    void bookRide_shouldBoundTheLookupsByTheDeadlineButAwaitTheClaimsAnswer() {
+        UserResponse userResponse = new UserResponse();
+        userResponse.setUserId(1L);
+        when(userServiceClient.getUserByEmail(eq("user@example.com"), any(Request.Options.class))).thenReturn(userResponse);
+        DriverResponse driverResponse = new DriverResponse();
+        driverResponse.setDriverId(2L);
+        when(driverServiceClient.claimDriver(isNull(), isNull(), any(Request.Options.class))).thenReturn(driverResponse);
+        when(rideRepository.save(any(Ride.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        rideService.bookRide(new RideBookingRequest(), "user@example.com");
+
+        ArgumentCaptor<Request.Options> userOptions = ArgumentCaptor.forClass(Request.Options.class);
+        verify(userServiceClient).getUserByEmail(eq("user@example.com"), userOptions.capture());
+        assertTrue(userOptions.getValue().readTimeoutMillis() > 0 && userOptions.getValue().readTimeoutMillis() <= 3000);
+        ArgumentCaptor<Request.Options> claimOptions = ArgumentCaptor.forClass(Request.Options.class);
+        verify(driverServiceClient).claimDriver(isNull(), isNull(), claimOptions.capture());
+        assertTrue(claimOptions.getValue().connectTimeoutMillis() <= 3000);
+        assertEquals(60_000, claimOptions.getValue().readTimeoutMillis());
+    }
+
+    @Test
+    void bookRide_asyncMode_shouldReturnUnmatchedRideAndMatchOnTheQueue() {
+        RideBookingRequest request = new RideBookingRequest();
+        request.setPickupLatitude(12.97);
+        request.setPickupLongitude(77.59);
+        UserResponse userResponse = new UserResponse();
+        userResponse.setUserId(1L);
+        when(userServiceClient.getUserByEmail(eq("user@example.com"), any(Request.Options.class))).thenReturn(userResponse);
+        Ride saved = Ride.builder().rideId(1L).userId(1L).pickupLatitude(12.97).pickupLongitude(77.59)
+                .status(RideStatus.REQUESTED).build();
+        when(rideRepository.save(any(Ride.class))).thenReturn(saved);
+        BookingQueue.Slot slot = mock(BookingQueue.Slot.class);
+        when(bookingQueue.isEnabled()).thenReturn(true);
+        when(bookingQueue.reserve(12.97, 77.59)).thenReturn(slot);
+
+        Ride result = rideService.bookRide(request, "user@example.com");
+
+        // No driver is claimed on the request thread
+        assertNull(result.getDriverId());
+        verify(driverServiceClient, never()).claimDriver(any(), any(), any());
+        ArgumentCaptor<Runnable> match = ArgumentCaptor.forClass(Runnable.class);
+        verify(slot).submit(match.capture());
+
+        DriverResponse driverResponse = new DriverResponse();
+        driverResponse.setDriverId(2L);
+        when(driverServiceClient.claimDriver(eq(12.97), eq(77.59), any(Request.Options.class))).thenReturn(driverResponse);
+        when(rideRepository.assignDriver(eq(1L), eq(2L), any(), eq(RideStatus.REQUESTED), eq(RideStatus.REQUESTED))).thenReturn(1);
+        match.getValue().run();
+
+        verify(activeRideIndex).assign(2L, 1L);
+    }
+
+    @Test
+    void bookRide_unknownUser_shouldNotClaimADriver() {
+        DriverResponse driverResponse = new DriverResponse();
+        driverResponse.setDriverId(2L);
+        when(driverServiceClient.claimDriver(isNull(), isNull(), any(Request.Options.class))).thenReturn(driverResponse);
+
+        assertThrows(UserNotFoundException.class,
+                () -> rideService.bookRide(new RideBookingRequest(), "nobody@example.com"));
+
+        verify(driverServiceClient, never()).claimDriver(any(), any(), any());
+        verify(driverServiceClient, never()).setDriverAvailable(anyLong(), anyBoolean());
+        verify(rideRepository, never()).save(any(Ride.class));
+    }
+
+    @Test
+    void bookRide_failedSave_shouldReleaseTheClaimedDriver() {
+        UserResponse userResponse = new UserResponse();
+        userResponse.setUserId(1L);
+        when(userServiceClient.getUserByEmail(eq("user@example.com"), any(Request.Options.class))).thenReturn(userResponse);
+        DriverResponse driverResponse = new DriverResponse();
+        driverResponse.setDriverId(2L);
+        when(driverServiceClient.claimDriver(isNull(), isNull(), any(Request.Options.class))).thenReturn(driverResponse);
+        when(rideRepository.save(any(Ride.class))).thenThrow(new RuntimeException("db down"));
+
+        assertThrows(RuntimeException.class, () -> rideService.bookRide(new RideBookingRequest(), "user@example.com"));
+
+        verify(driverServiceClient).setDriverAvailable(2L, true);
+        verify(activeRideIndex, never()).assign(anyLong(), anyLong());
     }
 
     @Test
@@ -85,12 +245,97 @@ class RideServiceImplTest {
                         .status(com.commonlib.enums.RideStatus.COMPLETED)
                         .build()
         );
-        when(rideRepository.findByUserId(1L)).thenReturn(rides);
+        when(rideRepository.findUserRidesBefore(1L, Long.MAX_VALUE, Limit.of(20))).thenReturn(rides);
 
         // Act
-        List<Ride> result = rideService.getUserRides(1L);
+        List<Ride> result = rideService.getUserRides(1L, null, null);
 
         // Assert
         assertEquals(rides, result);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getUserRides_shouldContinueFromCursorAndCapPageSize() {
+        when(rideRepository.findUserRidesBefore(anyLong(), anyLong(), any(Limit.class))).thenReturn(List.of());
+
+        rideService.getUserRides(1L, 500L, 10_000);
+
+        verify(rideRepository).findUserRidesBefore(1L, 500L, Limit.of(100));
+    }
+
+    @Test
+    void getUserRides_shouldMergeArchivedRidesBelowWatermark() {
+        when(rideArchiver.highestArchivedRideId()).thenReturn(40L);
+        when(rideRepository.findUserRidesBefore(1L, Long.MAX_VALUE, Limit.of(3))).thenReturn(List.of(
+                Ride.builder().rideId(50L).build(),
+                Ride.builder().rideId(30L).build()));
+        ArchivedRide archived = new ArchivedRide();
+        archived.setRideId(40L);
+        ArchivedRide older = new ArchivedRide();
+        older.setRideId(20L);
+        when(archivedRideRepository.findUserRidesBefore(1L, Long.MAX_VALUE, Limit.of(3)))
+                .thenReturn(List.of(archived, older));
+
+        List<Ride> result = rideService.getUserRides(1L, null, 3);
+
+        assertEquals(List.of(50L, 40L, 30L), result.stream().map(Ride::getRideId).toList());
+    }
+
+    @Test
+    void getLatestUserRide_shouldFilterByStatusWhenGiven() {
+        Ride completed = Ride.builder().rideId(9L).userId(1L).status(RideStatus.COMPLETED).build();
+        when(rideRepository.findFirstByUserIdAndStatusOrderByRideIdDesc(1L, RideStatus.COMPLETED))
+                .thenReturn(Optional.of(completed));
+        when(rideRepository.findFirstByUserIdOrderByRideIdDesc(1L)).thenReturn(Optional.empty());
+
+        assertEquals(completed, rideService.getLatestUserRide(1L, RideStatus.COMPLETED));
+        assertNull(rideService.getLatestUserRide(1L, null));
+    }
+
+    @Test
+    void updateStatusByDriver_shouldUseConditionalUpdateAndFreeDriverOnCompletion() {
+        when(activeRideIndex.rideFor(2L)).thenReturn(5L);
+        when(rideRepository.transition(5L, RideStateMachine.allowedFrom(RideStatus.COMPLETED), RideStatus.COMPLETED))
+                .thenReturn(1);
+
+        rideService.updateStatusByDriver(2L, "COMPLETED");
+
+        verify(rideRepository, never()).save(any(Ride.class));
+        verify(rideRepository, never()).findByDriverId(anyLong());
+        verify(activeRideIndex).release(5L);
+        verify(driverServiceClient).setDriverAvailable(2L, true);
+        verify(demandHeatmap).onLeftRequested(5L);
+    }
+
+    @Test
+    void updateStatus_losingOrIllegalTransition_shouldConflict() {
+        Ride completed = Ride.builder().rideId(5L).status(RideStatus.COMPLETED).build();
+        when(rideRepository.transition(anyLong(), anyList(), any())).thenReturn(0);
+        when(rideRepository.findById(5L)).thenReturn(Optional.of(completed));
+
+        assertThrows(RideStatusConflictException.class, () -> rideService.updateStatus(5L, "ONGOING"));
+        // Nothing moves back to REQUESTED, not even a query is needed to know that
+        assertThrows(RideStatusConflictException.class, () -> rideService.updateStatus(5L, "REQUESTED"));
+        verify(rideRepository, times(1)).transition(anyLong(), anyList(), any());
+        verifyNoInteractions(demandHeatmap);
+    }
+
+    @Test
+    void getRidesByIds_shouldQueryArchiveOnlyForMissingIdsBelowWatermark() {
+        Ride hot = Ride.builder().rideId(90L).userId(1L).status(RideStatus.ONGOING).build();
+        ArchivedRide archived = new ArchivedRide();
+        archived.setRideId(10L);
+        archived.setUserId(2L);
+        archived.setStatus(RideStatus.COMPLETED);
+        when(rideArchiver.highestArchivedRideId()).thenReturn(50L);
+        when(rideRepository.findAllById(List.of(90L, 10L, 95L))).thenReturn(List.of(hot));
+        when(archivedRideRepository.findAllById(List.of(10L))).thenReturn(List.of(archived));
+
+        List<Ride> rides = rideService.getRidesByIds(List.of(90L, 10L, 90L, 95L));
+
+        // Request order, duplicates collapsed, the unknown id 95 left out without an archive lookup
+        assertEquals(List.of(90L, 10L), rides.stream().map(Ride::getRideId).toList());
+        verify(rideRepository, times(1)).findAllById(anyList());
+        verify(archivedRideRepository, times(1)).findAllById(anyList());
+    }
+}
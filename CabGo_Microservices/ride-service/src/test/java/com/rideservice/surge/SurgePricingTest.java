@@ -0,0 +1,88 @@
+package com.rideservice.surge;
+
+import com.commonlib.dto.HeatmapCell;
+import com.commonlib.dto.HeatmapSnapshot;
+import com.rideservice.feign.DriverServiceClient;
+import com.rideservice.heatmap.DemandHeatmap;
+import feign.FeignException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+class SurgePricingTest {
+
+    @Mock
+    private DemandHeatmap demandHeatmap;
+
+    @Mock
+    private DriverServiceClient driverServiceClient;
+
+    private SurgePricing surgePricing;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        surgePricing = new SurgePricing(demandHeatmap, driverServiceClient, true, 300_000, 0.02,
+                12.80, 77.40, 13.20, 77.80, 5, 1.0, 0.5, 3.0, 0.5, 2);
+    }
+
+    private static HeatmapSnapshot snapshot(HeatmapCell... cells) {
+        return new HeatmapSnapshot(0, 0.01, 300_000, List.of(cells));
+    }
+
+    @Test
+    void busyZone_shouldRiseByMaxStepPerTickUpToTheCap() {
+        when(demandHeatmap.snapshot(anyLong())).thenReturn(snapshot(
+                new HeatmapCell(1, 12.815, 77.415, 0, 20),
+                new HeatmapCell(2, 12.955, 77.605, 0, 3)));
+        when(driverServiceClient.getSupplyHeatmap(anyLong())).thenReturn(snapshot(
+                new HeatmapCell(1, 12.815, 77.415, 1, 1)));
+
+        surgePricing.recompute();
+        assertEquals(1.5, surgePricing.multiplier(12.81, 77.41));
+        for (int tick = 0; tick < 5; tick++) {
+            surgePricing.recompute();
+        }
+        assertEquals(3.0, surgePricing.multiplier(12.81, 77.41));
+        // Too few requests to surge, and nothing outside the box
+        assertEquals(1.0, surgePricing.multiplier(12.95, 77.60));
+        assertEquals(1.0, surgePricing.multiplier(13.50, 77.60));
+        assertEquals(1.0, surgePricing.multiplierIfKnown(null, 77.41));
+    }
+
+    @Test
+    void supply_shouldCountAvailableDriversOnlyOnce() {
+        when(demandHeatmap.snapshot(anyLong())).thenReturn(snapshot(new HeatmapCell(1, 12.815, 77.415, 0, 10)));
+        // Five available now, four of them freed during the window
+        when(driverServiceClient.getSupplyHeatmap(anyLong())).thenReturn(snapshot(
+                new HeatmapCell(1, 12.815, 77.415, 5, 4)));
+
+        surgePricing.recompute();
+        assertEquals(1.5, surgePricing.multiplier(12.81, 77.41));
+    }
+
+    @Test
+    void missingSupply_shouldKeepTheLastMultipliersThenWindThemDown() {
+        when(demandHeatmap.snapshot(anyLong())).thenReturn(snapshot(new HeatmapCell(1, 12.815, 77.415, 0, 20)));
+        when(driverServiceClient.getSupplyHeatmap(anyLong())).thenReturn(snapshot());
+        surgePricing.recompute();
+        surgePricing.recompute();
+        assertEquals(2.0, surgePricing.multiplier(12.81, 77.41));
+
+        when(driverServiceClient.getSupplyHeatmap(anyLong())).thenThrow(FeignException.class);
+        surgePricing.recompute();
+        assertEquals(2.0, surgePricing.multiplier(12.81, 77.41));
+        surgePricing.recompute();
+        assertEquals(1.5, surgePricing.multiplier(12.81, 77.41));
+        surgePricing.recompute();
+        surgePricing.recompute();
+        assertEquals(1.0, surgePricing.multiplier(12.81, 77.41));
+    }
+}
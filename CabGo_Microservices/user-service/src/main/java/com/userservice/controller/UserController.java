@@ -13,11 +13,16 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/users")
 @RequiredArgsConstructor
 public class UserController {
 
+    // Ids accepted per /batch request
+    static final int MAX_BATCH_IDS = 200;
+
     private final UserService userService;
 
     @PostMapping("/register")
@@ -100,4 +105,18 @@ public class UserController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
+
+    // One IN query for services that would otherwise fetch users one id at a time; id and email only
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('SERVICE')")
+    public ResponseEntity<List<UserEmailResponse>> getUsersByIds(@RequestBody List<Long> ids) {
+        if (ids.size() > MAX_BATCH_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(userService.getUsersByIds(ids));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
 }
@@ -1,10 +1,13 @@
 package com.userservice.service;
 
 
+import com.commonlib.dto.UserEmailResponse;
 import com.commonlib.dto.UserLoginRequest;
 import com.commonlib.dto.UserRegisterRequest;
 import com.userservice.entity.User;
 
+import java.util.List;
+
 public interface UserService {
     String register(UserRegisterRequest request);
     String login(UserLoginRequest request);
@@ -12,5 +15,6 @@ public interface UserService {
     void logout();
     User getUserByEmail(String email);
     User getUserById(Long id);
+    List<UserEmailResponse> getUsersByIds(List<Long> ids); // unknown ids are left out
 
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.userservice.service.impl;
 
+import com.commonlib.dto.UserEmailResponse;
 import com.commonlib.dto.UserLoginRequest;
 import com.commonlib.dto.UserRegisterRequest;
 import com.commonlib.enums.Role;
@@ -13,6 +14,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
@@ -81,4 +83,11 @@ public class UserServiceImpl implements UserService {
         return userRepository.findById(id)
                 .orElseThrow(() -> new UserNotFoundException("User not found with ID: " + id));
     }
+
+    @Override
+    public List<UserEmailResponse> getUsersByIds(List<Long> ids) {
+        return userRepository.findAllById(ids).stream()
+                .map(user -> new UserEmailResponse(user.getUserId(), user.getEmail()))
+                .toList();
+    }
 }
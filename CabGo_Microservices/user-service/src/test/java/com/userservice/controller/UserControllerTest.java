@@ -9,6 +9,9 @@ import org.mockito.*;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
+import java.util.List;
+import java.util.stream.LongStream;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -143,4 +146,14 @@ class UserControllerTest {
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getUsersByIds_shouldRejectOversizedBatches() {
+        List<Long> ids = LongStream.rangeClosed(1, UserController.MAX_BATCH_IDS + 1).boxed().toList();
+
+        ResponseEntity<List<UserEmailResponse>> response = userController.getUsersByIds(ids);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(userService, never()).getUsersByIds(anyList());
+    }
+}
@@ -1,5 +1,6 @@
 package com.userservice.service.impl;
 
+import com.commonlib.dto.UserEmailResponse;
 import com.commonlib.dto.UserLoginRequest;
 import com.commonlib.dto.UserRegisterRequest;
 import com.commonlib.enums.Role;
@@ -12,6 +13,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.*;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -163,4 +165,16 @@ class UserServiceImplTest {
 
         assertThrows(UserNotFoundException.class, () -> userService.getUserById(id));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getUsersByIds_shouldUseSingleQueryAndReturnOnlyIdAndEmail() {
+        User user = User.builder().userId(1L).email("user@example.com").phone("9999999999")
+                .passwordHash("hash").build();
+        when(userRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(user));
+
+        List<UserEmailResponse> result = userService.getUsersByIds(List.of(1L, 2L));
+
+        assertEquals(List.of(new UserEmailResponse(1L, "user@example.com")), result);
+        verify(userRepository, never()).findById(anyLong());
+    }
+}